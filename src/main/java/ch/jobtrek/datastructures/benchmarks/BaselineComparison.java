@@ -0,0 +1,28 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+/**
+ * The outcome of comparing a new benchmark run against its stored baseline.
+ *
+ * <p>A scenario is flagged as a regression only when <strong>both</strong>
+ * conditions hold: the median throughput dropped by more than the tolerance,
+ * <em>and</em> the Mann-Whitney test says the drop is statistically
+ * significant. The first condition ignores tiny but real slowdowns; the second
+ * ignores large but noisy ones.</p>
+ *
+ * @param key            the scenario that was compared
+ * @param baselineMedian the median throughput of the baseline samples (ops/s)
+ * @param currentMedian  the median throughput of the new samples (ops/s)
+ * @param relativeChange {@code (current - baseline) / baseline}, negative when slower
+ * @param pValue         the one-sided Mann-Whitney p-value for "current is slower"
+ * @param regressed      {@code true} if this scenario should fail the build
+ */
+public record BaselineComparison(BenchmarkKey key, double baselineMedian, double currentMedian,
+                                 double relativeChange, double pValue, boolean regressed) {
+
+    @Override
+    public String toString() {
+        return String.format("%-40s baseline %,14.0f ops/s | current %,14.0f ops/s | %+6.1f%% | p=%.4f%s",
+                key, baselineMedian, currentMedian, relativeChange * 100, pValue,
+                regressed ? "  REGRESSION" : "");
+    }
+}
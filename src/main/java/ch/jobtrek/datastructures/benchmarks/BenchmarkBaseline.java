@@ -0,0 +1,368 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A store of reference throughput samples, one entry per
+ * {@link BenchmarkKey} (benchmark, data structure, size).
+ *
+ * <p>The baseline lives in a JSON file that is checked into the repository, so
+ * every developer compares against the same numbers. A typical workflow:</p>
+ * <ol>
+ *   <li>Record the baseline once on a quiet machine with
+ *       {@code mvn test -Pbenchmark-regression -Dbenchmark.baseline.update=true}.</li>
+ *   <li>Commit the updated JSON file.</li>
+ *   <li>Before deploying, run {@code mvn test -Pbenchmark-regression}. The build
+ *       fails if any scenario is slower than the baseline.</li>
+ * </ol>
+ *
+ * <p>The file format is deliberately small and human-readable:</p>
+ * <pre>{@code
+ * {
+ *   "unit": "ops/s",
+ *   "results": [
+ *     { "benchmark": "append", "structure": "ArrayList", "size": 100000,
+ *       "samples": [ 1.52E8, 1.49E8, 1.55E8 ] }
+ *   ]
+ * }
+ * }</pre>
+ *
+ * <p>Samples are throughput values (operations per second), one per measured
+ * iteration, so <strong>higher is better</strong>.</p>
+ */
+public class BenchmarkBaseline {
+
+    private final SortedMap<BenchmarkKey, double[]> samples = new TreeMap<>();
+
+    /**
+     * Loads a baseline from a JSON file. A missing file yields an empty baseline,
+     * so the very first run does not need any setup.
+     *
+     * @param file the JSON file to read
+     * @return the loaded baseline
+     * @throws UncheckedIOException     if the file exists but cannot be read
+     * @throws IllegalArgumentException if the file is not a valid baseline
+     */
+    public static BenchmarkBaseline load(Path file) {
+        var baseline = new BenchmarkBaseline();
+        if (!Files.exists(file)) {
+            return baseline;
+        }
+        String json;
+        try {
+            json = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read baseline " + file, e);
+        }
+        Object root = new JsonReader(json).readDocument();
+        if (!(root instanceof Map<?, ?> document) || !(document.get("results") instanceof List<?> results)) {
+            throw new IllegalArgumentException("Baseline " + file + " has no \"results\" array");
+        }
+        for (Object result : results) {
+            if (!(result instanceof Map<?, ?> entry)
+                    || !(entry.get("benchmark") instanceof String benchmark)
+                    || !(entry.get("structure") instanceof String structure)
+                    || !(entry.get("size") instanceof Double size)
+                    || !(entry.get("samples") instanceof List<?> values)) {
+                throw new IllegalArgumentException("Malformed baseline entry in " + file + ": " + result);
+            }
+            double[] sampleArray = new double[values.size()];
+            for (int i = 0; i < sampleArray.length; i++) {
+                if (!(values.get(i) instanceof Double value)) {
+                    throw new IllegalArgumentException("Non-numeric sample in " + file + ": " + result);
+                }
+                sampleArray[i] = value;
+            }
+            baseline.put(new BenchmarkKey(benchmark, structure, size.intValue()), sampleArray);
+        }
+        return baseline;
+    }
+
+    /**
+     * Writes this baseline to a JSON file, creating parent directories if needed.
+     *
+     * @param file the destination file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void save(Path file) {
+        var json = new StringBuilder();
+        json.append("{\n  \"unit\": \"ops/s\",\n  \"results\": [");
+        String separator = "\n";
+        for (var entry : samples.entrySet()) {
+            BenchmarkKey key = entry.getKey();
+            json.append(separator)
+                    .append("    { \"benchmark\": ").append(quote(key.benchmark()))
+                    .append(", \"structure\": ").append(quote(key.structure()))
+                    .append(", \"size\": ").append(key.size())
+                    .append(",\n      \"samples\": [ ");
+            double[] values = entry.getValue();
+            for (int i = 0; i < values.length; i++) {
+                json.append(i == 0 ? "" : ", ").append(values[i]);
+            }
+            json.append(" ] }");
+            separator = ",\n";
+        }
+        json.append(samples.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.writeString(file, json, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write baseline " + file, e);
+        }
+    }
+
+    /**
+     * Stores (or replaces) the samples for a scenario.
+     *
+     * @param key    the scenario
+     * @param values the throughput samples in ops/s; must not be empty
+     */
+    public void put(BenchmarkKey key, double[] values) {
+        Objects.requireNonNull(key, "key must not be null");
+        if (values.length == 0) {
+            throw new IllegalArgumentException("samples must not be empty");
+        }
+        samples.put(key, values.clone());
+    }
+
+    /**
+     * Returns the stored samples for a scenario, if any.
+     *
+     * @param key the scenario
+     * @return a copy of the samples, or an empty optional if the scenario has no baseline
+     */
+    public Optional<double[]> samples(BenchmarkKey key) {
+        return Optional.ofNullable(samples.get(key)).map(double[]::clone);
+    }
+
+    /**
+     * Returns all scenarios in this baseline, sorted by benchmark, structure
+     * and size (the order in which {@link #save(Path)} writes them), whatever the
+     * order they were loaded or recorded in.
+     *
+     * @return the stored keys, sorted
+     */
+    public List<BenchmarkKey> keys() {
+        return List.copyOf(samples.keySet());
+    }
+
+    /**
+     * Compares new samples against the stored baseline of the same scenario.
+     *
+     * @param key       the scenario
+     * @param current   the new throughput samples in ops/s
+     * @param tolerance the accepted relative slowdown of the median (e.g. {@code 0.10} for 10 %)
+     * @param alpha     the significance level of the Mann-Whitney test (e.g. {@code 0.05})
+     * @return the comparison, or an empty optional if the scenario has no baseline yet
+     */
+    public Optional<BaselineComparison> compare(BenchmarkKey key, double[] current, double tolerance, double alpha) {
+        if (tolerance < 0 || alpha <= 0 || alpha >= 1) {
+            throw new IllegalArgumentException("tolerance must be >= 0 and alpha must be in (0, 1)");
+        }
+        double[] reference = samples.get(key);
+        if (reference == null) {
+            return Optional.empty();
+        }
+        double baselineMedian = median(reference);
+        double currentMedian = median(current);
+        double change = (currentMedian - baselineMedian) / baselineMedian;
+        double pValue = MannWhitneyU.pValueLess(current, reference);
+        boolean regressed = change < -tolerance && pValue < alpha;
+        return Optional.of(new BaselineComparison(key, baselineMedian, currentMedian, change, pValue, regressed));
+    }
+
+    /**
+     * Returns the median of the given values.
+     *
+     * @param values the values; must not be empty
+     * @return the median
+     */
+    public static double median(double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("values must not be empty");
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * A minimal JSON reader: objects become {@link LinkedHashMap}s, arrays
+     * become {@link ArrayList}s and every number becomes a {@link Double}.
+     * It only needs to understand files written by {@link #save(Path)} (or
+     * edited by hand), so it does not support unicode escapes.
+     */
+    static final class JsonReader {
+
+        private final String text;
+        private int pos;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Object readDocument() {
+            Object value = readValue();
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error("Unexpected trailing content");
+            }
+            return value;
+        }
+
+        private Object readValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = text.charAt(pos);
+            return switch (c) {
+                case '{' -> readObject();
+                case '[' -> readArray();
+                case '"' -> readString();
+                case 't' -> readLiteral("true", Boolean.TRUE);
+                case 'f' -> readLiteral("false", Boolean.FALSE);
+                case 'n' -> readLiteral("null", null);
+                default -> readNumber();
+            };
+        }
+
+        private Map<String, Object> readObject() {
+            var object = new LinkedHashMap<String, Object>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String name = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            var array = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            var result = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return result.toString();
+                }
+                if (c == '\\') {
+                    if (pos >= text.length()) {
+                        break;
+                    }
+                    char escaped = text.charAt(pos++);
+                    result.append(switch (escaped) {
+                        case 'n' -> '\n';
+                        case 't' -> '\t';
+                        case 'r' -> '\r';
+                        default -> escaped;
+                    });
+                } else {
+                    result.append(c);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Double readNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Unexpected character '" + text.charAt(pos) + "'");
+            }
+            try {
+                return Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, pos)) {
+                throw error("Unexpected token");
+            }
+            pos += literal.length();
+            return value;
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(pos);
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected) {
+                throw error("Expected '" + expected + "'");
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at offset " + pos);
+        }
+    }
+}
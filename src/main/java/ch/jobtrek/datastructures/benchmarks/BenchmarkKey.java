@@ -0,0 +1,41 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Identifies one measured scenario in a {@link BenchmarkBaseline}: which
+ * operation was timed, on which data structure, and at which input size.
+ *
+ * <p>Keys are ordered by benchmark, then structure, then size, so the baseline
+ * file is always written in the same order and diffs stay readable.</p>
+ *
+ * @param benchmark the operation being measured (e.g. {@code "append"})
+ * @param structure the data structure under test (e.g. {@code "ArrayList"})
+ * @param size      the number of elements in the scenario
+ */
+public record BenchmarkKey(String benchmark, String structure, int size) implements Comparable<BenchmarkKey> {
+
+    private static final Comparator<BenchmarkKey> ORDER = Comparator
+            .comparing(BenchmarkKey::benchmark)
+            .thenComparing(BenchmarkKey::structure)
+            .thenComparingInt(BenchmarkKey::size);
+
+    public BenchmarkKey {
+        Objects.requireNonNull(benchmark, "benchmark must not be null");
+        Objects.requireNonNull(structure, "structure must not be null");
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative");
+        }
+    }
+
+    @Override
+    public int compareTo(BenchmarkKey other) {
+        return ORDER.compare(this, other);
+    }
+
+    @Override
+    public String toString() {
+        return benchmark + "/" + structure + "/" + size;
+    }
+}
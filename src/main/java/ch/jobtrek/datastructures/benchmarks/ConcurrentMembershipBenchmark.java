@@ -0,0 +1,141 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Runs a membership operation such as
+ * {@link PerformanceBenchmarkExercise#countHits(Collection, List)} from many
+ * threads at once against a shared collection.
+ *
+ * <p>Single-threaded benchmarks only show the algorithmic cost of a lookup.
+ * Under concurrency, the cost of <em>synchronisation</em> takes over: a
+ * collection guarded by a single lock serialises all readers, so adding threads
+ * adds waiting instead of throughput. This harness makes that visible by
+ * reporting, for each thread count:</p>
+ * <ul>
+ *   <li><strong>throughput</strong> — lookups per second across all threads;</li>
+ *   <li><strong>tail latency</strong> — the p50 / p99 / max duration of a single
+ *       {@code countHits} call, which grows when threads queue on a lock.</li>
+ * </ul>
+ *
+ * <p>Both platform threads and virtual threads are supported. With virtual
+ * threads, a blocked {@code synchronized} lookup pins or parks its carrier,
+ * which is exactly the behaviour worth measuring before moving request
+ * handling to virtual threads.</p>
+ */
+public final class ConcurrentMembershipBenchmark {
+
+    private ConcurrentMembershipBenchmark() {
+    }
+
+    /**
+     * The kind of thread used to run the workers.
+     */
+    public enum ThreadKind {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    /**
+     * The outcome of one run.
+     *
+     * @param structure  a label for the collection under test
+     * @param threadKind the kind of worker threads
+     * @param threads    the number of concurrent workers
+     * @param throughput lookups per second, summed across all workers
+     * @param p50Nanos   median duration of one {@code countHits} call
+     * @param p99Nanos   99th percentile duration of one call
+     * @param maxNanos   slowest call
+     * @param totalHits  the sum of all returned hit counts (for verification)
+     */
+    public record Result(String structure, ThreadKind threadKind, int threads, double throughput,
+                         long p50Nanos, long p99Nanos, long maxNanos, long totalHits) {
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %-8s %4d threads  %,14.0f lookups/s  p50 %,10d ns  p99 %,11d ns  max %,12d ns",
+                    structure, threadKind, threads, throughput, p50Nanos, p99Nanos, maxNanos);
+        }
+    }
+
+    /**
+     * Starts {@code threads} workers that each call {@code countHits(collection, queries)}
+     * {@code callsPerThread} times, all released at the same instant.
+     *
+     * @param structure      a label for the collection, used in the result
+     * @param collection     the shared collection to query; must be safe for concurrent reads
+     * @param queries        the values looked up by each call
+     * @param threadKind     platform or virtual threads
+     * @param threads        the number of concurrent workers (must be &gt; 0)
+     * @param callsPerThread how many calls each worker performs (must be &gt; 0)
+     * @param countHits      the operation under test
+     * @return throughput and latency figures for this run
+     */
+    public static Result run(String structure, Collection<Integer> collection, List<Integer> queries,
+                             ThreadKind threadKind, int threads, int callsPerThread,
+                             ToIntBiFunction<Collection<Integer>, List<Integer>> countHits) {
+        if (threads <= 0 || callsPerThread <= 0) {
+            throw new IllegalArgumentException("threads and callsPerThread must be positive");
+        }
+        var ready = new CountDownLatch(threads);
+        var start = new CountDownLatch(1);
+        var histograms = new LatencyHistogram[threads];
+        long[] hits = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            histograms[t] = new LatencyHistogram();
+        }
+
+        long elapsed;
+        try (ExecutorService executor = threadKind == ThreadKind.VIRTUAL
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads)) {
+            var futures = new ArrayList<Future<?>>(threads);
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    LatencyHistogram own = histograms[worker];
+                    long sum = 0;
+                    for (int call = 0; call < callsPerThread; call++) {
+                        long before = System.nanoTime();
+                        sum += countHits.applyAsInt(collection, queries);
+                        own.recordSince(before);
+                    }
+                    hits[worker] = sum;
+                    return null;
+                }));
+            }
+            ready.await();
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            elapsed = Math.max(1, System.nanoTime() - begin);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Benchmark interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Benchmark worker failed", e.getCause());
+        }
+
+        var all = new LatencyHistogram();
+        long totalHits = 0;
+        for (int t = 0; t < threads; t++) {
+            all.add(histograms[t]);
+            totalHits += hits[t];
+        }
+        double lookups = (double) threads * callsPerThread * queries.size();
+        return new Result(structure, threadKind, threads, lookups * 1e9 / elapsed,
+                all.percentile(50), all.percentile(99), all.max(), totalHits);
+    }
+}
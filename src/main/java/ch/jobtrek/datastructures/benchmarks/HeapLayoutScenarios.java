@@ -0,0 +1,211 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import ch.jobtrek.datastructures.linear.UnrolledLinkedList;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builders for linked structures with a controlled <strong>memory layout</strong>.
+ *
+ * <p>When a {@link LinkedList} is filled in a tight loop (as in
+ * {@link PerformanceBenchmarkExercise#appendElements(List, int)}), the JVM
+ * allocates its nodes one after the other in a thread-local buffer. The nodes
+ * end up nearly contiguous in memory, so iterating the list is far more
+ * cache-friendly than it would be in a long-running application, where nodes
+ * are allocated between unrelated objects and scattered across the heap.</p>
+ *
+ * <p>The scenarios below reproduce that real-world scattering on purpose:</p>
+ * <ul>
+ *   <li><strong>Interleaved:</strong> several lists are filled round-robin, so
+ *       consecutive nodes of one list are separated by nodes of the others.</li>
+ *   <li><strong>Shuffled boxes:</strong> the nodes are contiguous, but the
+ *       {@code Integer} values they point to were allocated in random order.</li>
+ *   <li><strong>Shuffled chain:</strong> a minimal singly linked chain whose
+ *       nodes are allocated in order but <em>linked</em> in random order, the
+ *       worst case for the hardware prefetcher.</li>
+ * </ul>
+ *
+ * <p><strong>Caveat:</strong> a copying garbage collector may move surviving
+ * objects and partially restore their locality. Every builder therefore keeps
+ * the objects reachable in their scattered allocation order for as long as the
+ * returned structure is alive.</p>
+ */
+public final class HeapLayoutScenarios {
+
+    private HeapLayoutScenarios() {
+    }
+
+    /**
+     * Builds a {@link LinkedList} in allocation order (the optimistic case).
+     *
+     * @param size the number of elements
+     * @return a list containing {@code 0, 1, ..., size-1}
+     */
+    public static LinkedList<Integer> sequentialLinkedList(int size) {
+        var list = new LinkedList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    /**
+     * Fills {@code ways} linked lists round-robin, so the nodes of each list are
+     * interleaved with the nodes of all the others. All lists hold the same
+     * values; iterate any of them, and keep the returned list alive while doing
+     * so (the siblings are what keeps the nodes apart).
+     *
+     * @param size the number of elements per list
+     * @param ways the number of interleaved lists (must be &gt; 0)
+     * @return the interleaved lists, each containing {@code 0, 1, ..., size-1}
+     */
+    public static List<LinkedList<Integer>> interleavedLinkedLists(int size, int ways) {
+        if (ways <= 0) {
+            throw new IllegalArgumentException("ways must be positive");
+        }
+        var lists = new ArrayList<LinkedList<Integer>>(ways);
+        for (int w = 0; w < ways; w++) {
+            lists.add(new LinkedList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            for (LinkedList<Integer> list : lists) {
+                list.add(i);
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * Builds a {@link LinkedList} whose values were boxed in a random order
+     * before being appended, so following {@code node.item} jumps around the heap.
+     *
+     * @param size the number of elements
+     * @param seed the random seed, for reproducible layouts
+     * @return a list containing {@code 0, 1, ..., size-1}
+     */
+    public static LinkedList<Integer> shuffledBoxLinkedList(int size, long seed) {
+        int[] order = shuffledIndices(size, seed);
+        Integer[] boxes = new Integer[size];
+        for (int index : order) {
+            boxes[index] = Integer.valueOf(index); // allocates a new box above 127
+        }
+        var list = new LinkedList<Integer>();
+        for (Integer box : boxes) {
+            list.add(box);
+        }
+        return list;
+    }
+
+    /**
+     * Builds an {@link UnrolledLinkedList} in allocation order.
+     *
+     * @param size          the number of elements
+     * @param chunkCapacity the number of elements per chunk
+     * @return a queue containing {@code 0, 1, ..., size-1}
+     */
+    public static UnrolledLinkedList<Integer> unrolledLinkedList(int size, int chunkCapacity) {
+        var queue = new UnrolledLinkedList<Integer>(chunkCapacity);
+        for (int i = 0; i < size; i++) {
+            queue.add(i);
+        }
+        return queue;
+    }
+
+    /**
+     * Builds a singly linked chain of primitive nodes, linked either in
+     * allocation order or in a random order.
+     *
+     * @param size     the number of nodes
+     * @param shuffled {@code true} to link the nodes in random order
+     * @param seed     the random seed used when {@code shuffled} is true
+     * @return the chain, holding the values {@code 0, 1, ..., size-1}
+     */
+    public static IntChain intChain(int size, boolean shuffled, long seed) {
+        var nodes = new IntChain.Node[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new IntChain.Node(i);
+        }
+        int[] order = shuffled ? shuffledIndices(size, seed) : null;
+        IntChain.Node first = null;
+        IntChain.Node previous = null;
+        for (int i = 0; i < size; i++) {
+            IntChain.Node node = nodes[order == null ? i : order[i]];
+            if (previous == null) {
+                first = node;
+            } else {
+                previous.next = node;
+            }
+            previous = node;
+        }
+        return new IntChain(first, nodes);
+    }
+
+    /**
+     * Sums the elements of any iterable by following its iterator, the access
+     * pattern that is sensitive to the memory layout.
+     *
+     * @param values the values to sum
+     * @return the sum
+     */
+    public static long sum(Iterable<Integer> values) {
+        long sum = 0;
+        for (Integer value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static int[] shuffledIndices(int size, long seed) {
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = i;
+        }
+        var random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indices[i];
+            indices[i] = indices[j];
+            indices[j] = swap;
+        }
+        return indices;
+    }
+
+    /**
+     * A minimal singly linked chain of {@code int} values, used to isolate the
+     * cost of pointer chasing from boxing and {@code LinkedList} bookkeeping.
+     *
+     * @param first          the first node of the chain, or {@code null} if empty
+     * @param allocationOrder the nodes in the order they were allocated, kept
+     *                        reachable so the collector copies them in that order
+     */
+    public record IntChain(Node first, Node[] allocationOrder) {
+
+        /**
+         * Follows the chain from the first node and sums every value.
+         *
+         * @return the sum of all values
+         */
+        public long sum() {
+            long sum = 0;
+            for (Node node = first; node != null; node = node.next) {
+                sum += node.value;
+            }
+            return sum;
+        }
+
+        /**
+         * A chain node: one {@code int} and one reference.
+         */
+        public static final class Node {
+            final int value;
+            Node next;
+
+            Node(int value) {
+                this.value = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * A log-linear histogram of latencies, in the style of HdrHistogram.
+ *
+ * <p>Total elapsed time hides <em>tail latency</em>: a loop of a million calls
+ * can look fast on average while a handful of calls (an {@code ArrayList}
+ * resize, a GC pause, a {@code LinkedList.get(i)} deep into the list) take a
+ * thousand times longer. Recording every call in a histogram and reading its
+ * percentiles (p50, p99, p99.9, max) makes those outliers visible.</p>
+ *
+ * <h2>Bucket layout</h2>
+ * <p>Values below {@code 2^precisionBits} get one bucket each (exact). Above
+ * that, every power of two is split into {@code 2^(precisionBits-1)} linear
+ * sub-buckets, so the relative error of any reported value is at most
+ * {@code 1 / 2^(precisionBits-1)} — about 1.6 % with the default of 7 bits —
+ * whatever the magnitude, from nanoseconds to hours.</p>
+ *
+ * <h2>Recording cost</h2>
+ * <p>All buckets are allocated up front. {@link #record(long)} only computes an
+ * index with a few bit operations and increments a {@code long}: it never
+ * allocates, so it does not disturb the GC behaviour being measured. The class
+ * is not thread-safe: give each thread its own histogram and
+ * {@link #add(LatencyHistogram) add} them together at the end.</p>
+ */
+public class LatencyHistogram {
+
+    /** The default precision: 64 linear sub-buckets per power of two. */
+    public static final int DEFAULT_PRECISION_BITS = 7;
+
+    private final int precisionBits;
+    private final int halfCount;
+    private final long[] counts;
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    /**
+     * Creates a histogram with {@link #DEFAULT_PRECISION_BITS} bits of precision.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_PRECISION_BITS);
+    }
+
+    /**
+     * Creates a histogram with the given precision.
+     *
+     * @param precisionBits the number of significant bits kept per value (2 to 16)
+     * @throws IllegalArgumentException if {@code precisionBits} is out of range
+     */
+    public LatencyHistogram(int precisionBits) {
+        if (precisionBits < 2 || precisionBits > 16) {
+            throw new IllegalArgumentException("precisionBits must be between 2 and 16");
+        }
+        this.precisionBits = precisionBits;
+        this.halfCount = 1 << (precisionBits - 1);
+        int maxShift = 63 - (precisionBits - 1);
+        this.counts = new long[(maxShift + 2) * halfCount];
+    }
+
+    /**
+     * Records one value.
+     *
+     * @param value the value to record, typically a duration in nanoseconds
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, as returned by
+     * {@link System#nanoTime()}.
+     *
+     * @param startNanos the start timestamp
+     */
+    public void recordSince(long startNanos) {
+        record(Math.max(0, System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Returns the value at the given percentile: the smallest recorded value
+     * such that {@code percentile} % of all values are less than or equal to it
+     * (within the histogram precision).
+     *
+     * @param percentile a percentile between 0 and 100 (e.g. {@code 99.9})
+     * @return the value at that percentile, or 0 if the histogram is empty
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+        // The small epsilon keeps floating-point noise (99.9 / 100 * 1000 = 999.0000000000001)
+        // from pushing the rank one value too far
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount - 1e-9));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.clamp(highestValueAt(i), min, max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Adds every value recorded in {@code other} to this histogram.
+     *
+     * @param other a histogram with the same precision
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void add(LatencyHistogram other) {
+        if (other.precisionBits != precisionBits) {
+            throw new IllegalArgumentException("cannot add histograms with different precisions");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every recorded value, keeping the allocated buckets.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /** @return the number of recorded values */
+    public long count() {
+        return totalCount;
+    }
+
+    /** @return the smallest recorded value, or 0 if empty */
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /** @return the largest recorded value, or 0 if empty */
+    public long max() {
+        return max;
+    }
+
+    /** @return the mean of the recorded values, or 0 if empty */
+    public double mean() {
+        return totalCount == 0 ? 0 : sum / totalCount;
+    }
+
+    /**
+     * Prints a one-line summary: count, mean, p50, p99, p99.9 and max.
+     *
+     * @param label a label printed in front of the figures
+     * @param out   the destination, typically {@code System.out}
+     */
+    public void printSummary(String label, PrintStream out) {
+        out.println(summary(label));
+    }
+
+    /**
+     * Formats the same one-line summary as {@link #printSummary(String, PrintStream)}.
+     *
+     * @param label a label printed in front of the figures
+     * @return the formatted summary
+     */
+    public String summary(String label) {
+        return String.format("  %-28s n=%,-11d mean %,9.0f ns  p50 %,9d ns  p99 %,10d ns  p99.9 %,11d ns  max %,12d ns",
+                label, totalCount, mean(), percentile(50), percentile(99), percentile(99.9), max);
+    }
+
+    private int indexOf(long value) {
+        if (value < 2L * halfCount) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (precisionBits - 1);
+        return shift * halfCount + (int) (value >>> shift);
+    }
+
+    private long highestValueAt(int index) {
+        if (index < 2 * halfCount) {
+            return index;
+        }
+        int shift = index / halfCount - 1;
+        long mantissa = index - (long) shift * halfCount;
+        long upper = (mantissa + 1) << shift;
+        return upper <= 0 ? Long.MAX_VALUE : upper - 1;
+    }
+}
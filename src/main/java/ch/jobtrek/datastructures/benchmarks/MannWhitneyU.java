@@ -0,0 +1,96 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * One-sided Mann-Whitney U test (also called the Wilcoxon rank-sum test).
+ *
+ * <p>Benchmark samples are rarely normally distributed: a GC pause or a
+ * background process produces a few slow outliers, which breaks a t-test.
+ * The Mann-Whitney test only looks at the <em>ranks</em> of the samples, so a
+ * single outlier cannot dominate the result.</p>
+ *
+ * <p>The p-value is computed with the normal approximation, including the
+ * tie correction and a continuity correction. This is accurate enough from
+ * about 5 samples per side, which matches the iteration counts we use.</p>
+ */
+public final class MannWhitneyU {
+
+    private MannWhitneyU() {
+    }
+
+    /**
+     * Returns the p-value for the hypothesis "values in {@code current} tend to
+     * be <strong>smaller</strong> than values in {@code baseline}".
+     *
+     * <p>A small p-value (e.g. below 0.05) means the current samples are
+     * significantly lower. For throughput samples, that is a regression.</p>
+     *
+     * @param current  the new samples
+     * @param baseline the reference samples
+     * @return a p-value between 0 and 1
+     * @throws IllegalArgumentException if either array is empty
+     */
+    public static double pValueLess(double[] current, double[] baseline) {
+        int n1 = current.length;
+        int n2 = baseline.length;
+        if (n1 == 0 || n2 == 0) {
+            throw new IllegalArgumentException("both samples must contain at least one value");
+        }
+
+        // Rank the pooled samples, giving tied values the average of their ranks
+        int n = n1 + n2;
+        double[] pooled = new double[n];
+        System.arraycopy(current, 0, pooled, 0, n1);
+        System.arraycopy(baseline, 0, pooled, n1, n2);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(pooled[a], pooled[b]));
+
+        double[] ranks = new double[n];
+        double tieTerm = 0;
+        int i = 0;
+        while (i < n) {
+            int j = i;
+            while (j + 1 < n && pooled[order[j + 1]] == pooled[order[i]]) {
+                j++;
+            }
+            double averageRank = (i + j + 2) / 2.0;
+            for (int k = i; k <= j; k++) {
+                ranks[order[k]] = averageRank;
+            }
+            double t = j - i + 1;
+            tieTerm += t * t * t - t;
+            i = j + 1;
+        }
+
+        double rankSum = 0;
+        for (int k = 0; k < n1; k++) {
+            rankSum += ranks[k];
+        }
+        double u = rankSum - n1 * (n1 + 1) / 2.0;
+        double mean = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((n + 1) - tieTerm / (n * (double) (n - 1)));
+        if (variance <= 0) {
+            // Every value is identical: there is no evidence of any difference
+            return 1.0;
+        }
+        double z = (u - mean + 0.5) / Math.sqrt(variance);
+        return normalCdf(z);
+    }
+
+    /**
+     * Standard normal cumulative distribution function, using the
+     * Abramowitz-Stegun approximation of {@code erf} (error below 1.5e-7).
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429))));
+        double erf = 1 - poly * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+}
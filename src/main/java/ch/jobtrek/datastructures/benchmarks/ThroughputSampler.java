@@ -0,0 +1,52 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Measures the throughput of a piece of code over several iterations, in the
+ * spirit of a JMH "iteration": a few un-recorded warm-up rounds give the JIT
+ * compiler time to optimise the code, then each measured round produces one
+ * throughput sample.
+ *
+ * <p>The measured body must return a {@code long} derived from its work (a sum,
+ * a size, a hit count...). The sampler folds it into a field that the JIT
+ * cannot prove unused, which prevents it from eliminating the benchmark as
+ * dead code.</p>
+ */
+public final class ThroughputSampler {
+
+    private static volatile long sink;
+
+    private ThroughputSampler() {
+    }
+
+    /**
+     * Runs {@code body} repeatedly and returns one throughput sample per
+     * measured iteration.
+     *
+     * @param warmupIterations      iterations to run before measuring
+     * @param measurementIterations iterations to measure (one sample each)
+     * @param operationsPerCall     how many logical operations one call of {@code body} performs
+     * @param body                  the code to measure; returns a value depending on its work
+     * @return the throughput of each measured iteration, in operations per second
+     */
+    public static double[] sample(int warmupIterations, int measurementIterations,
+                                  long operationsPerCall, LongSupplier body) {
+        if (warmupIterations < 0 || measurementIterations <= 0 || operationsPerCall <= 0) {
+            throw new IllegalArgumentException("iteration and operation counts must be positive");
+        }
+        long blackhole = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            blackhole += body.getAsLong();
+        }
+        double[] samples = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            long start = System.nanoTime();
+            blackhole += body.getAsLong();
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            samples[i] = operationsPerCall * 1e9 / elapsed;
+        }
+        sink += blackhole;
+        return samples;
+    }
+}
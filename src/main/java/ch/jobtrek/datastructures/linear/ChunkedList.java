@@ -0,0 +1,205 @@
+package ch.jobtrek.datastructures.linear;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A growable list stored as a sequence of array <em>chunks</em>, which never
+ * copies existing elements when it grows.
+ *
+ * <p>When an {@link java.util.ArrayList} is full, it allocates an array about
+ * 1.5× larger and copies every element into it. Appending 10 million elements
+ * therefore triggers dozens of ever larger copies, leaves the old arrays as
+ * garbage, and makes a few unlucky {@code add()} calls very slow. This list
+ * instead adds a new chunk when the last one is full; elements already stored
+ * never move. Only the small <em>spine</em> (the array of chunk references) is
+ * ever copied.</p>
+ *
+ * <p>Indexed access stays O(1): the chunk and the offset of an index are
+ * computed with a shift and a mask, because chunk sizes are powers of two.
+ * Two {@link GrowthPolicy growth policies} are available:</p>
+ * <ul>
+ *   <li>{@link GrowthPolicy#FIXED}: every chunk has the same size. Memory
+ *       overhead is at most one chunk, but the spine grows with the list.</li>
+ *   <li>{@link GrowthPolicy#DOUBLING}: each chunk is twice as large as the
+ *       previous one. The spine stays tiny (about 30 chunks for a billion
+ *       elements) at the cost of up to 50 % unused capacity in the last chunk.</li>
+ * </ul>
+ *
+ * <p>Appending, {@code get} and {@code set} are O(1). Inserting or removing in
+ * the middle shifts the following elements, in O(n), as with {@code ArrayList}.
+ * This class is not thread-safe; its iterators are fail-fast.</p>
+ *
+ * @param <E> the type of elements in this list
+ */
+public class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+
+    /**
+     * How the size of each new chunk is chosen.
+     */
+    public enum GrowthPolicy {
+        /** Every chunk has the same size. */
+        FIXED,
+        /** Each chunk is twice as large as the previous one. */
+        DOUBLING
+    }
+
+    /** The default size of the first chunk (and of every chunk with {@link GrowthPolicy#FIXED}). */
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final GrowthPolicy policy;
+    private final int chunkBits;
+    private Object[][] chunks;
+    private int chunkCount;
+    private int capacity;
+    private int size;
+
+    /**
+     * Creates an empty list with doubling chunks, starting at
+     * {@link #DEFAULT_CHUNK_SIZE} elements.
+     */
+    public ChunkedList() {
+        this(GrowthPolicy.DOUBLING, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an empty list with the given growth policy.
+     *
+     * @param policy    the growth policy
+     * @param chunkSize the size of the first chunk; must be a power of two between 1 and 2^30
+     * @throws IllegalArgumentException if {@code chunkSize} is not a power of two
+     */
+    public ChunkedList(GrowthPolicy policy, int chunkSize) {
+        this.policy = Objects.requireNonNull(policy, "policy must not be null");
+        if (chunkSize <= 0 || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("chunkSize must be a positive power of two");
+        }
+        this.chunkBits = Integer.numberOfTrailingZeros(chunkSize);
+        this.chunks = new Object[8][];
+    }
+
+    /**
+     * Returns the growth policy of this list.
+     *
+     * @return the growth policy
+     */
+    public GrowthPolicy growthPolicy() {
+        return policy;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return elementAt(index);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size);
+        E previous = elementAt(index);
+        store(index, element);
+        return previous;
+    }
+
+    @Override
+    public boolean add(E element) {
+        if (size == capacity) {
+            addChunk();
+        }
+        store(size++, element);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        Objects.checkIndex(index, size + 1);
+        add(element);
+        for (int i = size - 1; i > index; i--) {
+            store(i, elementAt(i - 1));
+        }
+        store(index, element);
+    }
+
+    @Override
+    public E remove(int index) {
+        Objects.checkIndex(index, size);
+        E removed = elementAt(index);
+        for (int i = index; i < size - 1; i++) {
+            store(i, elementAt(i + 1));
+        }
+        store(--size, null);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(chunks, null);
+        chunkCount = 0;
+        capacity = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Allocates chunks up front so that the list can hold at least
+     * {@code minCapacity} elements without allocating again.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        while (capacity < minCapacity) {
+            addChunk();
+        }
+    }
+
+    /**
+     * Returns the number of elements the allocated chunks can hold.
+     *
+     * @return the current capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    private void addChunk() {
+        int chunkSize = policy == GrowthPolicy.FIXED ? 1 << chunkBits : 1 << (chunkBits + chunkCount);
+        if (chunkSize <= 0 || capacity > Integer.MAX_VALUE - chunkSize) {
+            throw new OutOfMemoryError("ChunkedList cannot grow beyond Integer.MAX_VALUE elements");
+        }
+        if (chunkCount == chunks.length) {
+            // Only the spine is copied: chunk references, never the elements themselves
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        chunks[chunkCount++] = new Object[chunkSize];
+        capacity += chunkSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        if (policy == GrowthPolicy.FIXED) {
+            return (E) chunks[index >>> chunkBits][index & ((1 << chunkBits) - 1)];
+        }
+        long shifted = index + (1L << chunkBits);
+        int high = 63 - Long.numberOfLeadingZeros(shifted);
+        return (E) chunks[high - chunkBits][(int) (shifted - (1L << high))];
+    }
+
+    private void store(int index, Object element) {
+        if (policy == GrowthPolicy.FIXED) {
+            chunks[index >>> chunkBits][index & ((1 << chunkBits) - 1)] = element;
+            return;
+        }
+        long shifted = index + (1L << chunkBits);
+        int high = 63 - Long.numberOfLeadingZeros(shifted);
+        chunks[high - chunkBits][(int) (shifted - (1L << high))] = element;
+    }
+}
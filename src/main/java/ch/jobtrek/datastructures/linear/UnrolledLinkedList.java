@@ -0,0 +1,204 @@
+package ch.jobtrek.datastructures.linear;
+
+import java.util.AbstractQueue;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A FIFO queue stored as an <strong>unrolled linked list</strong>: a chain of
+ * fixed-size array chunks instead of one node per element.
+ *
+ * <p>A {@link java.util.LinkedList} allocates a 24+ byte {@code Node} for every
+ * element, and each step of an iteration follows a pointer to wherever that
+ * node was allocated. This class stores up to {@code chunkCapacity} element
+ * references side by side in one array, so:</p>
+ * <ul>
+ *   <li>iteration follows a pointer only once per chunk, and the references
+ *       inside a chunk are contiguous (cache-friendly);</li>
+ *   <li>the per-element overhead drops to one array slot, plus one small
+ *       {@code Chunk} header per {@code chunkCapacity} elements;</li>
+ *   <li>like a linked list, it never copies existing elements when it grows.</li>
+ * </ul>
+ *
+ * <p>It is designed for queue-like workloads: {@link #offer(Object)} appends at
+ * the tail and {@link #poll()} removes from the head, both in O(1). One drained
+ * chunk is kept as a spare, so a queue that oscillates around a chunk boundary
+ * does not allocate a new array on every wrap.</p>
+ *
+ * <p>Null elements are not permitted (as in {@link java.util.ArrayDeque}),
+ * because {@code poll()} uses {@code null} to signal an empty queue. This class
+ * is not thread-safe, and its iterator is fail-fast.</p>
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public class UnrolledLinkedList<E> extends AbstractQueue<E> {
+
+    /** The default number of elements per chunk: 64 references fit in a few cache lines. */
+    public static final int DEFAULT_CHUNK_CAPACITY = 64;
+
+    private final int chunkCapacity;
+    private Chunk head;
+    private Chunk tail;
+    private Chunk spare;
+    private int size;
+    private int modCount;
+
+    /**
+     * Creates an empty queue with {@link #DEFAULT_CHUNK_CAPACITY} elements per chunk.
+     */
+    public UnrolledLinkedList() {
+        this(DEFAULT_CHUNK_CAPACITY);
+    }
+
+    /**
+     * Creates an empty queue with the given chunk capacity.
+     *
+     * @param chunkCapacity the number of elements stored per chunk (must be &gt; 0)
+     * @throws IllegalArgumentException if {@code chunkCapacity} is not positive
+     */
+    public UnrolledLinkedList(int chunkCapacity) {
+        if (chunkCapacity <= 0) {
+            throw new IllegalArgumentException("chunkCapacity must be positive");
+        }
+        this.chunkCapacity = chunkCapacity;
+        this.head = new Chunk(chunkCapacity);
+        this.tail = head;
+    }
+
+    /**
+     * Appends an element at the tail of the queue.
+     *
+     * @param element the element to add
+     * @return always {@code true}
+     * @throws NullPointerException if {@code element} is null
+     */
+    @Override
+    public boolean offer(E element) {
+        Objects.requireNonNull(element, "element must not be null");
+        if (tail.end == chunkCapacity) {
+            Chunk next = spare != null ? spare : new Chunk(chunkCapacity);
+            spare = null;
+            tail.next = next;
+            tail = next;
+        }
+        tail.items[tail.end++] = element;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes and returns the element at the head of the queue.
+     *
+     * @return the head element, or {@code null} if the queue is empty
+     */
+    @Override
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+        Chunk chunk = head;
+        E element = chunk.get(chunk.start);
+        chunk.items[chunk.start++] = null;
+        size--;
+        modCount++;
+        if (chunk.start == chunk.end) {
+            if (chunk.next != null) {
+                head = chunk.next;
+                chunk.next = null;
+                chunk.start = 0;
+                chunk.end = 0;
+                spare = chunk;
+            } else {
+                // The only chunk is now empty: rewind it instead of allocating
+                chunk.start = 0;
+                chunk.end = 0;
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Returns, without removing, the element at the head of the queue.
+     *
+     * @return the head element, or {@code null} if the queue is empty
+     */
+    @Override
+    public E peek() {
+        return size == 0 ? null : head.get(head.start);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        head = new Chunk(chunkCapacity);
+        tail = head;
+        spare = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns an iterator from head to tail. The iterator does not support
+     * {@link Iterator#remove()}: removing from the middle of a chunk would
+     * require shifting its elements, which this queue is designed to avoid.
+     *
+     * @return a fail-fast iterator over the elements in FIFO order
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private Chunk chunk = head;
+            private int index = head.start;
+            private int remaining = size;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public E next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                if (index == chunk.end) {
+                    chunk = chunk.next;
+                    index = chunk.start;
+                }
+                remaining--;
+                return chunk.get(index++);
+            }
+        };
+    }
+
+    /**
+     * A fixed-size block of element references. Live elements occupy the
+     * range {@code [start, end)}.
+     */
+    private static final class Chunk {
+        final Object[] items;
+        int start;
+        int end;
+        Chunk next;
+
+        Chunk(int capacity) {
+            this.items = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        <E> E get(int index) {
+            return (E) items[index];
+        }
+    }
+}
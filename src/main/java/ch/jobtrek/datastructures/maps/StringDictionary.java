@@ -0,0 +1,439 @@
+package ch.jobtrek.datastructures.maps;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A thread-safe dictionary encoding: every distinct string gets a dense
+ * {@code int} id, {@code 0, 1, 2, …}, and each id decodes back to one
+ * canonical {@code String} instance. A single thread gets ids in order of
+ * first appearance; concurrent encoders, e.g. a parallel stream, get them in
+ * whichever order their first encodings happen to complete.
+ *
+ * <p>Names and words read from files or the network arrive as a new
+ * {@code String} for every occurrence: a million occurrences of "Alice" are a
+ * million 48-byte objects, and every {@code HashMap} lookup hashes and compares
+ * their characters. Once encoded, an occurrence is a 4-byte {@code int}:</p>
+ * <ul>
+ *   <li>counting is {@code counts[id]++} in a {@code long[]}, grouping is
+ *       indexing an array by id — no hashing, no boxing, no {@code equals()};</li>
+ *   <li>strings are decoded only at the output, once per distinct value, with
+ *       {@link #decode(int)};</li>
+ *   <li>{@link #intern(String)} replaces duplicates by the canonical instance,
+ *       so the copies can be garbage collected.</li>
+ * </ul>
+ *
+ * <h2>Concurrency</h2>
+ * <p>The intern table is split into <em>stripes</em>, as in
+ * {@link ch.jobtrek.datastructures.sets.StripedLockSet}: a string only locks
+ * the stripe its hash falls into, and a lookup of a known string — by far the
+ * most frequent case — is an optimistic read that writes nothing to shared
+ * memory. Each stripe is an open-addressing table of parallel arrays, like
+ * {@link WordCountMap}, mapping strings to ids. Ids come from one atomic
+ * counter, so they stay dense whichever threads encode; the reverse table is a
+ * list of fixed-size pages, which never move once allocated.</p>
+ *
+ * <p>An id can be decoded by any thread that obtained it from
+ * {@link #encode(String)}, or received it through any other synchronisation
+ * (a joined thread, a concurrent collection, a completed future). Strings can
+ * not be removed. Null strings are not permitted.</p>
+ */
+public final class StringDictionary {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_STRIPES = 256;
+
+    private final Stripe[] stripes;
+    private final StampedLock[] locks;
+    private final int mask;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Object pagesLock = new Object();
+    private volatile String[][] pages = new String[16][];
+
+    /**
+     * Creates an empty dictionary with four stripes per available processor
+     * (rounded up to a power of two), but at most 256.
+     */
+    public StringDictionary() {
+        this(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /**
+     * Creates an empty dictionary with at least {@code stripeCount} stripes.
+     *
+     * @param stripeCount the minimum number of stripes (rounded up to a power of two)
+     * @throws IllegalArgumentException if {@code stripeCount} is not between 1 and 256
+     */
+    public StringDictionary(int stripeCount) {
+        if (stripeCount <= 0 || stripeCount > MAX_STRIPES) {
+            throw new IllegalArgumentException("stripeCount must be between 1 and " + MAX_STRIPES);
+        }
+        int count = Math.max(1, Integer.highestOneBit(stripeCount - 1) << 1);
+        this.stripes = new Stripe[count];
+        this.locks = new StampedLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+            locks[i] = new StampedLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Returns the id of {@code value}, assigning the next free id if it was
+     * never seen.
+     *
+     * @param value the string to encode
+     * @return its id, between {@code 0} and {@code size() - 1}
+     */
+    public int encode(String value) {
+        Objects.requireNonNull(value, "value must not be null");
+        int hash = mix(value.hashCode());
+        int index = stripeOf(hash);
+        int id = find(index, value, hash);
+        if (id >= 0) {
+            return id;
+        }
+        Stripe stripe = stripes[index];
+        long stamp = locks[index].writeLock();
+        try {
+            id = stripe.get(value, hash);
+            if (id < 0) {
+                id = nextId.getAndIncrement();
+                store(id, value);
+                stripe.put(value, hash, id);
+            }
+            return id;
+        } finally {
+            locks[index].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the id of {@code value} without assigning one.
+     *
+     * @param value the string to look up
+     * @return its id, or {@code -1} if it was never encoded
+     */
+    public int idOf(String value) {
+        Objects.requireNonNull(value, "value must not be null");
+        int hash = mix(value.hashCode());
+        return find(stripeOf(hash), value, hash);
+    }
+
+    /**
+     * Returns the canonical string of an id.
+     *
+     * @param id an id returned by {@link #encode(String)}
+     * @return the first instance encoded with that id
+     * @throws IndexOutOfBoundsException if {@code id} was never assigned
+     */
+    public String decode(int id) {
+        Objects.checkIndex(id, nextId.get());
+        String[] page = pages[id >>> PAGE_BITS];
+        return page[id & (PAGE_SIZE - 1)];
+    }
+
+    /**
+     * Returns the canonical instance equal to {@code value}, encoding it if
+     * needed: equal strings passed through this method share one instance.
+     *
+     * @param value the string to intern
+     * @return the canonical instance
+     */
+    public String intern(String value) {
+        return decode(encode(value));
+    }
+
+    /** @return the number of distinct strings encoded so far */
+    public int size() {
+        return nextId.get();
+    }
+
+    /** @return the number of stripes, always a power of two */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Encodes a stream of strings, lazily. The stream may be parallel: the
+     * dictionary is shared by all its threads.
+     *
+     * @param values the strings to encode
+     * @return their ids, in the same order
+     */
+    public IntStream encodeAll(Stream<String> values) {
+        return values.mapToInt(this::encode);
+    }
+
+    /**
+     * Encodes the names of {@code students}: the dictionary-encoded form of
+     * {@code StreamGatherersExercise.extractNames}.
+     *
+     * @param students the students
+     * @return one id per student, in list order
+     */
+    public int[] encodeNames(List<Student> students) {
+        return encodeAll(students.stream().map(Student::name)).toArray();
+    }
+
+    /**
+     * Counts how many times each id occurs.
+     *
+     * @param ids encoded values of this dictionary
+     * @return an array indexed by id, of length {@code size()}
+     */
+    public long[] count(int[] ids) {
+        long[] counts = new long[size()];
+        for (int id : ids) {
+            counts[id]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Decodes per-id counts, skipping ids that never occurred.
+     *
+     * @param counts an array indexed by id, e.g. from {@link #count(int[])}
+     * @return a new map from each string to its count
+     */
+    public Map<String, Long> decodeCounts(long[] counts) {
+        int nonZero = 0;
+        for (long count : counts) {
+            nonZero += count != 0 ? 1 : 0;
+        }
+        var map = HashMap.<String, Long>newHashMap(nonZero);
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] != 0) {
+                map.put(decode(id), counts[id]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Same result as {@code StreamGatherersExercise.countWordFrequencies}:
+     * encodes the words (in parallel), counts the ids, and decodes each
+     * distinct word once.
+     *
+     * @param words a list of words, potentially with duplicates
+     * @return a map from each unique word to the number of times it appears
+     */
+    public Map<String, Long> countWordFrequencies(List<String> words) {
+        return decodeCounts(count(encodeAll(words.parallelStream()).toArray()));
+    }
+
+    /**
+     * Estimates the heap used by this dictionary: its tables, its pages and
+     * one copy of every distinct string.
+     *
+     * @return an estimate in bytes
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            long stamp = locks[i].readLock();
+            try {
+                // keys (4-byte references), hashes and ids, plus three array headers
+                bytes += 12L * stripes[i].keys.length + 3 * 16;
+            } finally {
+                locks[i].unlockRead(stamp);
+            }
+        }
+        String[][] current = pages;
+        bytes += 16 + 4L * current.length;
+        // Ids are taken before their page and entry are stored: a concurrent
+        // encode() may have counted an id whose page or entry is still null
+        for (String[] page : current) {
+            if (page != null) {
+                bytes += 16 + 4L * PAGE_SIZE;
+                for (String value : page) {
+                    if (value != null) {
+                        bytes += stringBytes(value);
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Compares the heap held by {@code values} as a list of strings with the
+     * heap of the same values as ids plus this dictionary. The list is
+     * measured as it is: its distinct <em>instances</em> are counted, so a list
+     * that already shares instances shows smaller savings.
+     *
+     * @param values strings, all encoded in this dictionary
+     * @return the comparison
+     */
+    public MemoryReport report(List<String> values) {
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        long plain = 16 + 4L * values.size();
+        for (String value : values) {
+            if (instances.add(value)) {
+                plain += stringBytes(value);
+            }
+        }
+        return new MemoryReport(values.size(), instances.size(), size(), plain,
+                16 + 4L * values.size() + memoryBytes());
+    }
+
+    /**
+     * Heap estimates of a list of strings against its dictionary encoding.
+     *
+     * @param values            the number of values
+     * @param distinctInstances the number of distinct {@code String} objects in the list
+     * @param distinctStrings   the number of distinct strings in the dictionary
+     * @param plainBytes        the list: its reference array plus every distinct instance
+     * @param encodedBytes      an {@code int[]} of ids plus the dictionary
+     */
+    public record MemoryReport(int values, int distinctInstances, int distinctStrings,
+                               long plainBytes, long encodedBytes) {
+
+        /** @return {@code plainBytes - encodedBytes}, negative if encoding costs more */
+        public long savedBytes() {
+            return plainBytes - encodedBytes;
+        }
+
+        /** @return a one-line summary */
+        public String summary() {
+            return String.format("%,d values, %,d String instances, %,d distinct: %,d bytes as strings, "
+                            + "%,d bytes encoded (%.1fx smaller)", values, distinctInstances, distinctStrings,
+                    plainBytes, encodedBytes, (double) plainBytes / Math.max(1, encodedBytes));
+        }
+    }
+
+    /**
+     * Estimates the heap of one {@code String} with compressed references and
+     * compact strings: a 24-byte object plus a 16-byte array header and one
+     * byte per character (two if any character is outside Latin-1), padded
+     * to 8 bytes.
+     */
+    static long stringBytes(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        return 24 + ((16L + (long) value.length() * bytesPerChar + 7) & ~7L);
+    }
+
+    private int find(int index, String value, int hash) {
+        StampedLock lock = locks[index];
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int id = stripes[index].get(value, hash);
+                if (lock.validate(stamp)) {
+                    return id;
+                }
+            } catch (RuntimeException racingWriter) {
+                // A writer resized the stripe while we were reading it: retry under the read lock
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return stripes[index].get(value, hash);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void store(int id, String value) {
+        int page = id >>> PAGE_BITS;
+        String[][] current = pages;
+        if (page >= current.length || current[page] == null) {
+            synchronized (pagesLock) {
+                current = pages;
+                if (page >= current.length) {
+                    current = Arrays.copyOf(current, Math.max(page + 1, current.length * 2));
+                }
+                if (current[page] == null) {
+                    current[page] = new String[PAGE_SIZE];
+                }
+                pages = current;
+            }
+        }
+        current[page][id & (PAGE_SIZE - 1)] = value;
+    }
+
+    private int stripeOf(int hash) {
+        // The top bits choose the stripe, the low bits the slot inside it
+        return (hash >>> 24) & mask;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** One open-addressing table of the intern map, guarded by its lock. */
+    private static final class Stripe {
+        String[] keys = new String[16];
+        int[] hashes = new int[16];
+        int[] ids = new int[16];
+        int size;
+
+        int get(String value, int hash) {
+            String[] keys = this.keys;
+            int[] hashes = this.hashes;
+            int[] ids = this.ids;
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && keys[slot].equals(value)) {
+                    return ids[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(String value, int hash, int id) {
+            if (2 * (size + 1) > keys.length) {
+                resize();
+            }
+            insert(keys, hashes, ids, value, hash, id);
+            size++;
+        }
+
+        private void resize() {
+            var newKeys = new String[keys.length * 2];
+            var newHashes = new int[newKeys.length];
+            var newIds = new int[newKeys.length];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    insert(newKeys, newHashes, newIds, keys[i], hashes[i], ids[i]);
+                }
+            }
+            // An optimistic reader may see a mix of old and new arrays: it then
+            // fails validation or trips over a bound, and retries under the lock
+            hashes = newHashes;
+            ids = newIds;
+            keys = newKeys;
+        }
+
+        private static void insert(String[] keys, int[] hashes, int[] ids, String value, int hash, int id) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            ids[slot] = id;
+            keys[slot] = value;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package ch.jobtrek.datastructures.maps;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A word counter fed with raw UTF-8 bytes, which builds a {@code String} only
+ * for the first occurrence of each distinct word.
+ *
+ * <p>The {@code countWordFrequencies} exercises take a {@code List<String>}:
+ * before they run, the text has been decoded to {@code char}s and every word
+ * copied into a {@code String} of its own — millions of short-lived objects
+ * for a few thousand distinct words. This counter reads the bytes of a
+ * {@link ByteBuffer}, typically a memory-mapped file, and does the work in
+ * one pass:</p>
+ * <ol>
+ *   <li>each byte of a word is lower-cased and appended to a reusable scratch
+ *       array, while the word's hash is updated;</li>
+ *   <li>at the end of the word, the hash and the bytes are looked up in an
+ *       open-addressing table whose keys are byte spans of one shared
+ *       {@code byte[]};</li>
+ *   <li>a known word only increments a primitive {@code long}; a new word is
+ *       copied into the shared array and decoded into its {@code String}
+ *       once.</li>
+ * </ol>
+ *
+ * <p>ASCII bytes, by far the most common in text, are classified and
+ * lower-cased with a 128-entry table. Multi-byte sequences are decoded to
+ * their character, which is tested and lower-cased like in
+ * {@link WordCountEngine}: a word is a maximal run of characters for which
+ * {@link Character#isLetterOrDigit(char)} holds, so characters outside the
+ * Basic Multilingual Plane and malformed bytes separate words.</p>
+ *
+ * <p>The counts can be read directly, or {@link #addTo(WordCountMap) fed} into
+ * a {@link WordCountMap}. This class is not thread-safe: give each thread its
+ * own counter.</p>
+ */
+public final class Utf8WordCounter {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** For each ASCII byte, its lower-case form if it is a letter or a digit, 0 for a separator. */
+    private static final byte[] ASCII_WORD_BYTES = new byte[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (Character.isLetterOrDigit(c)) {
+                ASCII_WORD_BYTES[c] = (byte) Character.toLowerCase(c);
+            }
+        }
+    }
+
+    private String[] words;
+    private int[] hashes;
+    private int[] starts;
+    private int[] lengths;
+    private long[] counts;
+    private int size;
+    private long total;
+
+    private byte[] keyBytes;
+    private int keyBytesUsed;
+
+    private byte[] word = new byte[64];
+    private int wordLength;
+    private int wordHash;
+
+    /**
+     * Creates an empty counter.
+     */
+    public Utf8WordCounter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty counter sized for about {@code expectedWords} distinct words.
+     *
+     * @param expectedWords the expected number of distinct words
+     * @throws IllegalArgumentException if {@code expectedWords} is negative or
+     *                                  above {@code 2^29}, which would not fit in one table
+     */
+    public Utf8WordCounter(int expectedWords) {
+        allocate(WordCountMap.tableSizeFor(expectedWords));
+        keyBytes = new byte[Math.max(256, Math.min(expectedWords, 1 << 20) * 8)];
+    }
+
+    /**
+     * Counts the words of the bytes between the position and the limit of
+     * {@code bytes}, and moves its position to the limit.
+     *
+     * <p>The buffer is taken as a complete piece of text: a word that reaches
+     * the limit ends there, and an incomplete multi-byte sequence at the end is
+     * treated as a separator. Split larger inputs on an ASCII separator byte,
+     * as {@link WordCountEngine#countFile} does whenever one is near.</p>
+     *
+     * @param bytes UTF-8 text, e.g. a memory-mapped file region
+     */
+    public void feed(ByteBuffer bytes) {
+        Objects.requireNonNull(bytes, "bytes must not be null");
+        int end = bytes.limit();
+        int i = bytes.position();
+        while (i < end) {
+            byte b = bytes.get(i);
+            if (b >= 0) {
+                byte folded = ASCII_WORD_BYTES[b];
+                if (folded != 0) {
+                    append(folded);
+                } else {
+                    endWord();
+                }
+                i++;
+            } else {
+                i = multiByte(bytes, i, end);
+            }
+        }
+        endWord();
+        bytes.position(end);
+    }
+
+    /**
+     * Returns the count of {@code word}.
+     *
+     * @param word the word to look up, in lower case
+     * @return its count, or 0 if it never occurred
+     */
+    public long get(String word) {
+        if (word == null) {
+            return 0;
+        }
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int hash = 0;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        int slot = find(key, key.length, mix(hash));
+        return words[slot] == null ? 0 : counts[slot];
+    }
+
+    /**
+     * Adds every count of this counter to {@code target}.
+     *
+     * @param target the map to count into
+     */
+    public void addTo(WordCountMap target) {
+        Objects.requireNonNull(target, "target must not be null");
+        forEach(target::add);
+    }
+
+    /**
+     * Copies the counts into a new {@link WordCountMap}.
+     *
+     * @return a map holding the same counts
+     */
+    public WordCountMap toWordCountMap() {
+        var map = new WordCountMap(size);
+        addTo(map);
+        return map;
+    }
+
+    /**
+     * Copies the counts into a {@link HashMap}, the return type of the
+     * {@code countWordFrequencies} exercises.
+     *
+     * @return a new map from each word to its count
+     */
+    public HashMap<String, Long> toMap() {
+        var map = HashMap.<String, Long>newHashMap(size);
+        forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Calls {@code action} once per distinct word, in no particular order.
+     *
+     * @param action receives each word and its count
+     */
+    public void forEach(ObjLongConsumer<String> action) {
+        for (int slot = 0; slot < words.length; slot++) {
+            if (words[slot] != null) {
+                action.accept(words[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct words.
+     *
+     * @return the number of distinct words, i.e. of {@code String}s created
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sum of all counts, i.e. the number of words read.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return total;
+    }
+
+    private void append(byte b) {
+        if (wordLength == word.length) {
+            word = Arrays.copyOf(word, wordLength * 2);
+        }
+        word[wordLength++] = b;
+        wordHash = 31 * wordHash + b;
+    }
+
+    /**
+     * Decodes the sequence starting with the non-ASCII byte at {@code i}, and
+     * returns the index of the byte after it.
+     */
+    private int multiByte(ByteBuffer bytes, int i, int end) {
+        int lead = bytes.get(i) & 0xFF;
+        int c;
+        int length;
+        if (lead >= 0xC2 && lead <= 0xDF && i + 1 < end && isContinuation(bytes.get(i + 1))) {
+            c = (lead & 0x1F) << 6 | bytes.get(i + 1) & 0x3F;
+            length = 2;
+        } else if (lead >= 0xE0 && lead <= 0xEF && i + 2 < end && isValidSecond(lead, bytes.get(i + 1))
+                && isContinuation(bytes.get(i + 2))) {
+            c = (lead & 0x0F) << 12 | (bytes.get(i + 1) & 0x3F) << 6 | bytes.get(i + 2) & 0x3F;
+            length = 3;
+        } else if (lead >= 0xF0 && lead <= 0xF4 && i + 3 < end && isValidSecond(lead, bytes.get(i + 1))
+                && isContinuation(bytes.get(i + 2)) && isContinuation(bytes.get(i + 3))) {
+            // A supplementary character decodes to two surrogates, neither a letter nor a digit
+            endWord();
+            return i + 4;
+        } else {
+            // Malformed: this byte alone becomes U+FFFD, a separator, and decoding resumes after it
+            endWord();
+            return i + 1;
+        }
+        char ch = (char) c;
+        if (Character.isLetterOrDigit(ch)) {
+            appendChar(Character.toLowerCase(ch));
+        } else {
+            endWord();
+        }
+        return i + length;
+    }
+
+    /** Appends the UTF-8 encoding of {@code c}, which may be ASCII once lower-cased. */
+    private void appendChar(char c) {
+        if (c < 0x80) {
+            append((byte) c);
+        } else if (c < 0x800) {
+            append((byte) (0xC0 | c >> 6));
+            append((byte) (0x80 | c & 0x3F));
+        } else {
+            append((byte) (0xE0 | c >> 12));
+            append((byte) (0x80 | c >> 6 & 0x3F));
+            append((byte) (0x80 | c & 0x3F));
+        }
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    /** Rejects overlong forms, surrogates and code points above U+10FFFF, like the JDK decoder. */
+    private static boolean isValidSecond(int lead, byte second) {
+        int b = second & 0xFF;
+        return switch (lead) {
+            case 0xE0 -> b >= 0xA0 && b <= 0xBF;
+            case 0xED -> b >= 0x80 && b <= 0x9F;
+            case 0xF0 -> b >= 0x90 && b <= 0xBF;
+            case 0xF4 -> b >= 0x80 && b <= 0x8F;
+            default -> isContinuation(second);
+        };
+    }
+
+    private void endWord() {
+        if (wordLength == 0) {
+            return;
+        }
+        int hash = mix(wordHash);
+        int slot = find(word, wordLength, hash);
+        if (words[slot] != null) {
+            counts[slot]++;
+        } else {
+            insert(slot, hash);
+        }
+        total++;
+        wordLength = 0;
+        wordHash = 0;
+    }
+
+    /** @return the slot holding {@code key}, or the empty slot where it belongs */
+    private int find(byte[] key, int length, int hash) {
+        int mask = words.length - 1;
+        int slot = hash & mask;
+        while (words[slot] != null) {
+            if (hashes[slot] == hash && lengths[slot] == length
+                    && Arrays.equals(keyBytes, starts[slot], starts[slot] + length, key, 0, length)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, int hash) {
+        if (keyBytesUsed + wordLength > keyBytes.length) {
+            keyBytes = Arrays.copyOf(keyBytes, Math.max(keyBytes.length * 2, keyBytesUsed + wordLength));
+        }
+        System.arraycopy(word, 0, keyBytes, keyBytesUsed, wordLength);
+        words[slot] = new String(word, 0, wordLength, StandardCharsets.UTF_8);
+        hashes[slot] = hash;
+        starts[slot] = keyBytesUsed;
+        lengths[slot] = wordLength;
+        counts[slot] = 1;
+        keyBytesUsed += wordLength;
+        if (++size * 2 > words.length) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        int[] oldStarts = starts;
+        int[] oldLengths = lengths;
+        long[] oldCounts = counts;
+        if (oldWords.length == WordCountMap.MAX_CAPACITY) {
+            throw new IllegalStateException(
+                    "A word counter holds at most " + WordCountMap.MAX_CAPACITY / 2 + " words");
+        }
+        allocate(oldWords.length * 2);
+        int mask = words.length - 1;
+        for (int i = 0; i < oldWords.length; i++) {
+            if (oldWords[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (words[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                words[slot] = oldWords[i];
+                hashes[slot] = oldHashes[i];
+                starts[slot] = oldStarts[i];
+                lengths[slot] = oldLengths[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        words = new String[capacity];
+        hashes = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        counts = new long[capacity];
+    }
+
+    private static int mix(int hash) {
+        // Spread the bits so that similar words do not land in neighbouring slots
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,236 @@
+package ch.jobtrek.datastructures.maps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts word frequencies on several cores, from an in-memory list or
+ * straight from a (possibly multi-gigabyte) UTF-8 text file.
+ *
+ * <p>The {@code countWordFrequencies} exercises run on one thread and update
+ * a {@code HashMap} of boxed counters. This engine shards the work instead:</p>
+ * <ol>
+ *   <li>the input is cut into chunks, and each worker thread repeatedly takes
+ *       the next chunk;</li>
+ *   <li>every worker counts into its <em>own</em> {@link WordCountMap}, so the
+ *       hot loop needs no lock and no atomic operation;</li>
+ *   <li>the per-worker maps are merged once, at the end.</li>
+ * </ol>
+ *
+ * <p>Files are read through memory-mapped chunks of at most
+ * {@value #MAX_CHUNK_BYTES} bytes: the operating system pages the file in on
+ * demand, nothing is copied into a {@code byte[]}, and files larger than the
+ * heap can be counted. Chunk boundaries are moved forward to an ASCII
+ * separator byte, which can never be part of a UTF-8 multi-byte sequence, so
+ * no word or character is split between two workers. The search stops after
+ * half a chunk: text without ASCII separators (CJK with full-width
+ * punctuation, a long base64 line) is then cut at the next character
+ * boundary instead, which may split one word in two but keeps every chunk
+ * within the limit. Each worker scans
+ * its chunks with a {@link Utf8WordCounter}, which works on the bytes and only
+ * decodes the first occurrence of each word into a {@code String}.</p>
+ *
+ * <p>In files, a <em>word</em> is a maximal run of letters or digits
+ * ({@link Character#isLetterOrDigit(char)}). List elements are taken as whole
+ * words, as in {@code MapStructuresExercise.countWordFrequencies}. Both entry
+ * points fold case the same way, one {@code char} at a time with
+ * {@link Character#toLowerCase(char)}, so the same text gives the same keys:
+ * unlike {@code String.toLowerCase}, this never changes a word's length
+ * ("İ" becomes "i", not "i̇").</p>
+ */
+public final class WordCountEngine {
+
+    /** The maximum size of one memory-mapped chunk. */
+    public static final int MAX_CHUNK_BYTES = 64 << 20;
+
+    private static final int PROBE_BYTES = 64 << 10;
+
+    private WordCountEngine() {
+    }
+
+    /**
+     * Counts the lower-cased words of {@code words} with {@code threads} workers.
+     *
+     * @param words   the words, one per element
+     * @param threads the number of worker threads (must be &gt; 0)
+     * @return the merged counts
+     * @throws IllegalArgumentException if {@code threads} is not positive
+     */
+    public static WordCountMap countWords(List<String> words, int threads) {
+        Objects.requireNonNull(words, "words must not be null");
+        requirePositive(threads);
+        int shards = Math.max(1, Math.min(threads, words.size()));
+        try {
+            return runWorkers(shards, shard -> {
+                var counts = new WordCountMap();
+                int from = (int) ((long) words.size() * shard / shards);
+                int to = (int) ((long) words.size() * (shard + 1) / shards);
+                for (String word : words.subList(from, to)) {
+                    counts.increment(foldCase(word));
+                }
+                return counts;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Counts the words of a UTF-8 text file with {@code threads} workers.
+     *
+     * @param file    the file to read
+     * @param threads the number of worker threads (must be &gt; 0)
+     * @return the merged counts
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if {@code threads} is not positive
+     */
+    public static WordCountMap countFile(Path file, int threads) throws IOException {
+        return countFile(file, threads, MAX_CHUNK_BYTES);
+    }
+
+    /** {@link #countFile(Path, int)} with a smaller chunk limit, so that tests can reach it. */
+    static WordCountMap countFile(Path file, int threads, int maxChunkBytes) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        requirePositive(threads);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, threads, maxChunkBytes);
+            var nextChunk = new AtomicInteger();
+            return runWorkers(threads, worker -> {
+                var counter = new Utf8WordCounter();
+                for (int chunk = nextChunk.getAndIncrement(); chunk < bounds.length - 1;
+                     chunk = nextChunk.getAndIncrement()) {
+                    long start = bounds[chunk];
+                    long length = bounds[chunk + 1] - start;
+                    if (length > 0) {
+                        counter.feed(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+                    }
+                }
+                return counter.toWordCountMap();
+            });
+        }
+    }
+
+    /**
+     * Splits the file into chunks: about four per thread, each at most
+     * {@code maxChunkBytes}. Nominal boundaries are at most half a chunk apart,
+     * and each one moves forward by at most half a chunk.
+     */
+    static long[] chunkBounds(FileChannel channel, int threads, int maxChunkBytes) throws IOException {
+        long size = channel.size();
+        long half = Math.max(1, maxChunkBytes / 2);
+        long chunks = Math.max((long) threads * 4, (size + half - 1) / half);
+        chunks = Math.max(1, Math.min(chunks, Math.max(1, size)));
+        long[] bounds = new long[(int) chunks + 1];
+        var probe = ByteBuffer.allocate((int) Math.min(PROBE_BYTES, half));
+        for (int i = 1; i < chunks; i++) {
+            long position = Math.max(bounds[i - 1], size * i / chunks);
+            bounds[i] = nextBoundary(channel, position, Math.min(size, position + half), size, probe);
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+
+    /**
+     * Returns the first ASCII separator in {@code [position, limit)}, or else
+     * the first character boundary at or after {@code position}.
+     */
+    private static long nextBoundary(FileChannel channel, long position, long limit, long size, ByteBuffer probe)
+            throws IOException {
+        for (long from = position; from < limit; ) {
+            probe.clear().limit((int) Math.min(probe.capacity(), limit - from));
+            int read = channel.read(probe, from);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (isSeparator(probe.get(i))) {
+                    return from + i;
+                }
+            }
+            from += read;
+        }
+        if (limit == size) {
+            return size;
+        }
+        // No separator nearby: skip at most three continuation bytes to the start of a character
+        probe.clear().limit((int) Math.min(probe.capacity(), Math.min(4, size - position)));
+        int read = channel.read(probe, position);
+        int skip = 0;
+        while (skip < read && (probe.get(skip) & 0xC0) == 0x80) {
+            skip++;
+        }
+        return position + skip;
+    }
+
+    private static boolean isSeparator(byte b) {
+        // Bytes 0x00-0x7F are complete characters in UTF-8; continuation and lead bytes are negative
+        return b >= 0 && !Character.isLetterOrDigit(b);
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+        WordCountMap run(int worker) throws IOException;
+    }
+
+    private static WordCountMap runWorkers(int workers, Worker worker) throws IOException {
+        var results = new ArrayList<WordCountMap>(workers);
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+            var futures = new ArrayList<Future<WordCountMap>>(workers);
+            for (int w = 0; w < workers; w++) {
+                int id = w;
+                futures.add(executor.submit(() -> worker.run(id)));
+            }
+            for (Future<WordCountMap> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Word count interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException("Word count worker failed", e.getCause());
+        }
+        // Merge into the largest map, so that the fewest entries are re-inserted
+        results.sort((a, b) -> Integer.compare(b.size(), a.size()));
+        WordCountMap merged = results.getFirst();
+        for (int i = 1; i < results.size(); i++) {
+            merged.addAll(results.get(i));
+        }
+        return merged;
+    }
+
+    /** Lower-cases {@code word} char by char, like {@link Utf8WordCounter}; returns it as is if unchanged. */
+    static String foldCase(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.toLowerCase(c) != c) {
+                char[] folded = word.toCharArray();
+                for (int j = i; j < folded.length; j++) {
+                    folded[j] = Character.toLowerCase(folded[j]);
+                }
+                return new String(folded);
+            }
+        }
+        return word;
+    }
+
+    private static void requirePositive(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package ch.jobtrek.datastructures.maps;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A word counter: an open-addressing hash map from {@code String} to a
+ * primitive {@code long} count.
+ *
+ * <p>{@code HashMap<String, Integer>.merge(word, 1, Integer::sum)} is the
+ * idiomatic way to count words, but every increment looks up a node, unboxes
+ * the count and boxes a new {@code Integer} as soon as it exceeds 127. This map
+ * keeps its data in three parallel arrays instead:</p>
+ * <ul>
+ *   <li>{@code keys[]} — the words, {@code null} for an empty slot;</li>
+ *   <li>{@code hashes[]} — each word's hash, so that most mismatches are
+ *       rejected without calling {@code equals()};</li>
+ *   <li>{@code counts[]} — the counts, as plain {@code long}s.</li>
+ * </ul>
+ * <p>A collision moves on to the next slot (<em>linear probing</em>), which
+ * reads neighbouring array elements and is therefore cache-friendly. The table
+ * doubles when it becomes half full, keeping probe sequences short. Entries
+ * cannot be removed.</p>
+ *
+ * <p>This class is not thread-safe: give each thread its own map and
+ * {@link #addAll(WordCountMap) merge} them at the end.</p>
+ */
+public class WordCountMap {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** The largest power-of-two table an array can hold; it is full at half that many words. */
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private String[] keys;
+    private int[] hashes;
+    private long[] counts;
+    private int size;
+    private long total;
+
+    /**
+     * Creates an empty map.
+     */
+    public WordCountMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty map sized for about {@code expectedWords} distinct words.
+     *
+     * @param expectedWords the expected number of distinct words
+     * @throws IllegalArgumentException if {@code expectedWords} is negative or
+     *                                  above {@code 2^29}, which would not fit in one table
+     */
+    public WordCountMap(int expectedWords) {
+        allocate(tableSizeFor(expectedWords));
+    }
+
+    /**
+     * Returns the table size for {@code expectedWords} distinct words: the
+     * smallest power of two that keeps the table at most half full.
+     */
+    static int tableSizeFor(int expectedWords) {
+        if (expectedWords < 0) {
+            throw new IllegalArgumentException("expectedWords must not be negative");
+        }
+        long capacity = Long.highestOneBit(Math.max(16, expectedWords * 2L - 1)) << 1;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("expectedWords must not exceed " + MAX_CAPACITY / 2);
+        }
+        return (int) capacity;
+    }
+
+    /**
+     * Adds one occurrence of {@code word}.
+     *
+     * @param word the word, counted exactly as given (no case folding)
+     */
+    public void increment(String word) {
+        add(word, 1);
+    }
+
+    /**
+     * Adds {@code count} occurrences of {@code word}.
+     *
+     * @param word  the word
+     * @param count the number of occurrences to add (must be &gt;= 0)
+     */
+    public void add(String word, long count) {
+        Objects.requireNonNull(word, "word must not be null");
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        int hash = mix(word.hashCode());
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(word)) {
+                counts[slot] += count;
+                total += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = word;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        total += count;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Returns the count of {@code word}.
+     *
+     * @param word the word to look up
+     * @return its count, or 0 if it was never added
+     */
+    public long get(String word) {
+        if (word == null) {
+            return 0;
+        }
+        int hash = mix(word.hashCode());
+        int mask = keys.length - 1;
+        for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keys[slot].equals(word)) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds every count of {@code other} to this map.
+     *
+     * @param other the map to merge in; left unchanged
+     */
+    public void addAll(WordCountMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != null) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Calls {@code action} once per distinct word, in no particular order.
+     *
+     * @param action receives each word and its count
+     */
+    public void forEach(ObjLongConsumer<String> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct words.
+     *
+     * @return the number of distinct words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sum of all counts, i.e. the number of words added.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Copies the counts into a {@link HashMap}, the return type of the
+     * {@code countWordFrequencies} exercises.
+     *
+     * @return a new map from each word to its count
+     */
+    public HashMap<String, Long> toMap() {
+        var map = HashMap.<String, Long>newHashMap(size);
+        forEach(map::put);
+        return map;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        if (oldKeys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("A word count map holds at most " + MAX_CAPACITY / 2 + " words");
+        }
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+    }
+
+    private static int mix(int hash) {
+        // Spread the bits so that similar words do not land in neighbouring slots
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,189 @@
+package ch.jobtrek.datastructures.sets;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A thread-safe {@link java.util.Set} split into independent <em>stripes</em>,
+ * each one a {@link HashSet} guarded by its own {@link StampedLock}.
+ *
+ * <p>{@code Collections.synchronizedSet(new HashSet<>())} protects the whole set
+ * with one monitor, so every {@code contains()} call from every thread is
+ * serialised. Here an element only locks the stripe its hash falls into, and
+ * lookups take that stripe's <em>read</em> lock, so:</p>
+ * <ul>
+ *   <li>readers never block each other;</li>
+ *   <li>a writer only blocks the readers of its own stripe.</li>
+ * </ul>
+ * <p>Lookups do not use {@link StampedLock#tryOptimisticRead()}: a
+ * {@code HashSet} read racing a resize can see half-built tree bins and fail
+ * or loop before the stamp is ever validated.</p>
+ *
+ * <p>Bulk views are <strong>weakly consistent</strong>: {@link #iterator()}
+ * walks a per-stripe snapshot and {@link #size()} adds up the stripe sizes one
+ * after the other, so concurrent updates may or may not be reflected. The
+ * iterator does not support {@code remove()}. Null elements are not permitted.</p>
+ *
+ * @param <E> the type of elements held in this set
+ */
+public class StripedLockSet<E> extends AbstractSet<E> {
+
+    private final HashSet<E>[] stripes;
+    private final StampedLock[] locks;
+    private final int mask;
+
+    /**
+     * Creates an empty set with four stripes per available processor (rounded
+     * up to a power of two).
+     */
+    public StripedLockSet() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Creates an empty set with at least {@code stripeCount} stripes.
+     *
+     * @param stripeCount the minimum number of stripes (rounded up to a power of two)
+     * @throws IllegalArgumentException if {@code stripeCount} is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLockSet(int stripeCount) {
+        if (stripeCount <= 0 || stripeCount > 1 << 16) {
+            throw new IllegalArgumentException("stripeCount must be between 1 and 65536");
+        }
+        int count = Integer.highestOneBit(stripeCount - 1) << 1;
+        count = Math.max(count, 1);
+        this.stripes = new HashSet[count];
+        this.locks = new StampedLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new HashSet<>();
+            locks[i] = new StampedLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Creates a set with the default stripe count, containing the given elements.
+     *
+     * @param elements the initial elements
+     */
+    public StripedLockSet(Collection<? extends E> elements) {
+        this();
+        addAll(elements);
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        if (element == null) {
+            return false;
+        }
+        int stripe = stripeOf(element);
+        StampedLock lock = locks[stripe];
+        long stamp = lock.readLock();
+        try {
+            return stripes[stripe].contains(element);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean add(E element) {
+        Objects.requireNonNull(element, "element must not be null");
+        int stripe = stripeOf(element);
+        long stamp = locks[stripe].writeLock();
+        try {
+            return stripes[stripe].add(element);
+        } finally {
+            locks[stripe].unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        if (element == null) {
+            return false;
+        }
+        int stripe = stripeOf(element);
+        long stamp = locks[stripe].writeLock();
+        try {
+            return stripes[stripe].remove(element);
+        } finally {
+            locks[stripe].unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            long stamp = locks[i].readLock();
+            try {
+                size += stripes[i].size();
+            } finally {
+                locks[i].unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < stripes.length; i++) {
+            long stamp = locks[i].writeLock();
+            try {
+                stripes[i].clear();
+            } finally {
+                locks[i].unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        var snapshot = new ArrayList<E>();
+        for (int i = 0; i < stripes.length; i++) {
+            long stamp = locks[i].readLock();
+            try {
+                snapshot.addAll(stripes[i]);
+            } finally {
+                locks[i].unlockRead(stamp);
+            }
+        }
+        Iterator<E> delegate = snapshot.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return delegate.next();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of stripes.
+     *
+     * @return the stripe count, always a power of two
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    private int stripeOf(Object element) {
+        // Mix the high bits in, as HashMap does, so that sequential integers
+        // do not all land in the lower stripes
+        int h = element.hashCode();
+        h ^= h >>> 16;
+        h *= 0x9E3779B9;
+        return (h >>> 16) & mask;
+    }
+}
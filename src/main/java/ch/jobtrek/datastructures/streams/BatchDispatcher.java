@@ -0,0 +1,201 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Gatherers;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Batches a stream and hands each batch to a handler running on its own
+ * virtual thread, with a bounded number of batches in flight.
+ *
+ * <p>Sending batches one after the other wastes most of the time waiting on
+ * the network: with 20 ms per request, 1,000 batches take 20 seconds even
+ * though the sender is idle. Virtual threads make it cheap to wait on many
+ * requests at once, but sending <em>everything</em> at once would overload
+ * the receiver and buffer the whole input in memory. This dispatcher keeps a
+ * <strong>window</strong> of at most {@code maxInFlight} batches that were
+ * dispatched but whose result has not been consumed yet:</p>
+ * <ul>
+ *   <li>a new batch is only read from the source once a slot is free, so a
+ *       slow handler or a slow consumer slows down reading (backpressure);</li>
+ *   <li>memory stays bounded by {@code maxInFlight × batchSize} elements,
+ *       whatever the size of the source.</li>
+ * </ul>
+ *
+ * <p>The results are returned as a lazy stream, in one of two
+ * {@link Completion} orders. A failing handler makes the stream throw an
+ * {@link IllegalStateException} carrying the handler's exception. The returned
+ * stream owns a virtual-thread executor: it is shut down once every result has
+ * been consumed, and closing the stream (e.g. with try-with-resources after a
+ * {@code limit()}) cancels the batches still running.</p>
+ */
+public final class BatchDispatcher {
+
+    private BatchDispatcher() {
+    }
+
+    /**
+     * The order in which batch results are emitted.
+     */
+    public enum Completion {
+        /** Results follow the order of the batches, as a sequential loop would produce them. */
+        ORDERED,
+        /** Results are emitted as soon as each batch completes; one slow batch does not hold up the others. */
+        UNORDERED
+    }
+
+    /**
+     * Splits {@code source} into batches of {@code batchSize} and runs
+     * {@code handler} on each of them, at most {@code maxInFlight} at a time.
+     *
+     * @param <T>         the type of elements
+     * @param <R>         the type of handler results (e.g. a delivery receipt)
+     * @param source      the elements to dispatch
+     * @param batchSize   the maximum number of elements per batch (must be &gt; 0)
+     * @param maxInFlight the maximum number of dispatched batches whose result
+     *                    has not been consumed yet (must be &gt; 0)
+     * @param completion  the order of the results
+     * @param handler     called once per batch, on a virtual thread
+     * @return a lazy stream of handler results, one per batch
+     * @throws IllegalArgumentException if {@code batchSize} or {@code maxInFlight} is not positive
+     */
+    public static <T, R> Stream<R> dispatch(Stream<T> source, int batchSize, int maxInFlight,
+                                            Completion completion, Function<? super List<T>, ? extends R> handler) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(completion, "completion must not be null");
+        Objects.requireNonNull(handler, "handler must not be null");
+        if (batchSize <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("batchSize and maxInFlight must be positive");
+        }
+        // The batches outlive the iteration (they are handled asynchronously), so each one must be a copy
+        Iterator<List<T>> batches = source.gather(Gatherers.<T>windowFixed(batchSize)).iterator();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Window<T, R> window = completion == Completion.ORDERED
+                ? new OrderedWindow<>(batches, maxInFlight, executor, handler)
+                : new UnorderedWindow<>(batches, maxInFlight, executor, handler);
+        return StreamSupport.stream(window, false).onClose(() -> {
+            executor.shutdownNow();
+            source.close();
+        });
+    }
+
+    /**
+     * Reads batches from the source while fewer than {@code maxInFlight} are
+     * outstanding, then emits the next result.
+     */
+    private abstract static class Window<T, R> extends Spliterators.AbstractSpliterator<R> {
+
+        private final Iterator<List<T>> batches;
+        private final int maxInFlight;
+        final ExecutorService executor;
+        final Function<? super List<T>, ? extends R> handler;
+
+        Window(Iterator<List<T>> batches, int maxInFlight, ExecutorService executor,
+               Function<? super List<T>, ? extends R> handler) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.batches = batches;
+            this.maxInFlight = maxInFlight;
+            this.executor = executor;
+            this.handler = handler;
+        }
+
+        /** Submits one batch to the executor. */
+        abstract void submit(List<T> batch);
+
+        /** Returns the number of submitted batches whose result was not emitted yet. */
+        abstract int inFlight();
+
+        /** Waits for the next result to emit. */
+        abstract Future<R> next() throws InterruptedException;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            while (inFlight() < maxInFlight && batches.hasNext()) {
+                submit(batches.next());
+            }
+            if (inFlight() == 0) {
+                executor.shutdown();
+                return false;
+            }
+            try {
+                action.accept(next().get());
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                throw new IllegalStateException("Dispatch interrupted", e);
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                throw new IllegalStateException("Batch handler failed", e.getCause());
+            }
+        }
+    }
+
+    private static final class OrderedWindow<T, R> extends Window<T, R> {
+
+        private final ArrayDeque<Future<R>> pending = new ArrayDeque<>();
+
+        OrderedWindow(Iterator<List<T>> batches, int maxInFlight, ExecutorService executor,
+                      Function<? super List<T>, ? extends R> handler) {
+            super(batches, maxInFlight, executor, handler);
+        }
+
+        @Override
+        void submit(List<T> batch) {
+            pending.add(executor.submit(() -> handler.apply(batch)));
+        }
+
+        @Override
+        int inFlight() {
+            return pending.size();
+        }
+
+        @Override
+        Future<R> next() {
+            return pending.poll();
+        }
+    }
+
+    private static final class UnorderedWindow<T, R> extends Window<T, R> {
+
+        private final ExecutorCompletionService<R> completed;
+        private int inFlight;
+
+        UnorderedWindow(Iterator<List<T>> batches, int maxInFlight, ExecutorService executor,
+                        Function<? super List<T>, ? extends R> handler) {
+            super(batches, maxInFlight, executor, handler);
+            this.completed = new ExecutorCompletionService<>(executor);
+        }
+
+        @Override
+        void submit(List<T> batch) {
+            completed.submit(() -> handler.apply(batch));
+            inFlight++;
+        }
+
+        @Override
+        int inFlight() {
+            return inFlight;
+        }
+
+        @Override
+        Future<R> next() throws InterruptedException {
+            Future<R> future = completed.take();
+            inFlight--;
+            return future;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.Gatherer;
+import java.util.stream.Gatherers;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Splits a sequence into fixed-size batches without copying its elements.
+ *
+ * <p>{@code Gatherers.windowFixed(n)} copies every element into a new list per
+ * batch, so batching a list of five million email addresses keeps a second
+ * five-million-slot copy alive. Two cheaper strategies are available:</p>
+ * <ul>
+ *   <li><strong>Views</strong> — when the source is a {@link RandomAccess}
+ *       {@code List}, each batch is a {@link List#subList(int, int) subList}
+ *       of the source: a small object holding two indices. {@link #views(List, int)}
+ *       returns all of them as a lazy list that allocates nothing up front.</li>
+ *   <li><strong>Reused buffer</strong> — for other collections and for
+ *       streams, including infinite ones, {@link #reusingWindowFixed(int)} and
+ *       {@link #streamReusing(Collection, int)} fill one {@code batchSize}
+ *       buffer, push a read-only view of it, and refill the same buffer for the
+ *       next batch. Memory stays bounded by one batch whatever the input size.</li>
+ * </ul>
+ *
+ * <p><strong>Contract.</strong> A view batch reflects later writes to the
+ * source list, and becomes invalid if the source changes size. A reused-buffer
+ * batch is only valid until the next batch is produced, so it must be consumed
+ * straight away, e.g. sent in {@code forEach}; collecting the batches with
+ * {@code toList()} would keep several references to the same buffer. Copy a
+ * batch with {@link List#copyOf(Collection)} to keep it longer. The reused
+ * buffer is therefore only used by the methods whose name says so:
+ * {@link #stream(Collection, int)} always produces batches that stay valid.</p>
+ */
+public final class Batches {
+
+    private Batches() {
+    }
+
+    /**
+     * Returns the batches of {@code source} as {@code subList} views.
+     *
+     * @param <T>       the type of elements
+     * @param source    a random-access list
+     * @param batchSize the maximum number of elements per batch (must be &gt; 0)
+     * @return a lazy, unmodifiable list of batches; the last one may be shorter
+     * @throws IllegalArgumentException if {@code batchSize} is not positive, or
+     *                                  if {@code source} is not {@link RandomAccess}
+     */
+    public static <T> List<List<T>> views(List<T> source, int batchSize) {
+        Objects.requireNonNull(source, "source must not be null");
+        requirePositive(batchSize);
+        if (!(source instanceof RandomAccess)) {
+            throw new IllegalArgumentException("views require a RandomAccess list; use stream() instead");
+        }
+        return new BatchViews<>(source, batchSize);
+    }
+
+    /**
+     * Returns the batches of {@code source} as a stream of batches that stay
+     * valid: {@code subList} views for a {@link RandomAccess} list, and a copy
+     * per batch, as with {@code Gatherers.windowFixed}, for any other
+     * collection.
+     *
+     * @param <T>       the type of elements
+     * @param source    the elements to batch
+     * @param batchSize the maximum number of elements per batch (must be &gt; 0)
+     * @return the batches in encounter order; they can be collected with {@code toList()}
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    public static <T> Stream<List<T>> stream(Collection<T> source, int batchSize) {
+        Objects.requireNonNull(source, "source must not be null");
+        requirePositive(batchSize);
+        if (source instanceof List<T> list && source instanceof RandomAccess) {
+            List<List<T>> views = new BatchViews<>(list, batchSize);
+            return IntStream.range(0, views.size()).mapToObj(views::get);
+        }
+        return source.stream().gather(Gatherers.windowFixed(batchSize));
+    }
+
+    /**
+     * Returns the batches of {@code source} as a stream of read-only views of
+     * one reused buffer, whatever the type of collection.
+     *
+     * @param <T>       the type of elements
+     * @param source    the elements to batch
+     * @param batchSize the maximum number of elements per batch (must be &gt; 0)
+     * @return the batches in encounter order, each valid until the next one is produced
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    public static <T> Stream<List<T>> streamReusing(Collection<T> source, int batchSize) {
+        Objects.requireNonNull(source, "source must not be null");
+        return source.stream().gather(reusingWindowFixed(batchSize));
+    }
+
+    /**
+     * Returns a gatherer that groups elements into batches of
+     * {@code batchSize}, like {@code Gatherers.windowFixed}, but pushes a
+     * read-only view of a single reused buffer instead of a new list.
+     *
+     * @param <T>       the type of elements
+     * @param batchSize the maximum number of elements per batch (must be &gt; 0)
+     * @return a sequential gatherer whose batches are valid until the next one is pushed
+     * @throws IllegalArgumentException if {@code batchSize} is not positive
+     */
+    public static <T> Gatherer<T, ?, List<T>> reusingWindowFixed(int batchSize) {
+        requirePositive(batchSize);
+        return Gatherer.<T, ReusedBuffer<T>, List<T>>ofSequential(
+                () -> new ReusedBuffer<>(batchSize),
+                Gatherer.Integrator.of((buffer, element, downstream) -> {
+                    buffer.add(element);
+                    if (buffer.size() < batchSize) {
+                        return true;
+                    }
+                    boolean more = downstream.push(buffer.view);
+                    buffer.clear();
+                    return more;
+                }),
+                (buffer, downstream) -> {
+                    if (!buffer.isEmpty() && !downstream.isRejecting()) {
+                        downstream.push(buffer.view);
+                    }
+                });
+    }
+
+    private static void requirePositive(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+    }
+
+    /**
+     * The batches of a random-access list, each created on demand as a {@code subList}.
+     */
+    private static final class BatchViews<T> extends AbstractList<List<T>> implements RandomAccess {
+
+        private final List<T> source;
+        private final int batchSize;
+
+        BatchViews(List<T> source, int batchSize) {
+            this.source = source;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public List<T> get(int index) {
+            Objects.checkIndex(index, size());
+            // In long: near Integer.MAX_VALUE elements, the last batch's end would overflow
+            int from = (int) ((long) index * batchSize);
+            return source.subList(from, (int) Math.min(source.size(), (long) from + batchSize));
+        }
+
+        @Override
+        public int size() {
+            return (int) (((long) source.size() + batchSize - 1) / batchSize);
+        }
+    }
+
+    /**
+     * A fixed-capacity buffer, handed downstream through a read-only view.
+     */
+    private static final class ReusedBuffer<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Object[] elements;
+        private final List<T> view = Collections.unmodifiableList(this);
+        private int size;
+
+        ReusedBuffer(int capacity) {
+            this.elements = new Object[capacity];
+        }
+
+        @Override
+        public boolean add(T element) {
+            elements[size++] = element;
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, size);
+            return (T) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(elements, 0, size, null);
+            size = 0;
+        }
+    }
+}
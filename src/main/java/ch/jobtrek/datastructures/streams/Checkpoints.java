@@ -0,0 +1,72 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * The envelope shared by the binary snapshots of stateful stream operators,
+ * such as {@link MovingAverage#snapshot()} and {@link RunningBalance#snapshot()}.
+ *
+ * <p>Every snapshot starts with a 6-byte header — the magic number
+ * {@code "JTCK"}, a format version and the kind of operator — followed by the
+ * operator's fields in big-endian order. The header lets a restore reject a
+ * truncated file, a snapshot of another operator, or one written by an
+ * incompatible version, instead of resuming from garbage.</p>
+ */
+final class Checkpoints {
+
+    static final int MAGIC = 0x4A54434B;
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES + 2;
+
+    static final byte MOVING_AVERAGE = 1;
+    static final byte RUNNING_BALANCE = 2;
+
+    private Checkpoints() {
+    }
+
+    /** @return a buffer holding the header, with room for {@code bodyBytes} more */
+    static ByteBuffer writer(byte kind, int bodyBytes) {
+        return ByteBuffer.allocate(HEADER_BYTES + bodyBytes).putInt(MAGIC).put(VERSION).put(kind);
+    }
+
+    /**
+     * Checks the header of {@code snapshot}.
+     *
+     * @return a buffer positioned on the body
+     * @throws IllegalArgumentException if the header is missing, foreign or of another kind
+     */
+    static ByteBuffer reader(byte[] snapshot, byte kind) {
+        Objects.requireNonNull(snapshot, "snapshot must not be null");
+        var buffer = ByteBuffer.wrap(snapshot);
+        if (snapshot.length < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a stream operator snapshot");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported snapshot version " + version);
+        }
+        byte actual = buffer.get();
+        if (actual != kind) {
+            throw new IllegalArgumentException("snapshot of operator kind " + actual + ", expected " + kind);
+        }
+        return buffer;
+    }
+
+    /**
+     * Checks that the body was read entirely.
+     *
+     * @throws IllegalArgumentException if bytes are left over
+     */
+    static void requireConsumed(ByteBuffer buffer) {
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("snapshot has " + buffer.remaining() + " trailing bytes");
+        }
+    }
+
+    /** Turns a read past the end of a truncated snapshot into the documented exception. */
+    static IllegalArgumentException truncated(BufferUnderflowException cause) {
+        return new IllegalArgumentException("snapshot is truncated", cause);
+    }
+}
@@ -0,0 +1,221 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * A count-min sketch: an approximate frequency table of fixed size, whatever
+ * the number of distinct items.
+ *
+ * <p>An exact {@code Map<String, Long>} of word frequencies grows with the
+ * vocabulary; with hundreds of millions of distinct tokens it no longer fits
+ * in memory. A count-min sketch keeps {@code depth} rows of {@code width}
+ * counters. Adding an item increments one counter per row, chosen by a
+ * different hash function for each row; the estimate of an item is the
+ * <em>smallest</em> of its counters. Collisions can only add to a counter, so
+ * an estimate is never below the true count, and the minimum discards the
+ * rows where the item collided with a frequent one.</p>
+ *
+ * <h2>Error bounds</h2>
+ * <p>With {@code width = ⌈e / ε⌉} and {@code depth = ⌈ln(1 / δ)⌉}, an estimate
+ * exceeds the true count by more than {@code ε × total} with probability at
+ * most {@code δ}. {@link #withError(double, double)} derives the dimensions
+ * from ε and δ; the width is rounded up to a power of two.</p>
+ *
+ * <h2>Conservative update</h2>
+ * <p>Instead of incrementing all {@code depth} counters, an update only raises
+ * the counters that are below the new estimate ({@code min + count}). This
+ * keeps every guarantee above and noticeably reduces the overestimation of rare
+ * items.</p>
+ *
+ * <p>A sketch is not thread-safe, so {@link #collector(double, double)} fills
+ * one per parallel worker and then adds their counters cell by cell. The sum
+ * is still an upper bound, but it is the plain, non-conservative one: a
+ * parallel count overestimates rare items more than a sequential count of the
+ * same stream.</p>
+ *
+ * @param <T> the type of items counted
+ */
+public final class CountMinSketch<T> {
+
+    /** The largest number of counters, {@code width × depth}, that fits in one array. */
+    static final long MAX_COUNTERS = Integer.MAX_VALUE - 8;
+
+    private final int width;
+    private final int depth;
+    private final int mask;
+    private final long[] counters;
+    private long total;
+
+    /**
+     * Creates an empty sketch with explicit dimensions.
+     *
+     * @param width the number of counters per row (rounded up to a power of two, must be &gt; 0)
+     * @param depth the number of rows, i.e. hash functions (1 to 32)
+     * @throws IllegalArgumentException if a dimension is out of range, or if the
+     *                                  rounded width times the depth exceeds one array
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || width > 1 << 30) {
+            throw new IllegalArgumentException("width must be between 1 and 2^30");
+        }
+        if (depth <= 0 || depth > 32) {
+            throw new IllegalArgumentException("depth must be between 1 and 32");
+        }
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        // Checked in long so that every slot index, row × width + column, fits in an int
+        long cells = (long) this.width * depth;
+        if (cells > MAX_COUNTERS) {
+            throw new IllegalArgumentException("width × depth = " + cells + " counters do not fit in one array");
+        }
+        this.depth = depth;
+        this.mask = this.width - 1;
+        this.counters = new long[(int) cells];
+    }
+
+    /**
+     * Creates an empty sketch whose estimates exceed the true count by at most
+     * {@code epsilon × total}, with probability at least {@code 1 - delta}.
+     *
+     * @param <T>     the type of items counted
+     * @param epsilon the relative error, e.g. {@code 0.0001} (0 &lt; ε &lt; 1)
+     * @param delta   the failure probability, e.g. {@code 0.01} (0 &lt; δ &lt; 1)
+     * @return a new sketch
+     * @throws IllegalArgumentException if {@code epsilon} or {@code delta} is out of range, or if
+     *                                  they need more counters than fit in one array
+     */
+    public static <T> CountMinSketch<T> withError(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be between 0 and 1 (exclusive)");
+        }
+        int width = (int) Math.min(1 << 30, Math.ceil(Math.E / epsilon));
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        return new CountMinSketch<>(width, Math.clamp(depth, 1, 32));
+    }
+
+    /**
+     * Returns a collector that counts the stream into a sketch with the given
+     * error bounds; parallel workers build their own sketch and merge them.
+     *
+     * @param <T>     the type of items counted
+     * @param epsilon the relative error (0 &lt; ε &lt; 1)
+     * @param delta   the failure probability (0 &lt; δ &lt; 1)
+     * @return a collector producing a count-min sketch
+     */
+    public static <T> Collector<T, ?, CountMinSketch<T>> collector(double epsilon, double delta) {
+        withError(epsilon, delta);
+        return Collector.of(
+                () -> CountMinSketch.<T>withError(epsilon, delta),
+                CountMinSketch::add,
+                CountMinSketch::merge,
+                Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Adds one occurrence of {@code item}.
+     *
+     * @param item the item to count
+     */
+    public void add(T item) {
+        add(item, 1);
+    }
+
+    /**
+     * Adds {@code count} occurrences of {@code item}, with conservative update.
+     *
+     * @param item  the item to count
+     * @param count the number of occurrences (must be &gt;= 0)
+     */
+    public void add(T item, long count) {
+        Objects.requireNonNull(item, "item must not be null");
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        // Row i uses index h1 + i × h2: two hashes simulate depth independent ones
+        long hash = spread(item.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long target = estimate(h1, h2) + count;
+        for (int row = 0, index = h1; row < depth; row++, index += h2) {
+            int slot = row * width + (index & mask);
+            if (counters[slot] < target) {
+                counters[slot] = target;
+            }
+        }
+        total += count;
+    }
+
+    /**
+     * Returns the estimated count of {@code item}: never below the true count.
+     *
+     * @param item the item to look up
+     * @return the estimated number of occurrences
+     */
+    public long estimate(T item) {
+        Objects.requireNonNull(item, "item must not be null");
+        long hash = spread(item.hashCode());
+        return estimate((int) hash, (int) (hash >>> 32) | 1);
+    }
+
+    private long estimate(int h1, int h2) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0, index = h1; row < depth; row++, index += h2) {
+            min = Math.min(min, counters[row * width + (index & mask)]);
+        }
+        return min;
+    }
+
+    /**
+     * Adds every counter of {@code other} to this sketch.
+     *
+     * @param other a sketch with the same dimensions
+     * @return this sketch
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public CountMinSketch<T> merge(CountMinSketch<T> other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("cannot merge sketches with different dimensions");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+    /** @return the total number of occurrences added */
+    public long total() {
+        return total;
+    }
+
+    /** @return the number of counters per row */
+    public int width() {
+        return width;
+    }
+
+    /** @return the number of rows */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns the size of the counter table in bytes, which does not depend on
+     * how many distinct items were added.
+     *
+     * @return the counter memory in bytes
+     */
+    public long memoryBytes() {
+        return 8L * counters.length;
+    }
+
+    private static long spread(int hash) {
+        // The 64-bit finaliser of MurmurHash3: two well-mixed 32-bit hashes from one hashCode()
+        long h = hash * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
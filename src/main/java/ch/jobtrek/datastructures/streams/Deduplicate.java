@@ -0,0 +1,216 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Gatherer;
+
+/**
+ * Lazy deduplicating gatherers that work on infinite streams.
+ *
+ * <p>{@code deduplicateConsecutive(List<T>)} takes a finite list and returns a
+ * new one. The gatherers below do the same job one element at a time: they
+ * can follow a socket or a log tail, and they stop pulling from the source as
+ * soon as a downstream {@code limit()} or {@code findFirst()} is satisfied.</p>
+ *
+ * <ul>
+ *   <li><strong>Consecutive</strong> — {@link #consecutive()},
+ *       {@link #consecutiveBy(Function)} and {@link #consecutive(BiPredicate)}
+ *       drop an element that equals the one just before it. They remember one
+ *       element, so their memory is constant.</li>
+ *   <li><strong>Global, bounded</strong> — {@code Stream.distinct()} remembers
+ *       every element it has seen and grows without limit on an infinite
+ *       stream. {@link #recent(int)} remembers the {@code maxTracked} most
+ *       recently seen keys in an LRU set: a duplicate is dropped if its key was
+ *       seen within that horizon. {@link #approximate(long, double)} remembers
+ *       keys in a Bloom filter of fixed size: no duplicate ever passes, but a
+ *       small, configurable fraction of new elements is dropped as well.</li>
+ * </ul>
+ *
+ * <p>All gatherers are sequential: "previous" and "already seen" only have a
+ * meaning in encounter order.</p>
+ */
+public final class Deduplicate {
+
+    private Deduplicate() {
+    }
+
+    /**
+     * Drops every element that is {@linkplain Objects#equals(Object, Object) equal}
+     * to the element before it.
+     *
+     * @param <T> the type of elements
+     * @return a gatherer removing consecutive duplicates
+     */
+    public static <T> Gatherer<T, ?, T> consecutive() {
+        return consecutive(Objects::equals);
+    }
+
+    /**
+     * Drops every element whose key equals the key of the element before it.
+     * For example {@code consecutiveBy(String::toLowerCase)} treats
+     * {@code "Hello"} followed by {@code "HELLO"} as a duplicate.
+     *
+     * @param <T> the type of elements
+     * @param key extracts the key to compare
+     * @return a gatherer removing consecutive duplicates by key
+     */
+    public static <T> Gatherer<T, ?, T> consecutiveBy(Function<? super T, ?> key) {
+        Objects.requireNonNull(key, "key must not be null");
+        return consecutive((previous, current) -> Objects.equals(key.apply(previous), key.apply(current)));
+    }
+
+    /**
+     * Drops every element for which {@code same.test(previous, element)} is true.
+     *
+     * @param <T>  the type of elements
+     * @param same tells whether an element duplicates the one before it
+     * @return a gatherer removing consecutive duplicates
+     */
+    public static <T> Gatherer<T, ?, T> consecutive(BiPredicate<? super T, ? super T> same) {
+        Objects.requireNonNull(same, "same must not be null");
+        class Last {
+            boolean started;
+            T element;
+        }
+        return Gatherer.ofSequential(
+                Last::new,
+                Gatherer.Integrator.ofGreedy((last, element, downstream) -> {
+                    boolean duplicate = last.started && same.test(last.element, element);
+                    last.started = true;
+                    last.element = element;
+                    return duplicate || downstream.push(element);
+                }));
+    }
+
+    /**
+     * Drops every element equal to one of the {@code maxTracked} most recently
+     * seen distinct elements.
+     *
+     * @param <T>        the type of elements
+     * @param maxTracked the number of distinct elements remembered (must be &gt; 0)
+     * @return a gatherer removing repeats within a bounded horizon
+     */
+    public static <T> Gatherer<T, ?, T> recent(int maxTracked) {
+        return recentBy(Function.identity(), maxTracked);
+    }
+
+    /**
+     * Drops every element whose key is one of the {@code maxTracked} most
+     * recently seen keys. Seeing a key again refreshes it; when the set is
+     * full, the least recently seen key is forgotten.
+     *
+     * @param <T>        the type of elements
+     * @param key        extracts the key to compare
+     * @param maxTracked the number of keys remembered (must be &gt; 0)
+     * @return a gatherer removing repeats within a bounded horizon
+     */
+    public static <T> Gatherer<T, ?, T> recentBy(Function<? super T, ?> key, int maxTracked) {
+        Objects.requireNonNull(key, "key must not be null");
+        if (maxTracked <= 0) {
+            throw new IllegalArgumentException("maxTracked must be positive");
+        }
+        return Gatherer.ofSequential(
+                () -> new LinkedHashMap<Object, Boolean>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+                        return size() > maxTracked;
+                    }
+                },
+                Gatherer.Integrator.ofGreedy((seen, element, downstream) ->
+                        seen.put(key.apply(element), Boolean.TRUE) != null || downstream.push(element)));
+    }
+
+    /**
+     * Drops every element already seen, remembering them in a Bloom filter
+     * sized for {@code expectedDistinct} elements. Memory is fixed at about
+     * {@code -expectedDistinct × ln(p) / ln(2)²} bits; past
+     * {@code expectedDistinct} distinct elements, the false positive rate rises.
+     * Elements are told apart by {@code hashCode()}, so two different elements
+     * with the same hash code always count as duplicates. This sets a floor
+     * under the false positive rate: after {@code n} distinct elements, a new
+     * one shares the hash code of an earlier one with a probability of about
+     * {@code n / 2³²} even for well-spread hash codes, i.e. 0.1% after four
+     * million elements, whatever {@code falsePositiveRate} asks for.
+     *
+     * @param <T>               the type of elements
+     * @param expectedDistinct  the expected number of distinct elements (must be &gt; 0)
+     * @param falsePositiveRate the fraction of new elements that may be wrongly dropped (0 &lt; p &lt; 1)
+     * @return a gatherer removing every repeat, and a few new elements
+     * @throws IllegalArgumentException if an argument is out of range, or if the
+     *                                  filter would need more bits than one {@code long[]} holds
+     */
+    public static <T> Gatherer<T, ?, T> approximate(long expectedDistinct, double falsePositiveRate) {
+        if (expectedDistinct <= 0) {
+            throw new IllegalArgumentException("expectedDistinct must be positive");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1 (exclusive)");
+        }
+        // Fail here rather than when the stream starts
+        BloomFilter.bitCount(expectedDistinct, falsePositiveRate);
+        return Gatherer.ofSequential(
+                () -> new BloomFilter(expectedDistinct, falsePositiveRate),
+                Gatherer.Integrator.ofGreedy((seen, element, downstream) ->
+                        !seen.add(Objects.hashCode(element)) || downstream.push(element)));
+    }
+
+    /**
+     * A Bloom filter over 32-bit hash codes: {@code hashes} bit positions per
+     * element, derived from two halves of a 64-bit mix.
+     */
+    static final class BloomFilter {
+
+        /** The bits in the largest {@code long[]} the JVM can allocate. */
+        static final long MAX_BITS = (Integer.MAX_VALUE - 8) * 64L;
+
+        private static final double LN_2 = Math.log(2);
+
+        private final long[] bits;
+        private final long bitCount;
+        private final int hashes;
+
+        BloomFilter(long expected, double falsePositiveRate) {
+            this.bitCount = bitCount(expected, falsePositiveRate);
+            this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+            this.hashes = Math.clamp(Math.round((double) bitCount / expected * LN_2), 1, 16);
+        }
+
+        /** The optimal number of bits, at least 64; rejects a filter too large for one array. */
+        static long bitCount(long expected, double falsePositiveRate) {
+            double size = Math.ceil(-expected * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+            if (size > MAX_BITS) {
+                throw new IllegalArgumentException("A Bloom filter for " + expected + " elements at p = "
+                        + falsePositiveRate + " needs more than " + MAX_BITS + " bits");
+            }
+            return Math.max(64, (long) size);
+        }
+
+        /** Sets the bits of {@code hash}; returns {@code false} if they were all set already. */
+        boolean add(int hash) {
+            long h = hash * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+            h *= 0xD6E8FEB86659FD93L;
+            h ^= h >>> 32;
+            long h1 = h & 0x7FFFFFFFL;
+            long h2 = (h >>> 33) | 1;
+            boolean added = false;
+            for (int i = 0; i < hashes; i++) {
+                long bit = (h1 + i * h2) % bitCount;
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                if ((bits[word] & mask) == 0) {
+                    bits[word] |= mask;
+                    added = true;
+                }
+            }
+            return added;
+        }
+
+        long memoryBytes() {
+            return 8L * bits.length;
+        }
+    }
+}
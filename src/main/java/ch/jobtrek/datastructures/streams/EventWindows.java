@@ -0,0 +1,288 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.Gatherer;
+
+/**
+ * Gatherers that group events into windows of <em>event time</em>, read from
+ * a timestamp in each event, rather than into windows of N elements.
+ *
+ * <ul>
+ *   <li><strong>Tumbling</strong> — consecutive windows of fixed length:
+ *       {@code [0, 60)}, {@code [60, 120)}, …; each event is in exactly one.</li>
+ *   <li><strong>Hopping</strong> — windows of fixed length starting every
+ *       {@code hop}: with length 60 and hop 20, {@code [0, 60)},
+ *       {@code [20, 80)}, …; each event is in {@code length / hop} windows.</li>
+ *   <li><strong>Session</strong> — a burst of activity: events less than
+ *       {@code gap} apart belong to the same window, which ends once no event
+ *       arrives for {@code gap}.</li>
+ * </ul>
+ *
+ * <h2>Out-of-order events and the watermark</h2>
+ * <p>Telemetry rarely arrives sorted. The gatherers assume events are at most
+ * {@code allowedLateness} behind the latest timestamp seen, and keep a
+ * <em>watermark</em>: {@code max timestamp - allowedLateness}. A window is
+ * emitted as soon as the watermark passes its end, since no accepted event can
+ * fall into it any more. An event older than the watermark is <em>late</em> and
+ * is dropped. With an {@code allowedLateness} of 0 the input must be sorted;
+ * a larger value keeps more windows open at once.</p>
+ *
+ * <h2>Incremental aggregates</h2>
+ * <p>Windows do not buffer their events: each open window holds the mutable
+ * result container of a {@link Collector}, which accumulates the event on
+ * arrival — {@code Collectors.counting()}, {@code averagingDouble()} or
+ * {@code summarizingLong()} cost a few fields per window. Sessions use the
+ * collector's combiner when a late event bridges two of them. The remaining
+ * open windows are emitted at the end of a finite stream.</p>
+ *
+ * <p>Timestamps are {@code long} values in any unit, e.g. epoch milliseconds;
+ * lengths, hops, gaps and lateness are in the same unit. Windows are emitted
+ * in order of their start.</p>
+ */
+public final class EventWindows {
+
+    /**
+     * The aggregate of one window.
+     *
+     * @param start  the window start (inclusive)
+     * @param end    the window end (exclusive); for a session, the last timestamp + gap
+     * @param count  the number of events in the window
+     * @param result the collector result
+     * @param <R>    the type of the aggregate
+     */
+    public record Window<R>(long start, long end, long count, R result) {
+    }
+
+    private EventWindows() {
+    }
+
+    /**
+     * Groups events into consecutive windows of {@code length}.
+     *
+     * @param <T>             the type of events
+     * @param <A>             the collector's accumulation type
+     * @param <R>             the type of the aggregate
+     * @param timestamp       extracts the event time
+     * @param length          the window length (must be &gt; 0)
+     * @param allowedLateness how far an event may lag behind the latest one (must be &gt;= 0)
+     * @param aggregate       the incremental aggregate of each window
+     * @return a gatherer emitting one {@link Window} per non-empty window
+     */
+    public static <T, A, R> Gatherer<T, ?, Window<R>> tumbling(
+            ToLongFunction<? super T> timestamp, long length, long allowedLateness,
+            Collector<? super T, A, R> aggregate) {
+        return hopping(timestamp, length, length, allowedLateness, aggregate);
+    }
+
+    /**
+     * Groups events into windows of {@code length} starting every {@code hop}.
+     *
+     * @param <T>             the type of events
+     * @param <A>             the collector's accumulation type
+     * @param <R>             the type of the aggregate
+     * @param timestamp       extracts the event time
+     * @param length          the window length (must be &gt; 0)
+     * @param hop             the distance between window starts (0 &lt; hop &lt;= length)
+     * @param allowedLateness how far an event may lag behind the latest one (must be &gt;= 0)
+     * @param aggregate       the incremental aggregate of each window
+     * @return a gatherer emitting one {@link Window} per non-empty window
+     */
+    public static <T, A, R> Gatherer<T, ?, Window<R>> hopping(
+            ToLongFunction<? super T> timestamp, long length, long hop, long allowedLateness,
+            Collector<? super T, A, R> aggregate) {
+        Objects.requireNonNull(timestamp, "timestamp must not be null");
+        Objects.requireNonNull(aggregate, "aggregate must not be null");
+        if (length <= 0 || hop <= 0 || hop > length) {
+            throw new IllegalArgumentException("length and hop must be positive, with hop <= length");
+        }
+        requireLateness(allowedLateness);
+        return Gatherer.ofSequential(
+                () -> new FixedWindows<T, A, R>(length, hop, allowedLateness, aggregate),
+                Gatherer.Integrator.ofGreedy((windows, event, downstream) ->
+                        windows.accept(event, timestamp.applyAsLong(event), downstream)),
+                FixedWindows::flush);
+    }
+
+    /**
+     * Groups events into sessions separated by at least {@code gap} without events.
+     *
+     * @param <T>             the type of events
+     * @param <A>             the collector's accumulation type
+     * @param <R>             the type of the aggregate
+     * @param timestamp       extracts the event time
+     * @param gap             the inactivity that ends a session (must be &gt; 0)
+     * @param allowedLateness how far an event may lag behind the latest one (must be &gt;= 0)
+     * @param aggregate       the incremental aggregate of each session
+     * @return a gatherer emitting one {@link Window} per session
+     */
+    public static <T, A, R> Gatherer<T, ?, Window<R>> session(
+            ToLongFunction<? super T> timestamp, long gap, long allowedLateness,
+            Collector<? super T, A, R> aggregate) {
+        Objects.requireNonNull(timestamp, "timestamp must not be null");
+        Objects.requireNonNull(aggregate, "aggregate must not be null");
+        if (gap <= 0) {
+            throw new IllegalArgumentException("gap must be positive");
+        }
+        requireLateness(allowedLateness);
+        return Gatherer.ofSequential(
+                () -> new Sessions<T, A, R>(gap, allowedLateness, aggregate),
+                Gatherer.Integrator.ofGreedy((sessions, event, downstream) ->
+                        sessions.accept(event, timestamp.applyAsLong(event), downstream)),
+                Sessions::flush);
+    }
+
+    private static void requireLateness(long allowedLateness) {
+        if (allowedLateness < 0) {
+            throw new IllegalArgumentException("allowedLateness must not be negative");
+        }
+    }
+
+    /** An open window: its collector container and event count. */
+    private static final class Open<A> {
+        long start;
+        long end;
+        long count;
+        A container;
+
+        Open(long start, long end, A container) {
+            this.start = start;
+            this.end = end;
+            this.container = container;
+        }
+    }
+
+    /** The watermark and the emission logic shared by both window kinds. */
+    private abstract static class Windows<T, A, R> {
+
+        final Collector<? super T, A, R> aggregate;
+        final long allowedLateness;
+        final TreeMap<Long, Open<A>> open = new TreeMap<>();
+        long watermark = Long.MIN_VALUE;
+
+        Windows(long allowedLateness, Collector<? super T, A, R> aggregate) {
+            this.allowedLateness = allowedLateness;
+            this.aggregate = aggregate;
+        }
+
+        boolean accept(T event, long time, Gatherer.Downstream<? super Window<R>> downstream) {
+            if (time < watermark) {
+                return true;
+            }
+            add(event, time);
+            watermark = Math.max(watermark, time - allowedLateness);
+            // Windows are keyed by start; emit from the oldest while the watermark has passed their end
+            for (Map.Entry<Long, Open<A>> first = open.firstEntry();
+                 first != null && first.getValue().end <= watermark;
+                 first = open.firstEntry()) {
+                open.pollFirstEntry();
+                if (!emit(first.getValue(), downstream)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void flush(Gatherer.Downstream<? super Window<R>> downstream) {
+            for (Open<A> window : open.values()) {
+                if (!emit(window, downstream)) {
+                    return;
+                }
+            }
+            open.clear();
+        }
+
+        abstract void add(T event, long time);
+
+        Open<A> newWindow(long start, long end) {
+            return new Open<>(start, end, aggregate.supplier().get());
+        }
+
+        void accumulate(Open<A> window, T event) {
+            aggregate.accumulator().accept(window.container, event);
+            window.count++;
+        }
+
+        private boolean emit(Open<A> window, Gatherer.Downstream<? super Window<R>> downstream) {
+            R result = aggregate.finisher().apply(window.container);
+            return downstream.push(new Window<>(window.start, window.end, window.count, result));
+        }
+    }
+
+    private static final class FixedWindows<T, A, R> extends Windows<T, A, R> {
+
+        private final long length;
+        private final long hop;
+        private Open<A> latest;
+
+        FixedWindows(long length, long hop, long allowedLateness, Collector<? super T, A, R> aggregate) {
+            super(allowedLateness, aggregate);
+            this.length = length;
+            this.hop = hop;
+        }
+
+        @Override
+        void add(T event, long time) {
+            // Every window whose start lies in (time - length, time], on the hop grid
+            for (long start = Math.floorDiv(time, hop) * hop; start > time - length; start -= hop) {
+                // Mostly sorted input hits the same window again: skip the boxed TreeMap lookup
+                if (latest == null || latest.start != start) {
+                    latest = open.get(start);
+                    if (latest == null) {
+                        latest = newWindow(start, start + length);
+                        open.put(start, latest);
+                    }
+                }
+                accumulate(latest, event);
+            }
+        }
+    }
+
+    private static final class Sessions<T, A, R> extends Windows<T, A, R> {
+
+        private final long gap;
+
+        Sessions(long gap, long allowedLateness, Collector<? super T, A, R> aggregate) {
+            super(allowedLateness, aggregate);
+            this.gap = gap;
+        }
+
+        @Override
+        void add(T event, long time) {
+            // Sessions are disjoint and sorted: only neighbours of `time` can absorb it
+            Open<A> session = null;
+            Map.Entry<Long, Open<A>> before = open.floorEntry(time);
+            if (before != null && time - lastTime(before.getValue()) < gap) {
+                session = before.getValue();
+            }
+            Map.Entry<Long, Open<A>> after = open.higherEntry(time);
+            if (after != null && after.getKey() - time < gap) {
+                Open<A> next = open.remove(after.getKey());
+                if (session == null) {
+                    // The event extends the next session backwards
+                    session = next;
+                    session.start = time;
+                    open.put(time, session);
+                } else {
+                    // The event bridges two sessions: merge them with the collector's combiner
+                    session.container = aggregate.combiner().apply(session.container, next.container);
+                    session.count += next.count;
+                    session.end = next.end;
+                }
+            }
+            if (session == null) {
+                session = newWindow(time, time + gap);
+                open.put(time, session);
+            }
+            session.end = Math.max(session.end, time + gap);
+            accumulate(session, event);
+        }
+
+        private long lastTime(Open<A> session) {
+            return session.end - gap;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Gatherer;
+
+/**
+ * Runs a {@link Gatherer} on a push-based {@link Flow.Publisher}, so that the
+ * same running balance, moving average, batching or deduplication code serves
+ * both a {@code Stream} and a live feed.
+ *
+ * <p>A stream <em>pulls</em> its elements and hands them to the gatherer's
+ * integrator one by one. A publisher <em>pushes</em> them, but only as many
+ * as its subscriber requested. The operator sits in between:</p>
+ * <ul>
+ *   <li>each upstream element goes through the integrator, whose pushes are
+ *       queued for the downstream subscriber;</li>
+ *   <li>queued elements are delivered only while the subscriber has demand,
+ *       and upstream is asked for the next {@code prefetch} elements only
+ *       once the queue is empty and the subscriber still wants more. A slow
+ *       subscriber therefore slows down the publisher instead of growing a
+ *       buffer: at most {@code prefetch} inputs' worth of outputs is held;</li>
+ *   <li>when upstream completes, the finisher runs and its pushes (a last
+ *       partial batch, say) are delivered before {@code onComplete};</li>
+ *   <li>when the integrator returns {@code false} (a short-circuiting
+ *       gatherer), upstream is cancelled and the operator completes.</li>
+ * </ul>
+ *
+ * <p>Errors, from upstream or from the gatherer, are passed on at once and
+ * discard the outputs still queued. Signals are delivered to the subscriber
+ * one at a time, whichever thread requests or publishes. The gatherer's state
+ * is only touched by upstream signals, which the {@code Flow} rules already
+ * serialise, so the gatherer needs no synchronisation; its combiner is never
+ * used.</p>
+ */
+public final class FlowGatherers {
+
+    /** Upstream elements requested at a time when no prefetch is given. */
+    static final int DEFAULT_PREFETCH = 32;
+
+    private FlowGatherers() {
+    }
+
+    /**
+     * Returns a cold publisher applying {@code gatherer} to {@code source}:
+     * every subscriber gets its own gatherer state and its own subscription
+     * to {@code source}.
+     *
+     * @param <T>      the type of input elements
+     * @param <R>      the type of output elements
+     * @param source   the publisher to transform
+     * @param gatherer the transformation
+     * @return the transformed publisher
+     */
+    public static <T, R> Flow.Publisher<R> gather(Flow.Publisher<T> source, Gatherer<T, ?, R> gatherer) {
+        return gather(source, gatherer, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Same as {@link #gather(Flow.Publisher, Gatherer)}, requesting
+     * {@code prefetch} upstream elements at a time.
+     *
+     * @param <T>      the type of input elements
+     * @param <R>      the type of output elements
+     * @param source   the publisher to transform
+     * @param gatherer the transformation
+     * @param prefetch the upstream batch size (must be &gt; 0)
+     * @return the transformed publisher
+     * @throws IllegalArgumentException if {@code prefetch} is not positive
+     */
+    public static <T, R> Flow.Publisher<R> gather(Flow.Publisher<T> source, Gatherer<T, ?, R> gatherer,
+                                                  int prefetch) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(gatherer, "gatherer must not be null");
+        requirePositive(prefetch);
+        return subscriber -> {
+            var processor = new GathererProcessor<>(gatherer, prefetch);
+            processor.subscribe(subscriber);
+            source.subscribe(processor);
+        };
+    }
+
+    /**
+     * Returns a processor applying {@code gatherer} to whatever it is
+     * subscribed to. A processor holds one gatherer state: it accepts a single
+     * upstream publisher and a single subscriber.
+     *
+     * @param <T>      the type of input elements
+     * @param <R>      the type of output elements
+     * @param gatherer the transformation
+     * @return a new processor
+     */
+    public static <T, R> Flow.Processor<T, R> processor(Gatherer<T, ?, R> gatherer) {
+        return processor(gatherer, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Same as {@link #processor(Gatherer)}, requesting {@code prefetch}
+     * upstream elements at a time.
+     *
+     * @param <T>      the type of input elements
+     * @param <R>      the type of output elements
+     * @param gatherer the transformation
+     * @param prefetch the upstream batch size (must be &gt; 0)
+     * @return a new processor
+     * @throws IllegalArgumentException if {@code prefetch} is not positive
+     */
+    public static <T, R> Flow.Processor<T, R> processor(Gatherer<T, ?, R> gatherer, int prefetch) {
+        Objects.requireNonNull(gatherer, "gatherer must not be null");
+        return new GathererProcessor<>(gatherer, requirePositive(prefetch));
+    }
+
+    private static int requirePositive(int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch must be positive");
+        }
+        return prefetch;
+    }
+
+    /**
+     * The operator. Every method that may change what can be delivered calls
+     * {@link #drain()}; the work-in-progress counter lets exactly one thread
+     * run the delivery loop at a time, the others only asking it to loop again.
+     */
+    private static final class GathererProcessor<T, A, R>
+            implements Flow.Processor<T, R>, Flow.Subscription, Gatherer.Downstream<R> {
+
+        private final Gatherer.Integrator<A, T, R> integrator;
+        private final BiConsumer<A, Gatherer.Downstream<? super R>> finisher;
+        private final A state;
+        private final int prefetch;
+
+        private final Queue<R> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicLong outstanding = new AtomicLong();
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+
+        private volatile Flow.Subscriber<? super R> downstream;
+        private volatile Flow.Subscription upstream;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        /** Set once no more upstream input is wanted; read and written by upstream signals only. */
+        private boolean stopped;
+
+        GathererProcessor(Gatherer<T, A, R> gatherer, int prefetch) {
+            this.integrator = gatherer.integrator();
+            this.finisher = gatherer.finisher();
+            this.state = gatherer.initializer().get();
+            this.prefetch = prefetch;
+        }
+
+        // --- Publisher side ---
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super R> subscriber) {
+            Objects.requireNonNull(subscriber, "subscriber must not be null");
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                subscriber.onError(new IllegalStateException("a gatherer processor accepts a single subscriber"));
+                return;
+            }
+            subscriber.onSubscribe(this);
+            downstream = subscriber;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelUpstream();
+                fail(new IllegalArgumentException("request must be positive, was " + n));
+                return;
+            }
+            requested.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cancelUpstream();
+            drain();
+        }
+
+        // --- Subscriber side ---
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            Objects.requireNonNull(subscription, "subscription must not be null");
+            if (upstream != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            drain();
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (stopped || done) {
+                return;
+            }
+            outstanding.decrementAndGet();
+            try {
+                if (!integrator.integrate(state, item, this)) {
+                    stopped = true;
+                    upstream.cancel();
+                    finish();
+                }
+            } catch (RuntimeException e) {
+                stopped = true;
+                upstream.cancel();
+                fail(e);
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (stopped || done) {
+                return;
+            }
+            stopped = true;
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (stopped || done) {
+                return;
+            }
+            stopped = true;
+            try {
+                finish();
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+            drain();
+        }
+
+        // --- Gatherer.Downstream: the integrator and finisher push here ---
+
+        @Override
+        public boolean push(R element) {
+            queue.add(Objects.requireNonNull(element, "Flow elements must not be null"));
+            return !cancelled;
+        }
+
+        @Override
+        public boolean isRejecting() {
+            return cancelled;
+        }
+
+        private void cancelUpstream() {
+            var subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        private void finish() {
+            finisher.accept(state, this);
+            done = true;
+        }
+
+        private void fail(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                var subscriber = downstream;
+                if (subscriber != null && !cancelled) {
+                    deliver(subscriber);
+                }
+                if (cancelled) {
+                    queue.clear();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void deliver(Flow.Subscriber<? super R> subscriber) {
+            while (true) {
+                if (error != null) {
+                    queue.clear();
+                    cancelled = true;
+                    subscriber.onError(error);
+                    return;
+                }
+                boolean finished = done;
+                if (requested.get() > 0) {
+                    R element = queue.poll();
+                    if (element != null) {
+                        requested.decrementAndGet();
+                        subscriber.onNext(element);
+                        continue;
+                    }
+                }
+                if (finished && queue.isEmpty()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                var subscription = upstream;
+                if (!finished && queue.isEmpty() && requested.get() > 0 && subscription != null
+                        && outstanding.compareAndSet(0, prefetch)) {
+                    // The loop goes on: elements arriving synchronously are delivered below
+                    subscription.request(prefetch);
+                    continue;
+                }
+                return;
+            }
+        }
+    }
+}
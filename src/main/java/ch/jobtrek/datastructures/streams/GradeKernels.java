@@ -0,0 +1,203 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Fused loops over a primitive column of grades: the average, and the sums
+ * of the students above a passing grade, in one pass.
+ *
+ * <p>{@code students.stream().mapToDouble(Student::grade).average()} follows
+ * one pointer per student and adds the grades one after the other: every
+ * addition waits for the previous one (a floating-point add takes about four
+ * cycles), and a second filtered statistic means a second pass. The kernels
+ * here read a contiguous {@code double[]} instead, and keep
+ * {@value #LANES} independent partial sums — lane {@code i % LANES} of the
+ * array feeds partial sum {@code i % LANES}, as the lanes of a SIMD register
+ * would — so that the additions of consecutive elements overlap in the
+ * pipeline. The filter is the 0 or 1 of {@code grade >= passingGrade}, which
+ * the JIT compiler computes with a conditional move, and masks the grade's
+ * bits, so no branch depends on the data.</p>
+ *
+ * <h2>Where the grades come from</h2>
+ * <ul>
+ *   <li>{@link StudentTable} already stores them as a column, see
+ *       {@link StudentTable#gradeSummary(double)};</li>
+ *   <li>a {@code List<Student>} is copied once into a reusable scratch
+ *       buffer, see {@link #summarize(List, double)}: the copy still chases
+ *       the pointers, but only once for all the statistics, and the buffer is
+ *       allocated only when it must grow.</li>
+ * </ul>
+ *
+ * <p>Summing in a different order rounds differently: results may differ
+ * from the stream versions, which use compensated summation, in the last
+ * bits. An instance owns its scratch buffer and is not thread-safe; the
+ * static kernels are.</p>
+ */
+public final class GradeKernels {
+
+    /** The number of independent partial sums. */
+    static final int LANES = 4;
+
+    private double[] scratch = new double[0];
+
+    /**
+     * The statistics computed by one fused pass.
+     *
+     * @param count     the number of grades
+     * @param sum       the sum of all grades
+     * @param passed    the number of grades at or above the passing grade
+     * @param passedSum the sum of those grades
+     */
+    public record GradeSummary(int count, double sum, int passed, double passedSum) {
+
+        /** @return the average grade, or {@code 0.0} if there are none */
+        public double average() {
+            return count == 0 ? 0.0 : sum / count;
+        }
+
+        /** @return the average of the passing grades, or {@code 0.0} if there are none */
+        public double passedAverage() {
+            return passed == 0 ? 0.0 : passedSum / passed;
+        }
+    }
+
+    /**
+     * Computes the average of {@code grades[0..length)}.
+     *
+     * @param grades a grade column
+     * @param length the number of grades to read
+     * @return the average, or {@code 0.0} if {@code length} is zero
+     * @throws IndexOutOfBoundsException if {@code length} exceeds the array
+     */
+    public static double average(double[] grades, int length) {
+        Objects.checkFromIndexSize(0, length, grades.length);
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = 0;
+        for (int bound = length - LANES + 1; i < bound; i += LANES) {
+            s0 += grades[i];
+            s1 += grades[i + 1];
+            s2 += grades[i + 2];
+            s3 += grades[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += grades[i];
+        }
+        return length == 0 ? 0.0 : ((s0 + s1) + (s2 + s3)) / length;
+    }
+
+    /**
+     * Computes the average and the passing statistics of
+     * {@code grades[0..length)} in one pass.
+     *
+     * @param grades       a grade column
+     * @param length       the number of grades to read
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     * @return the statistics
+     * @throws IndexOutOfBoundsException if {@code length} exceeds the array
+     */
+    public static GradeSummary summarize(double[] grades, int length, double passingGrade) {
+        Objects.checkFromIndexSize(0, length, grades.length);
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        double p0 = 0;
+        double p1 = 0;
+        double p2 = 0;
+        double p3 = 0;
+        int passed = 0;
+        int i = 0;
+        for (int bound = length - LANES + 1; i < bound; i += LANES) {
+            double g0 = grades[i];
+            double g1 = grades[i + 1];
+            double g2 = grades[i + 2];
+            double g3 = grades[i + 3];
+            long m0 = passes(g0, passingGrade);
+            long m1 = passes(g1, passingGrade);
+            long m2 = passes(g2, passingGrade);
+            long m3 = passes(g3, passingGrade);
+            s0 += g0;
+            s1 += g1;
+            s2 += g2;
+            s3 += g3;
+            p0 += select(g0, m0);
+            p1 += select(g1, m1);
+            p2 += select(g2, m2);
+            p3 += select(g3, m3);
+            passed += (int) (m0 + m1 + m2 + m3);
+        }
+        for (; i < length; i++) {
+            long m = passes(grades[i], passingGrade);
+            s0 += grades[i];
+            p0 += select(grades[i], m);
+            passed += (int) m;
+        }
+        return new GradeSummary(length, (s0 + s1) + (s2 + s3), passed, (p0 + p1) + (p2 + p3));
+    }
+
+    /**
+     * Returns 1 if {@code grade >= passingGrade}, 0 otherwise. The comparison
+     * compiles to a conditional move, not a branch, and it treats
+     * {@code -0.0} and {@code NaN} exactly like the stream versions do.
+     */
+    private static long passes(double grade, double passingGrade) {
+        return grade >= passingGrade ? 1 : 0;
+    }
+
+    /**
+     * Returns {@code grade} if {@code mask} is 1, {@code +0.0} if it is 0, by
+     * masking its bits: unlike {@code grade * mask}, a failing {@code NaN}
+     * does not leak into the sum ({@code NaN * 0} is {@code NaN}), and unlike
+     * a {@code double} ternary, it never compiles to a branch.
+     */
+    private static double select(double grade, long mask) {
+        return Double.longBitsToDouble(Double.doubleToRawLongBits(grade) & -mask);
+    }
+
+    /**
+     * Same result as {@link StreamGatherersExercise#computeAverageGrade(List)},
+     * up to rounding, through the scratch buffer.
+     *
+     * @param students the input list of students (may be empty)
+     * @return the average grade, or {@code 0.0} if the list is empty
+     */
+    public double computeAverageGrade(List<Student> students) {
+        return average(load(students), students.size());
+    }
+
+    /**
+     * Copies the grades of {@code students} into the scratch buffer and
+     * summarises them in one pass.
+     *
+     * @param students     the input list of students (may be empty)
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     * @return the statistics
+     */
+    public GradeSummary summarize(List<Student> students, double passingGrade) {
+        return summarize(load(students), students.size(), passingGrade);
+    }
+
+    /** @return the current capacity of the scratch buffer, in grades */
+    public int scratchCapacity() {
+        return scratch.length;
+    }
+
+    private double[] load(List<Student> students) {
+        Objects.requireNonNull(students, "students must not be null");
+        int size = students.size();
+        if (scratch.length < size) {
+            scratch = new double[Math.max(size, scratch.length + (scratch.length >> 1))];
+        }
+        int i = 0;
+        for (Student student : students) {
+            scratch[i++] = student.grade();
+        }
+        return scratch;
+    }
+}
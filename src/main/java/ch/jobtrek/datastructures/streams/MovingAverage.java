@@ -0,0 +1,329 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.nio.BufferUnderflowException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.Gatherer;
+import java.util.stream.StreamSupport;
+
+/**
+ * An incremental moving average over the last {@code windowSize} values, kept
+ * in a primitive ring buffer with a running, compensated sum.
+ *
+ * <p>{@code Gatherers.windowSliding(w)} followed by an average of each window
+ * copies the window into a new {@code List<Double>} for every element and then
+ * re-adds its {@code w} values: O(n·w) time and one list per element. With
+ * windows of 10,000 readings that is 10,000 additions and a 10,000-slot list
+ * for every single reading. Here each new value is added to the running sum
+ * and the value leaving the window is subtracted, so every average costs O(1)
+ * and nothing is allocated once the buffer exists.</p>
+ *
+ * <h2>Numerical accuracy</h2>
+ * <p>Adding and subtracting millions of values would let rounding errors pile
+ * up in a plain {@code double} sum. The running sum uses Neumaier's variant of
+ * Kahan summation: the low-order bits lost by each addition are collected in a
+ * separate compensation term and added back when the average is read.</p>
+ *
+ * <h2>Ways to use it</h2>
+ * <ul>
+ *   <li>{@link #gatherer(int)} — a drop-in replacement for
+ *       {@code windowSliding(w)} + average on a {@code Stream<Double>};</li>
+ *   <li>{@link #of(DoubleStream, int)} — the same on a {@link DoubleStream},
+ *       without boxing anything;</li>
+ *   <li>{@link #accept(double)} / {@link #average()} — directly, e.g. in a loop
+ *       reading a sensor feed.</li>
+ * </ul>
+ *
+ * <h2>Checkpoints</h2>
+ * <p>{@link #snapshot()} encodes the window and the running sum in a compact
+ * binary form (the values present, not the empty slots), and
+ * {@link #restore(byte[])} rebuilds an identical moving average. With
+ * {@link #gatherer(MovingAverage)}, a long replay can save its state, and
+ * after a restart resume its input at {@link #accepted()} instead of from the
+ * beginning.</p>
+ *
+ * <p>Like {@code windowSliding}, an input shorter than the window produces a
+ * single average of all its values, and an empty input produces nothing. This
+ * class is not thread-safe.</p>
+ */
+public final class MovingAverage implements DoubleConsumer {
+
+    /** The largest window {@link #restore(byte[])} accepts without being told the expected size. */
+    public static final int MAX_RESTORED_WINDOW = 1 << 20;
+
+    private final double[] window;
+    private int next;
+    private int count;
+    private long accepted;
+    private double sum;
+    private double compensation;
+
+    /**
+     * Creates an empty moving average.
+     *
+     * @param windowSize the number of most recent values averaged (must be &gt; 0)
+     * @throws IllegalArgumentException if {@code windowSize} is not positive
+     */
+    public MovingAverage(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.window = new double[windowSize];
+    }
+
+    /**
+     * Adds a value, evicting the oldest one once the window is full.
+     *
+     * @param value the new value
+     */
+    @Override
+    public void accept(double value) {
+        if (count == window.length) {
+            add(-window[next]);
+        } else {
+            count++;
+        }
+        window[next] = value;
+        add(value);
+        next = next + 1 == window.length ? 0 : next + 1;
+        accepted++;
+    }
+
+    /**
+     * Returns whether the window holds {@code windowSize} values.
+     *
+     * @return {@code true} once at least {@code windowSize} values were accepted
+     */
+    public boolean isFull() {
+        return count == window.length;
+    }
+
+    /**
+     * Returns the number of values currently in the window.
+     *
+     * @return a number between 0 and {@code windowSize}
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of values accepted since creation or the last reset,
+     * including those that already left the window: where to resume the input
+     * after restoring a {@linkplain #snapshot() snapshot}.
+     *
+     * @return the number of accepted values
+     */
+    public long accepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the window size given at construction.
+     *
+     * @return the window size
+     */
+    public int windowSize() {
+        return window.length;
+    }
+
+    /**
+     * Returns the average of the values currently in the window.
+     *
+     * @return the average, or {@code 0.0} if no value was accepted yet
+     */
+    public double average() {
+        return count == 0 ? 0.0 : (sum + compensation) / count;
+    }
+
+    /**
+     * Empties the window, keeping its buffer.
+     */
+    public void reset() {
+        next = 0;
+        count = 0;
+        accepted = 0;
+        sum = 0;
+        compensation = 0;
+    }
+
+    /**
+     * Encodes the state in a compact binary form: the window size, the values
+     * in the window from oldest to newest, the running sum and its
+     * compensation, and the number of accepted values.
+     *
+     * @return a snapshot to pass to {@link #restore(byte[])}
+     */
+    public byte[] snapshot() {
+        var buffer = Checkpoints.writer(Checkpoints.MOVING_AVERAGE,
+                2 * Integer.BYTES + Long.BYTES + (2 + count) * Double.BYTES)
+                .putInt(window.length)
+                .putInt(count)
+                .putLong(accepted)
+                .putDouble(sum)
+                .putDouble(compensation);
+        int oldest = count == window.length ? next : 0;
+        for (int i = 0; i < count; i++) {
+            buffer.putDouble(window[(oldest + i) % window.length]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Rebuilds a moving average from a snapshot. The running sum is restored
+     * as saved, not recomputed, so the averages continue bit for bit.
+     *
+     * <p>The window is allocated before its values are read, so its size is
+     * bounded by {@value #MAX_RESTORED_WINDOW}: a corrupted snapshot fails with
+     * an exception instead of exhausting the heap. Restore larger windows with
+     * {@link #restore(byte[], int)}.</p>
+     *
+     * @param snapshot bytes returned by {@link #snapshot()}
+     * @return a moving average in the saved state
+     * @throws IllegalArgumentException if {@code snapshot} is not a valid moving-average snapshot,
+     *                                  or if its window is larger than {@value #MAX_RESTORED_WINDOW}
+     */
+    public static MovingAverage restore(byte[] snapshot) {
+        return restore(snapshot, 1, MAX_RESTORED_WINDOW);
+    }
+
+    /**
+     * Rebuilds a moving average from a snapshot whose window size is known.
+     *
+     * @param snapshot           bytes returned by {@link #snapshot()}
+     * @param expectedWindowSize the window size the snapshot must have (must be &gt; 0)
+     * @return a moving average in the saved state
+     * @throws IllegalArgumentException if {@code snapshot} is not a valid moving-average snapshot
+     *                                  of a window of {@code expectedWindowSize} values
+     */
+    public static MovingAverage restore(byte[] snapshot, int expectedWindowSize) {
+        if (expectedWindowSize <= 0) {
+            throw new IllegalArgumentException("expectedWindowSize must be positive");
+        }
+        return restore(snapshot, expectedWindowSize, expectedWindowSize);
+    }
+
+    private static MovingAverage restore(byte[] snapshot, int minWindowSize, int maxWindowSize) {
+        var buffer = Checkpoints.reader(snapshot, Checkpoints.MOVING_AVERAGE);
+        try {
+            int windowSize = buffer.getInt();
+            int count = buffer.getInt();
+            if (windowSize < minWindowSize || windowSize > maxWindowSize) {
+                throw new IllegalArgumentException("snapshot has a window of " + windowSize
+                        + ", expected between " + minWindowSize + " and " + maxWindowSize);
+            }
+            if (count < 0 || count > windowSize) {
+                throw new IllegalArgumentException("snapshot has an invalid window: " + count + " of " + windowSize);
+            }
+            if (buffer.remaining() != Long.BYTES + (2L + count) * Double.BYTES) {
+                throw new IllegalArgumentException("snapshot size does not match its window");
+            }
+            var restored = new MovingAverage(windowSize);
+            restored.accepted = buffer.getLong();
+            restored.sum = buffer.getDouble();
+            restored.compensation = buffer.getDouble();
+            for (int i = 0; i < count; i++) {
+                restored.window[i] = buffer.getDouble();
+            }
+            restored.count = count;
+            restored.next = count == windowSize ? 0 : count;
+            return restored;
+        } catch (BufferUnderflowException e) {
+            throw Checkpoints.truncated(e);
+        }
+    }
+
+    private void add(double value) {
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - total) + value;
+        } else {
+            compensation += (value - total) + sum;
+        }
+        sum = total;
+    }
+
+    /**
+     * Returns a gatherer that emits the moving average of each window of
+     * {@code windowSize} consecutive values, like
+     * {@code gather(Gatherers.windowSliding(windowSize)).map(average)} but in
+     * O(1) per element.
+     *
+     * @param windowSize the number of values per window (must be &gt; 0)
+     * @return a sequential gatherer of moving averages
+     * @throws IllegalArgumentException if {@code windowSize} is not positive
+     */
+    public static Gatherer<Number, ?, Double> gatherer(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        return gatherer(() -> new MovingAverage(windowSize));
+    }
+
+    /**
+     * Same as {@link #gatherer(int)}, continuing from {@code state} instead of
+     * an empty window. The state is shared, not copied: it can be snapshotted
+     * between elements or once the stream is done.
+     *
+     * @param state the moving average to continue, e.g. one restored from a snapshot
+     * @return a sequential gatherer of moving averages
+     */
+    public static Gatherer<Number, ?, Double> gatherer(MovingAverage state) {
+        Objects.requireNonNull(state, "state must not be null");
+        return gatherer(() -> state);
+    }
+
+    private static Gatherer<Number, ?, Double> gatherer(Supplier<MovingAverage> initializer) {
+        return Gatherer.<Number, MovingAverage, Double>ofSequential(
+                initializer,
+                Gatherer.Integrator.ofGreedy((average, value, downstream) -> {
+                    average.accept(value.doubleValue());
+                    return !average.isFull() || downstream.push(average.average());
+                }),
+                (average, downstream) -> {
+                    if (average.count() > 0 && !average.isFull()) {
+                        downstream.push(average.average());
+                    }
+                });
+    }
+
+    /**
+     * Returns a lazy stream of the moving averages of {@code values}, without
+     * boxing any element.
+     *
+     * @param values     the source values; closing the result closes this stream
+     * @param windowSize the number of values per window (must be &gt; 0)
+     * @return the moving averages, one per window
+     * @throws IllegalArgumentException if {@code windowSize} is not positive
+     */
+    public static DoubleStream of(DoubleStream values, int windowSize) {
+        Objects.requireNonNull(values, "values must not be null");
+        var average = new MovingAverage(windowSize);
+        Spliterator.OfDouble source = values.spliterator();
+        var averages = new Spliterators.AbstractDoubleSpliterator(Long.MAX_VALUE, Spliterator.ORDERED) {
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(DoubleConsumer action) {
+                while (!exhausted) {
+                    if (!source.tryAdvance(average)) {
+                        exhausted = true;
+                        if (average.count() > 0 && !average.isFull()) {
+                            action.accept(average.average());
+                            return true;
+                        }
+                    } else if (average.isFull()) {
+                        action.accept(average.average());
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.doubleStream(averages, false).onClose(values::close);
+    }
+}
@@ -0,0 +1,255 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A ledger of {@code int} transactions kept outside the Java heap, with its
+ * running balance computed there too.
+ *
+ * <p>{@code computeRunningBalance(List<Integer>)} holds every transaction as a
+ * boxed {@code Integer} — a reference plus a 16-byte object, about 20 bytes
+ * for 4 bytes of data — and its result as a second list of the same size: a
+ * billion transactions need tens of gigabytes of heap, and the garbage
+ * collector walks all of it. Here the transactions are a column of 4-byte
+ * {@code int}s in a {@link MemorySegment}, and the balances a column of
+ * 8-byte {@code long}s (a sum of billions of {@code int}s overflows an
+ * {@code int}):</p>
+ * <ul>
+ *   <li>{@link #allocate(long)} places the column in native memory, freed by
+ *       {@link #close()};</li>
+ *   <li>{@link #mapped(Path, long)} maps it from a file: the operating system
+ *       pages it in and out, so the ledger may exceed physical memory and
+ *       survives the process;</li>
+ *   <li>{@link #runningBalances()} and {@link #persistRunningBalances(Path)}
+ *       compute the prefix sums straight into a native or file-mapped
+ *       segment.</li>
+ * </ul>
+ * <p>None of these allocate on the heap in proportion to the ledger: heap use
+ * stays flat whatever its size.</p>
+ *
+ * <h2>Chunks</h2>
+ * <p>Segments are indexed by {@code long}, and the JIT compiler optimises
+ * {@code int}-counted loops better (range-check elimination, unrolling). The
+ * prefix sum therefore walks the columns in slices of {@value #CHUNK_ENTRIES}
+ * entries, with an {@code int} loop inside each slice and the running total
+ * carried from one slice to the next.</p>
+ *
+ * <p>A ledger is not thread-safe; its segments may be read from any thread
+ * until it is closed.</p>
+ */
+public final class OffHeapLedger implements AutoCloseable {
+
+    /** Entries per slice of the prefix-sum loop. */
+    static final int CHUNK_ENTRIES = 1 << 16;
+
+    private static final ValueLayout.OfInt AMOUNT = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfLong BALANCE = ValueLayout.JAVA_LONG;
+
+    private final Arena arena;
+    private final MemorySegment amounts;
+    private final Path file;
+    private long size;
+    private MemorySegment balances;
+    private long balanced;
+
+    private OffHeapLedger(Arena arena, MemorySegment amounts, Path file, long size) {
+        this.arena = arena;
+        this.amounts = amounts;
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * Creates an empty ledger in native memory.
+     *
+     * @param capacity the maximum number of transactions (must be &gt; 0)
+     * @return a new ledger, to be closed
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public static OffHeapLedger allocate(long capacity) {
+        requirePositive(capacity);
+        var arena = Arena.ofShared();
+        return new OffHeapLedger(arena, arena.allocate(capacity * AMOUNT.byteSize(), AMOUNT.byteAlignment()),
+                null, 0);
+    }
+
+    /**
+     * Opens a ledger stored in {@code file}, creating the file if needed. The
+     * transactions already in the file are kept and new ones are appended;
+     * the file is grown to {@code capacity} while open, and trimmed back to
+     * its transactions by {@link #close()}.
+     *
+     * @param file     the ledger file: native-order {@code int}s, one per transaction
+     * @param capacity the maximum number of transactions, existing ones included (must be &gt; 0)
+     * @return a new ledger, to be closed
+     * @throws IOException              if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if {@code capacity} is not positive or below the existing size
+     */
+    public static OffHeapLedger mapped(Path file, long capacity) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        requirePositive(capacity);
+        long existing = Files.exists(file) ? Files.size(file) / AMOUNT.byteSize() : 0;
+        if (existing > capacity) {
+            throw new IllegalArgumentException("capacity must be at least the " + existing
+                    + " transactions already in " + file);
+        }
+        var arena = Arena.ofShared();
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            var segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity * AMOUNT.byteSize(), arena);
+            return new OffHeapLedger(arena, segment, file, existing);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a transaction.
+     *
+     * @param amount the amount, positive for a credit, negative for a debit
+     * @throws IllegalStateException if the ledger is full
+     */
+    public void append(int amount) {
+        if (size == capacity()) {
+            throw new IllegalStateException("ledger is full (" + size + " transactions)");
+        }
+        amounts.setAtIndex(AMOUNT, size++, amount);
+    }
+
+    /**
+     * Returns one transaction.
+     *
+     * @param index the transaction index, {@code 0 ≤ index < size()}
+     * @return its amount
+     * @throws IndexOutOfBoundsException if {@code index} is outside the ledger
+     */
+    public int amount(long index) {
+        Objects.checkIndex(index, size);
+        return amounts.getAtIndex(AMOUNT, index);
+    }
+
+    /** @return the number of transactions */
+    public long size() {
+        return size;
+    }
+
+    /** @return the maximum number of transactions */
+    public long capacity() {
+        return amounts.byteSize() / AMOUNT.byteSize();
+    }
+
+    /**
+     * Computes the running balance after every transaction into a native
+     * {@code long} column owned by this ledger, allocated for the full
+     * capacity on first use. Only the transactions appended since the
+     * previous call are summed.
+     *
+     * @return a read-only segment of {@code size()} native-order {@code long}s
+     */
+    public MemorySegment runningBalances() {
+        if (balances == null) {
+            balances = arena.allocate(capacity() * BALANCE.byteSize(), BALANCE.byteAlignment());
+        }
+        long carry = balanced == 0 ? 0 : balances.getAtIndex(BALANCE, balanced - 1);
+        prefixSum(amounts, balanced, size, balances, balanced, carry);
+        balanced = size;
+        return balances.asSlice(0, size * BALANCE.byteSize()).asReadOnly();
+    }
+
+    /**
+     * Returns the running balance after one transaction.
+     *
+     * @param index the transaction index, {@code 0 ≤ index < size()}
+     * @return the sum of the amounts up to and including {@code index}
+     * @throws IndexOutOfBoundsException if {@code index} is outside the ledger
+     */
+    public long balance(long index) {
+        Objects.checkIndex(index, size);
+        if (index >= balanced) {
+            runningBalances();
+        }
+        return balances.getAtIndex(BALANCE, index);
+    }
+
+    /**
+     * Writes the running balance column to {@code target}, replacing it: the
+     * prefix sums are computed straight into the mapped file, which is then
+     * forced to storage.
+     *
+     * @param target the output file: {@code size()} native-order {@code long}s
+     * @return the final balance, or {@code 0} if the ledger is empty
+     * @throws IOException if the file cannot be written
+     */
+    public long persistRunningBalances(Path target) throws IOException {
+        Objects.requireNonNull(target, "target must not be null");
+        try (var output = Arena.ofConfined();
+             var channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (size == 0) {
+                return 0;
+            }
+            var column = channel.map(FileChannel.MapMode.READ_WRITE, 0, size * BALANCE.byteSize(), output);
+            long last = prefixSum(amounts, 0, size, column, 0, 0);
+            column.force();
+            return last;
+        }
+    }
+
+    /**
+     * Frees the native memory or unmaps the file; a mapped ledger's file is
+     * trimmed to its transactions. Segments returned by this ledger become
+     * inaccessible.
+     *
+     * @throws IOException if the file cannot be trimmed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!arena.scope().isAlive()) {
+            return;
+        }
+        if (file != null) {
+            amounts.force();
+        }
+        arena.close();
+        if (file != null) {
+            try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(size * AMOUNT.byteSize());
+            }
+        }
+    }
+
+    /**
+     * Writes {@code carry + amounts[from..i]} to {@code balances[offset + i - from]}
+     * for every {@code i} in {@code [from, to)}, one slice at a time.
+     *
+     * @return the last running balance, {@code carry} if the range is empty
+     */
+    static long prefixSum(MemorySegment amounts, long from, long to, MemorySegment balances, long offset,
+                          long carry) {
+        for (long start = from; start < to; start += CHUNK_ENTRIES) {
+            int length = (int) Math.min(CHUNK_ENTRIES, to - start);
+            var in = amounts.asSlice(start * AMOUNT.byteSize(), length * AMOUNT.byteSize());
+            var out = balances.asSlice((offset + start - from) * BALANCE.byteSize(), length * BALANCE.byteSize());
+            for (int i = 0; i < length; i++) {
+                carry += in.getAtIndex(AMOUNT, i);
+                out.setAtIndex(BALANCE, i, carry);
+            }
+        }
+        return carry;
+    }
+
+    private static void requirePositive(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * Splits a list in two, by a predicate, on several cores.
+ *
+ * <p>On a parallel stream, {@code Collectors.partitioningBy} gives every
+ * worker its own pair of lists, then merges them pairwise by copying the right
+ * lists onto the left ones: the last merges copy almost all the elements on a
+ * single thread. {@code groupingByConcurrent} shares one map instead, and its
+ * threads contend on the same two synchronised lists. This partitioner knows
+ * where every element goes before writing any of them:</p>
+ * <ol>
+ *   <li><strong>Count</strong> — the list is cut into blocks, and every block
+ *       evaluates the predicate once per element in parallel, remembering the
+ *       answer in a bitmap and counting the matches;</li>
+ *   <li><strong>Offsets</strong> — a sequential scan over the block counts
+ *       (a few hundred numbers) gives, for each block, where its matching and
+ *       non-matching elements start in two arrays of exactly the right size;</li>
+ *   <li><strong>Scatter</strong> — every block copies its elements to those
+ *       positions, in parallel again. The ranges are disjoint, so no lock,
+ *       no atomic and no merge is needed.</li>
+ * </ol>
+ * <p>Both passes are parallel and each element is copied exactly once, so the
+ * work divides by the number of cores until memory bandwidth is the limit.
+ * Encounter order is kept within each partition, as with {@code partitioningBy}.</p>
+ */
+public final class ParallelPartitioner {
+
+    /** Lists shorter than this are partitioned sequentially: forking would cost more than it saves. */
+    static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    private static final int MIN_BLOCK_SIZE = 1 << 13;
+
+    private ParallelPartitioner() {
+    }
+
+    /**
+     * Partitions {@code source} in the common fork-join pool.
+     *
+     * @param <T>       the type of elements
+     * @param source    a random-access list
+     * @param predicate decides the partition of each element; called once per element
+     * @return {@code true} → matching elements, {@code false} → the others, as unmodifiable lists
+     */
+    public static <T> Map<Boolean, List<T>> partition(List<T> source, Predicate<? super T> predicate) {
+        return partition(source, predicate, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Partitions {@code source} with the given pool.
+     *
+     * @param <T>       the type of elements
+     * @param source    a random-access list
+     * @param predicate decides the partition of each element; called once per element
+     * @param pool      the pool running the two parallel passes
+     * @return {@code true} → matching elements, {@code false} → the others, as unmodifiable lists
+     * @throws IllegalArgumentException if {@code source} is not {@link RandomAccess}
+     */
+    public static <T> Map<Boolean, List<T>> partition(List<T> source, Predicate<? super T> predicate,
+                                                      ForkJoinPool pool) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(predicate, "predicate must not be null");
+        Objects.requireNonNull(pool, "pool must not be null");
+        if (!(source instanceof RandomAccess)) {
+            throw new IllegalArgumentException("source must be a RandomAccess list");
+        }
+        int size = source.size();
+        // Blocks are whole multiples of 64, so that no two blocks write the same bitmap word
+        int blockSize = size < SEQUENTIAL_THRESHOLD || pool.getParallelism() == 1
+                ? Math.max(64, size)
+                : Math.max(MIN_BLOCK_SIZE, size / (pool.getParallelism() * 4));
+        int alignedBlockSize = (blockSize + 63) & ~63;
+        int blocks = Math.max(1, (size + alignedBlockSize - 1) / alignedBlockSize);
+        long[] matches = new long[(size + 63) >>> 6];
+        int[] counts = new int[blocks];
+
+        // Pass 1: evaluate the predicate once per element and count the matches per block
+        run(pool, blocks, block -> {
+            int count = 0;
+            for (int i = block * alignedBlockSize, to = Math.min(size, i + alignedBlockSize); i < to; i++) {
+                if (predicate.test(source.get(i))) {
+                    matches[i >>> 6] |= 1L << i;
+                    count++;
+                }
+            }
+            counts[block] = count;
+        });
+
+        // Sequential scan of the counts: where each block starts in both outputs
+        int[] trueOffsets = new int[blocks];
+        int[] falseOffsets = new int[blocks];
+        int trueTotal = 0;
+        for (int block = 0; block < blocks; block++) {
+            trueOffsets[block] = trueTotal;
+            falseOffsets[block] = block * alignedBlockSize - trueTotal;
+            trueTotal += counts[block];
+        }
+        Object[] trues = new Object[trueTotal];
+        Object[] falses = new Object[size - trueTotal];
+
+        // Pass 2: copy every element to its precomputed, block-private position
+        run(pool, blocks, block -> {
+            int t = trueOffsets[block];
+            int f = falseOffsets[block];
+            for (int i = block * alignedBlockSize, to = Math.min(size, i + alignedBlockSize); i < to; i++) {
+                if ((matches[i >>> 6] & (1L << i)) != 0) {
+                    trues[t++] = source.get(i);
+                } else {
+                    falses[f++] = source.get(i);
+                }
+            }
+        });
+        return Map.of(true, asList(trues), false, asList(falses));
+    }
+
+    /**
+     * Same result as {@code StreamGatherersExercise.groupStudentsByPassFail},
+     * computed in parallel in the common pool.
+     *
+     * @param students     a random-access list of students
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     * @return {@code true} → passing students, {@code false} → failing students
+     */
+    public static Map<Boolean, List<Student>> groupStudentsByPassFail(List<Student> students, double passingGrade) {
+        return partition(students, student -> student.grade() >= passingGrade);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(Object[] elements) {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(elements));
+    }
+
+    private static void run(ForkJoinPool pool, int blocks, BlockAction action) {
+        if (blocks == 1) {
+            action.run(0);
+        } else {
+            pool.invoke(new BlockTask(0, blocks, action));
+        }
+    }
+
+    /**
+     * Runs an action for each block in {@code [from, to)}, splitting the range
+     * in halves until one block is left.
+     */
+    private static final class BlockTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final BlockAction action;
+
+        BlockTask(int from, int to, BlockAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    action.run(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BlockTask(from, middle, action), new BlockTask(middle, to, action));
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlockAction {
+        void run(int block);
+    }
+}
@@ -0,0 +1,228 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Gatherer;
+
+/**
+ * Prefix sums (running balances) computed on several cores.
+ *
+ * <p>{@code Gatherers.scan(() -> 0, Integer::sum)} is sequential by nature:
+ * each running total depends on the previous one, so replaying a ledger of 100
+ * million transactions keeps a single core busy. A prefix sum can still be
+ * split with a <em>blocked scan</em>:</p>
+ * <ol>
+ *   <li><strong>Local scan</strong> — the input is cut into blocks, and every
+ *       block computes its own prefix sums in parallel, as if it started at 0;</li>
+ *   <li><strong>Block offsets</strong> — a sequential scan over the block
+ *       <em>totals</em> (a few hundred numbers) gives the balance before each block;</li>
+ *   <li><strong>Fix-up</strong> — every block adds its offset to its values, in
+ *       parallel again.</li>
+ * </ol>
+ * <p>The work is about twice that of a sequential loop, but it is spread over
+ * all cores, so the speed-up approaches half the core count on large inputs.
+ * Sums are accumulated in {@code long}, so a large ledger does not overflow.</p>
+ *
+ * <p>{@link #gatherer()} exposes the same idea as a stream operation: its
+ * combiner concatenates two partial scans by recording an offset per segment,
+ * and the offsets are applied once, when the results are pushed downstream.</p>
+ */
+public final class ParallelPrefixSum {
+
+    /** Inputs shorter than this are scanned sequentially: forking would cost more than it saves. */
+    static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+
+    private static final int MIN_BLOCK_SIZE = 1 << 14;
+
+    private ParallelPrefixSum() {
+    }
+
+    /**
+     * Returns the running sums of {@code values} in the common fork-join pool.
+     *
+     * @param values the transactions, in chronological order
+     * @return an array where element {@code i} is {@code values[0] + ... + values[i]}
+     */
+    public static long[] prefixSums(int[] values) {
+        return prefixSums(values, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the running sums of {@code values}, computed by the given pool.
+     *
+     * @param values the transactions, in chronological order
+     * @param pool   the pool running the two parallel passes
+     * @return an array where element {@code i} is {@code values[0] + ... + values[i]}
+     */
+    public static long[] prefixSums(int[] values, ForkJoinPool pool) {
+        Objects.requireNonNull(values, "values must not be null");
+        Objects.requireNonNull(pool, "pool must not be null");
+        long[] sums = new long[values.length];
+        if (values.length < SEQUENTIAL_THRESHOLD || pool.getParallelism() == 1) {
+            scan(values, sums, 0, values.length, 0);
+            return sums;
+        }
+
+        int blockSize = Math.max(MIN_BLOCK_SIZE, values.length / (pool.getParallelism() * 4));
+        int blocks = (values.length + blockSize - 1) / blockSize;
+        long[] offsets = new long[blocks];
+
+        // Pass 1: every block scans itself from 0
+        pool.invoke(new BlockTask(0, blocks, block -> {
+            int from = block * blockSize;
+            int to = Math.min(values.length, from + blockSize);
+            scan(values, sums, from, to, 0);
+        }));
+
+        // Sequential scan of the block totals: offsets[b] is the balance before block b
+        long balance = 0;
+        for (int block = 0; block < blocks; block++) {
+            offsets[block] = balance;
+            balance += sums[Math.min(values.length, (block + 1) * blockSize) - 1];
+        }
+
+        // Pass 2: every block but the first adds its offset
+        pool.invoke(new BlockTask(1, blocks, block -> {
+            int from = block * blockSize;
+            int to = Math.min(values.length, from + blockSize);
+            long offset = offsets[block];
+            for (int i = from; i < to; i++) {
+                sums[i] += offset;
+            }
+        }));
+        return sums;
+    }
+
+    private static void scan(int[] values, long[] sums, int from, int to, long start) {
+        long sum = start;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+            sums[i] = sum;
+        }
+    }
+
+    /**
+     * Runs an action for each block in {@code [from, to)}, splitting the range
+     * in halves until one block is left.
+     */
+    private static final class BlockTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final BlockAction action;
+
+        BlockTask(int from, int to, BlockAction action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    action.run(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BlockTask(from, middle, action), new BlockTask(middle, to, action));
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlockAction {
+        void run(int block);
+    }
+
+    // -----------------------------------------------------------------------
+    // Gatherer
+    // -----------------------------------------------------------------------
+
+    /**
+     * Returns a gatherer emitting the running sum after each element, which
+     * can be evaluated in parallel.
+     *
+     * <p>Each parallel worker scans its share of the stream from 0 into a
+     * <em>segment</em>. Combining two partial results appends the right
+     * segments to the left ones and adds the left total to their offsets, in
+     * O(number of segments). The finisher then pushes every local sum plus
+     * its segment offset, in encounter order. The results are therefore
+     * buffered until the end of the stream.</p>
+     *
+     * @return a parallel-capable running-sum gatherer
+     */
+    public static Gatherer<Integer, ?, Long> gatherer() {
+        return Gatherer.<Integer, Segments, Long>of(
+                Segments::new,
+                Gatherer.Integrator.ofGreedy((segments, value, downstream) -> {
+                    segments.add(value);
+                    return true;
+                }),
+                Segments::combine,
+                Segments::pushAll);
+    }
+
+    /**
+     * The state of {@link #gatherer()}: the partial scans of one worker, each
+     * with the balance accumulated before it.
+     */
+    static final class Segments {
+
+        private final List<long[]> sums = new ArrayList<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private long[] current = new long[256];
+        private int length;
+        private long total;
+
+        void add(int value) {
+            if (length == current.length) {
+                current = Arrays.copyOf(current, length * 2);
+            }
+            long previous = length == 0 ? 0 : current[length - 1];
+            current[length++] = previous + value;
+        }
+
+        /** Closes the segment being filled, so that it gets its own offset. */
+        private void seal() {
+            if (length > 0) {
+                sums.add(current);
+                lengths.add(length);
+                offsets.add(total);
+                total += current[length - 1];
+                current = new long[256];
+                length = 0;
+            }
+        }
+
+        Segments combine(Segments right) {
+            seal();
+            right.seal();
+            for (int i = 0; i < right.sums.size(); i++) {
+                sums.add(right.sums.get(i));
+                lengths.add(right.lengths.get(i));
+                offsets.add(total + right.offsets.get(i));
+            }
+            total += right.total;
+            return this;
+        }
+
+        void pushAll(Gatherer.Downstream<? super Long> downstream) {
+            seal();
+            for (int s = 0; s < sums.size(); s++) {
+                long[] segment = sums.get(s);
+                long offset = offsets.get(s);
+                for (int i = 0, n = lengths.get(s); i < n; i++) {
+                    if (!downstream.push(offset + segment[i])) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
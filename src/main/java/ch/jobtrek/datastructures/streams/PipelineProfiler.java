@@ -0,0 +1,263 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.stream.Gatherer;
+import java.util.stream.Stream;
+
+/**
+ * An opt-in profiler that shows which stage of a stream pipeline does the work.
+ *
+ * <p>A stream runs all its stages in one fused loop, so a CPU profiler shows a
+ * stack of lambdas and spliterators rather than "the filter took 80%". The
+ * profiler measures each stage on its own:</p>
+ * <ul>
+ *   <li>{@link #stage(String, Gatherer)} wraps a gatherer and counts the
+ *       elements it receives and pushes;</li>
+ *   <li>{@link #probe(Stream, String)} inserts a pass-through measuring point
+ *       between standard operations such as {@code filter()} and
+ *       {@code map()}.</li>
+ * </ul>
+ *
+ * <p>Streams are <em>push</em> pipelines: when a stage pushes an element, the
+ * call returns only after every later stage has processed it. Each measuring
+ * point therefore records <em>inclusive</em> time and allocated bytes, which
+ * cover itself and everything downstream, and {@link #report()} derives the
+ * <em>self</em> share of each point by subtracting the inclusive cost of the
+ * next one, like the frames of a flame graph. This assumes the points are
+ * registered in pipeline order, in a single linear pipeline.</p>
+ *
+ * <h2>Cost</h2>
+ * <p>A {@linkplain #disabled() disabled} profiler returns the gatherer or the
+ * stream it is given, unchanged: the pipeline is exactly the one without
+ * profiling. An enabled profiler reads the clock and the thread allocation
+ * counter around every element, which costs some tens of nanoseconds per
+ * element and stage: use it to compare stages, not to time a pipeline.</p>
+ *
+ * <p>Counters are {@link LongAdder}s, so stages may run on a parallel stream;
+ * their times then add up the work of all threads.</p>
+ */
+public final class PipelineProfiler {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final boolean enabled;
+    private final List<Stats> stages = Collections.synchronizedList(new ArrayList<>());
+
+    private PipelineProfiler(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** @return a profiler that measures every stage and probe */
+    public static PipelineProfiler enabled() {
+        return new PipelineProfiler(true);
+    }
+
+    /** @return a profiler whose stages and probes are the unwrapped originals */
+    public static PipelineProfiler disabled() {
+        return new PipelineProfiler(false);
+    }
+
+    /**
+     * Returns an enabled or a disabled profiler, e.g. from a configuration flag.
+     *
+     * @param enabled whether to measure
+     * @return a new profiler
+     */
+    public static PipelineProfiler of(boolean enabled) {
+        return new PipelineProfiler(enabled);
+    }
+
+    /** @return whether this profiler measures anything */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wraps a gatherer so that its elements, time and allocations are recorded
+     * under {@code name}.
+     *
+     * @param <T>      the type of input elements
+     * @param <R>      the type of output elements
+     * @param name     the stage name shown in the report
+     * @param gatherer the stage to measure
+     * @return {@code gatherer} itself when disabled, a measuring wrapper otherwise
+     */
+    public <T, R> Gatherer<T, ?, R> stage(String name, Gatherer<T, ?, R> gatherer) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(gatherer, "gatherer must not be null");
+        if (!enabled) {
+            return gatherer;
+        }
+        var stats = new Stats(name);
+        stages.add(stats);
+        return measured(stats, gatherer);
+    }
+
+    /**
+     * Inserts a measuring point into a stream.
+     *
+     * @param <T>    the type of elements
+     * @param stream the stream at the point to measure
+     * @param name   the probe name shown in the report
+     * @return {@code stream} itself when disabled, the stream followed by a probe otherwise
+     */
+    public <T> Stream<T> probe(Stream<T> stream, String name) {
+        Objects.requireNonNull(stream, "stream must not be null");
+        return enabled ? stream.gather(stage(name, Gatherer.<T, T>of((unused, element, downstream) ->
+                downstream.push(element)))) : stream;
+    }
+
+    /**
+     * Returns the statistics of every stage and probe, in registration order.
+     *
+     * @return a snapshot of the statistics; empty when disabled
+     */
+    public List<StageStats> stages() {
+        var snapshot = new ArrayList<StageStats>();
+        synchronized (stages) {
+            for (int i = 0; i < stages.size(); i++) {
+                Stats stats = stages.get(i);
+                Stats next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+                long nanos = stats.nanos.sum();
+                long bytes = stats.bytes.sum();
+                long selfNanos = next == null ? nanos : Math.max(0, nanos - next.nanos.sum());
+                long selfBytes = next == null ? bytes : Math.max(0, bytes - next.bytes.sum());
+                snapshot.add(new StageStats(stats.name, stats.in.sum(), stats.out.sum(),
+                        nanos, selfNanos, THREADS == null ? -1 : bytes, THREADS == null ? -1 : selfBytes));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Formats the statistics as a flame-style table: each row is indented under
+     * the previous one, its bar shows the inclusive time, and its self columns
+     * show what remains once the following rows are subtracted.
+     *
+     * @return a multi-line report
+     */
+    public String report() {
+        var rows = stages();
+        if (rows.isEmpty()) {
+            return "(profiling disabled or no stages)\n";
+        }
+        long total = Math.max(1, rows.getFirst().nanos());
+        var report = new StringBuilder(String.format("%-28s %12s %12s %10s %10s %14s  %s%n",
+                "stage", "in", "out", "self ms", "self %", "self bytes", "inclusive"));
+        for (int depth = 0; depth < rows.size(); depth++) {
+            StageStats row = rows.get(depth);
+            String label = "  ".repeat(depth) + row.name();
+            int width = (int) Math.round(40.0 * row.nanos() / total);
+            report.append(String.format("%-28s %,12d %,12d %10.2f %9.1f%% %,14d  %s%n",
+                    label.length() > 28 ? label.substring(0, 28) : label, row.in(), row.out(),
+                    row.selfNanos() / 1e6, 100.0 * row.selfNanos() / total, row.selfBytes(),
+                    "█".repeat(Math.max(width, row.nanos() > 0 ? 1 : 0))));
+        }
+        return report.toString();
+    }
+
+    /**
+     * The measurements of one stage or probe.
+     *
+     * @param name      the stage name
+     * @param in        the elements received
+     * @param out       the elements pushed downstream
+     * @param nanos     inclusive time: this stage and everything downstream of it
+     * @param selfNanos {@code nanos} minus the inclusive time of the next stage
+     * @param bytes     inclusive bytes allocated, or {@code -1} if the JVM cannot measure them
+     * @param selfBytes {@code bytes} minus those of the next stage, or {@code -1}
+     */
+    public record StageStats(String name, long in, long out, long nanos, long selfNanos,
+                             long bytes, long selfBytes) {
+    }
+
+    private static final class Stats {
+        final String name;
+        final LongAdder in = new LongAdder();
+        final LongAdder out = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        Stats(String name) {
+            this.name = name;
+        }
+    }
+
+    /** The wrapped gatherer's state, plus a reusable downstream that counts pushes. */
+    private static final class State<A, R> implements Gatherer.Downstream<R> {
+        final A inner;
+        final Stats stats;
+        Gatherer.Downstream<? super R> target;
+
+        State(A inner, Stats stats) {
+            this.inner = inner;
+            this.stats = stats;
+        }
+
+        @Override
+        public boolean push(R element) {
+            stats.out.increment();
+            return target.push(element);
+        }
+
+        @Override
+        public boolean isRejecting() {
+            return target.isRejecting();
+        }
+    }
+
+    private static <T, A, R> Gatherer<T, State<A, R>, R> measured(Stats stats, Gatherer<T, A, R> inner) {
+        var integrator = inner.integrator();
+        var combiner = inner.combiner();
+        var finisher = inner.finisher();
+        Gatherer.Integrator<State<A, R>, T, R> measuring = (state, element, downstream) -> {
+            state.stats.in.increment();
+            state.target = downstream;
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            boolean more = integrator.integrate(state.inner, element, state);
+            stats.nanos.add(System.nanoTime() - start);
+            stats.bytes.add(allocatedBytes() - bytes);
+            return more;
+        };
+        BinaryOperator<State<A, R>> combining;
+        if (inner.initializer() == Gatherer.defaultInitializer()) {
+            // A stateless stage runs in parallel without anything to combine
+            combining = (left, right) -> left;
+        } else if (combiner == Gatherer.defaultCombiner()) {
+            combining = Gatherer.defaultCombiner();
+        } else {
+            combining = (left, right) -> new State<>(combiner.apply(left.inner, right.inner), stats);
+        }
+        return Gatherer.of(
+                () -> new State<>(inner.initializer().get(), stats),
+                measuring,
+                combining,
+                (state, downstream) -> {
+                    state.target = downstream;
+                    long bytes = allocatedBytes();
+                    long start = System.nanoTime();
+                    finisher.accept(state.inner, state);
+                    stats.nanos.add(System.nanoTime() - start);
+                    stats.bytes.add(allocatedBytes() - bytes);
+                });
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,533 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Gatherer-style operations for {@link IntStream}, {@link LongStream} and
+ * {@link DoubleStream}: running sums, fixed and sliding windows, and
+ * consecutive deduplication.
+ *
+ * <p>{@link java.util.stream.Gatherer Gatherers} only exist on
+ * {@code Stream<T>}, so {@code Gatherers.scan(() -> 0, Integer::sum)} boxes
+ * every input <em>and</em> every running total, and
+ * {@code Gatherers.windowFixed(n)} stores each window as a
+ * {@code List<Integer>} of boxed values. On a ledger of millions of
+ * transactions, those allocations cost more than the arithmetic. The
+ * operations below take a primitive stream and return a primitive stream (or a
+ * stream of primitive arrays), so no element is ever boxed.</p>
+ *
+ * <p>Each operation wraps the source's {@link Spliterator} and is as lazy as a
+ * gatherer: short-circuiting terminal operations such as {@code limit()} or
+ * {@code findFirst()} only pull the elements they need, and closing the
+ * returned stream closes the source. The results are sequential streams; the
+ * semantics mirror the {@link java.util.stream.Gatherers} equivalents:</p>
+ * <ul>
+ *   <li>{@code runningSum} — {@code scan} with addition, one sum per element;
+ *       {@code int} and {@code long} sums overflow like {@code Integer::sum};</li>
+ *   <li>{@code windowFixed} — {@code windowFixed}: the last window may be shorter;</li>
+ *   <li>{@code windowSliding} — {@code windowSliding}: an input shorter than
+ *       the window produces one shorter window;</li>
+ *   <li>{@code distinctConsecutive} — drops an element equal to the one just
+ *       before it ({@code double} values compare like {@link Double#equals}).</li>
+ * </ul>
+ */
+public final class PrimitiveGatherers {
+
+    private PrimitiveGatherers() {
+    }
+
+    // -----------------------------------------------------------------------
+    // Running sums
+    // -----------------------------------------------------------------------
+
+    /**
+     * Returns the running sums of {@code values}.
+     *
+     * @param values the source values
+     * @return one running sum per source value
+     */
+    public static IntStream runningSum(IntStream values) {
+        Spliterator.OfInt source = values.spliterator();
+        var sums = new Spliterators.AbstractIntSpliterator(source.estimateSize(), Spliterator.ORDERED) {
+            private int sum;
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                return source.tryAdvance((int value) -> action.accept(sum += value));
+            }
+
+            @Override
+            public void forEachRemaining(IntConsumer action) {
+                source.forEachRemaining((int value) -> action.accept(sum += value));
+            }
+        };
+        return StreamSupport.intStream(sums, false).onClose(values::close);
+    }
+
+    /**
+     * Returns the running sums of {@code values}.
+     *
+     * @param values the source values
+     * @return one running sum per source value
+     */
+    public static LongStream runningSum(LongStream values) {
+        Spliterator.OfLong source = values.spliterator();
+        var sums = new Spliterators.AbstractLongSpliterator(source.estimateSize(), Spliterator.ORDERED) {
+            private long sum;
+
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                return source.tryAdvance((long value) -> action.accept(sum += value));
+            }
+
+            @Override
+            public void forEachRemaining(LongConsumer action) {
+                source.forEachRemaining((long value) -> action.accept(sum += value));
+            }
+        };
+        return StreamSupport.longStream(sums, false).onClose(values::close);
+    }
+
+    /**
+     * Returns the running sums of {@code values}.
+     *
+     * @param values the source values
+     * @return one running sum per source value
+     */
+    public static DoubleStream runningSum(DoubleStream values) {
+        Spliterator.OfDouble source = values.spliterator();
+        var sums = new Spliterators.AbstractDoubleSpliterator(source.estimateSize(), Spliterator.ORDERED) {
+            private double sum;
+
+            @Override
+            public boolean tryAdvance(DoubleConsumer action) {
+                return source.tryAdvance((double value) -> action.accept(sum += value));
+            }
+
+            @Override
+            public void forEachRemaining(DoubleConsumer action) {
+                source.forEachRemaining((double value) -> action.accept(sum += value));
+            }
+        };
+        return StreamSupport.doubleStream(sums, false).onClose(values::close);
+    }
+
+    // -----------------------------------------------------------------------
+    // Fixed windows
+    // -----------------------------------------------------------------------
+
+    /**
+     * Splits {@code values} into consecutive, non-overlapping windows of
+     * {@code size} elements; the last window may be shorter.
+     *
+     * @param values the source values
+     * @param size   the window size (must be &gt; 0)
+     * @return the windows, each a new array owned by the caller
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public static Stream<int[]> windowFixed(IntStream values, int size) {
+        requirePositive(size);
+        Spliterator.OfInt source = values.spliterator();
+        var windows = new WindowSpliterator<int[]>(source.estimateSize(), size) {
+            private int[] window = new int[size];
+            private final IntConsumer store = value -> window[filled++] = value;
+
+            @Override
+            boolean pull() {
+                return source.tryAdvance(store);
+            }
+
+            @Override
+            int[] emit(boolean last) {
+                int[] full = last ? Arrays.copyOf(window, filled) : window;
+                window = new int[size];
+                return full;
+            }
+        };
+        return StreamSupport.stream(windows, false).onClose(values::close);
+    }
+
+    /**
+     * Splits {@code values} into consecutive, non-overlapping windows of
+     * {@code size} elements; the last window may be shorter.
+     *
+     * @param values the source values
+     * @param size   the window size (must be &gt; 0)
+     * @return the windows, each a new array owned by the caller
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public static Stream<long[]> windowFixed(LongStream values, int size) {
+        requirePositive(size);
+        Spliterator.OfLong source = values.spliterator();
+        var windows = new WindowSpliterator<long[]>(source.estimateSize(), size) {
+            private long[] window = new long[size];
+            private final LongConsumer store = value -> window[filled++] = value;
+
+            @Override
+            boolean pull() {
+                return source.tryAdvance(store);
+            }
+
+            @Override
+            long[] emit(boolean last) {
+                long[] full = last ? Arrays.copyOf(window, filled) : window;
+                window = new long[size];
+                return full;
+            }
+        };
+        return StreamSupport.stream(windows, false).onClose(values::close);
+    }
+
+    /**
+     * Splits {@code values} into consecutive, non-overlapping windows of
+     * {@code size} elements; the last window may be shorter.
+     *
+     * @param values the source values
+     * @param size   the window size (must be &gt; 0)
+     * @return the windows, each a new array owned by the caller
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public static Stream<double[]> windowFixed(DoubleStream values, int size) {
+        requirePositive(size);
+        Spliterator.OfDouble source = values.spliterator();
+        var windows = new WindowSpliterator<double[]>(source.estimateSize(), size) {
+            private double[] window = new double[size];
+            private final DoubleConsumer store = value -> window[filled++] = value;
+
+            @Override
+            boolean pull() {
+                return source.tryAdvance(store);
+            }
+
+            @Override
+            double[] emit(boolean last) {
+                double[] full = last ? Arrays.copyOf(window, filled) : window;
+                window = new double[size];
+                return full;
+            }
+        };
+        return StreamSupport.stream(windows, false).onClose(values::close);
+    }
+
+    // -----------------------------------------------------------------------
+    // Sliding windows
+    // -----------------------------------------------------------------------
+
+    /**
+     * Returns every window of {@code size} consecutive values, each one
+     * starting one element after the previous one.
+     *
+     * <p>The values are kept in a primitive ring buffer; each emitted window is
+     * a fresh copy, so this costs O(size) per element, like
+     * {@code Gatherers.windowSliding}, but without boxing. When only an
+     * aggregate of the window is needed, prefer an incremental one such as
+     * {@link MovingAverage}.</p>
+     *
+     * @param values the source values
+     * @param size   the window size (must be &gt; 0)
+     * @return the windows, each a new array owned by the caller
+     * @throws IllegalArgumentException if {@code size} is not positive
+     */
+    public static Stream<int[]> windowSliding(IntStream values, int size) {
+        requirePositive(size);
+        Spliterator.OfInt source = values.spliterator();
+        var windows = new SlidingSpliterator<int[]>(source.estimateSize(), size) {
+            private final int[] ring = new int[size];
+            private final IntConsumer store = value -> ring[advance()] = value;
+
+            @Override
+            boolean pull() {
+                return source.tryAdvance(store);
+            }
+
+            @Override
+            int[] emit(int length) {
+                int[] window = new int[length];
+                unroll(ring, window, length);
+                return window;
+            }
+        };
+        return StreamSupport.stream(windows, false).onClose(values::close);
+    }
+
+    /**
+     * Returns every window of {@code size} consecutive values, each one
+     * starting one element after the previous one.
+     *
+     * @param values the source values
+     * @param size   the window size (must be &gt; 0)
+     * @return the windows, each a new array owned by the caller
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @see #windowSliding(IntStream, int)
+     */
+    public static Stream<long[]> windowSliding(LongStream values, int size) {
+        requirePositive(size);
+        Spliterator.OfLong source = values.spliterator();
+        var windows = new SlidingSpliterator<long[]>(source.estimateSize(), size) {
+            private final long[] ring = new long[size];
+            private final LongConsumer store = value -> ring[advance()] = value;
+
+            @Override
+            boolean pull() {
+                return source.tryAdvance(store);
+            }
+
+            @Override
+            long[] emit(int length) {
+                long[] window = new long[length];
+                unroll(ring, window, length);
+                return window;
+            }
+        };
+        return StreamSupport.stream(windows, false).onClose(values::close);
+    }
+
+    /**
+     * Returns every window of {@code size} consecutive values, each one
+     * starting one element after the previous one.
+     *
+     * @param values the source values
+     * @param size   the window size (must be &gt; 0)
+     * @return the windows, each a new array owned by the caller
+     * @throws IllegalArgumentException if {@code size} is not positive
+     * @see #windowSliding(IntStream, int)
+     */
+    public static Stream<double[]> windowSliding(DoubleStream values, int size) {
+        requirePositive(size);
+        Spliterator.OfDouble source = values.spliterator();
+        var windows = new SlidingSpliterator<double[]>(source.estimateSize(), size) {
+            private final double[] ring = new double[size];
+            private final DoubleConsumer store = value -> ring[advance()] = value;
+
+            @Override
+            boolean pull() {
+                return source.tryAdvance(store);
+            }
+
+            @Override
+            double[] emit(int length) {
+                double[] window = new double[length];
+                unroll(ring, window, length);
+                return window;
+            }
+        };
+        return StreamSupport.stream(windows, false).onClose(values::close);
+    }
+
+    // -----------------------------------------------------------------------
+    // Consecutive deduplication
+    // -----------------------------------------------------------------------
+
+    /**
+     * Drops every value equal to the value just before it.
+     *
+     * @param values the source values
+     * @return the values without consecutive duplicates
+     */
+    public static IntStream distinctConsecutive(IntStream values) {
+        Spliterator.OfInt source = values.spliterator();
+        var distinct = new Spliterators.AbstractIntSpliterator(source.estimateSize(), Spliterator.ORDERED) {
+            private boolean started;
+            private int previous;
+            private boolean changed;
+            private final IntConsumer compare = value -> {
+                changed = !started || value != previous;
+                started = true;
+                previous = value;
+            };
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                while (source.tryAdvance(compare)) {
+                    if (changed) {
+                        action.accept(previous);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.intStream(distinct, false).onClose(values::close);
+    }
+
+    /**
+     * Drops every value equal to the value just before it.
+     *
+     * @param values the source values
+     * @return the values without consecutive duplicates
+     */
+    public static LongStream distinctConsecutive(LongStream values) {
+        Spliterator.OfLong source = values.spliterator();
+        var distinct = new Spliterators.AbstractLongSpliterator(source.estimateSize(), Spliterator.ORDERED) {
+            private boolean started;
+            private long previous;
+            private boolean changed;
+            private final LongConsumer compare = value -> {
+                changed = !started || value != previous;
+                started = true;
+                previous = value;
+            };
+
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                while (source.tryAdvance(compare)) {
+                    if (changed) {
+                        action.accept(previous);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.longStream(distinct, false).onClose(values::close);
+    }
+
+    /**
+     * Drops every value equal to the value just before it. Values are compared
+     * like {@link Double#equals}: {@code NaN} equals {@code NaN}, and
+     * {@code 0.0} differs from {@code -0.0}.
+     *
+     * @param values the source values
+     * @return the values without consecutive duplicates
+     */
+    public static DoubleStream distinctConsecutive(DoubleStream values) {
+        Spliterator.OfDouble source = values.spliterator();
+        var distinct = new Spliterators.AbstractDoubleSpliterator(source.estimateSize(), Spliterator.ORDERED) {
+            private boolean started;
+            private long previousBits;
+            private double previous;
+            private boolean changed;
+            private final DoubleConsumer compare = value -> {
+                long bits = Double.doubleToLongBits(value);
+                changed = !started || bits != previousBits;
+                started = true;
+                previousBits = bits;
+                previous = value;
+            };
+
+            @Override
+            public boolean tryAdvance(DoubleConsumer action) {
+                while (source.tryAdvance(compare)) {
+                    if (changed) {
+                        action.accept(previous);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        return StreamSupport.doubleStream(distinct, false).onClose(values::close);
+    }
+
+    // -----------------------------------------------------------------------
+    // Shared window plumbing
+    // -----------------------------------------------------------------------
+
+    private static void requirePositive(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+    }
+
+    /**
+     * Fills a window from the source and emits it when full, or shorter at the end.
+     */
+    private abstract static class WindowSpliterator<W> extends Spliterators.AbstractSpliterator<W> {
+
+        private final int size;
+        int filled;
+        private boolean exhausted;
+
+        WindowSpliterator(long estimatedElements, int size) {
+            super(estimatedElements, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.size = size;
+        }
+
+        /** Moves one source element into the window; returns false when the source is exhausted. */
+        abstract boolean pull();
+
+        /** Returns the current window and starts a new one. */
+        abstract W emit(boolean last);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            while (!exhausted && filled < size) {
+                exhausted = !pull();
+            }
+            if (filled == 0) {
+                return false;
+            }
+            action.accept(emit(filled < size));
+            filled = 0;
+            return true;
+        }
+    }
+
+    /**
+     * Keeps the last {@code size} source elements in a ring buffer and emits a
+     * copy of it for every new element once full.
+     */
+    private abstract static class SlidingSpliterator<W> extends Spliterators.AbstractSpliterator<W> {
+
+        private final int size;
+        private int next;
+        private int count;
+        private boolean emittedAny;
+
+        SlidingSpliterator(long estimatedElements, int size) {
+            super(estimatedElements, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.size = size;
+        }
+
+        /** Moves one source element into the ring; returns false when the source is exhausted. */
+        abstract boolean pull();
+
+        /** Returns a copy of the {@code length} buffered elements, oldest first. */
+        abstract W emit(int length);
+
+        /** Returns the ring slot for the next element and advances the ring. */
+        final int advance() {
+            int slot = next;
+            next = next + 1 == size ? 0 : next + 1;
+            count = Math.min(count + 1, size);
+            return slot;
+        }
+
+        /** Copies the ring, oldest element first, into {@code window}. */
+        final void unroll(Object ring, Object window, int length) {
+            int oldest = count < size ? 0 : next;
+            int head = Math.min(length, size - oldest);
+            System.arraycopy(ring, oldest, window, 0, head);
+            System.arraycopy(ring, 0, window, head, length - head);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super W> action) {
+            while (pull()) {
+                if (count == size) {
+                    emittedAny = true;
+                    action.accept(emit(size));
+                    return true;
+                }
+            }
+            if (!emittedAny && count > 0) {
+                // Like windowSliding: an input shorter than the window yields one shorter window
+                emittedAny = true;
+                action.accept(emit(count));
+                return true;
+            }
+            return false;
+        }
+    }
+}
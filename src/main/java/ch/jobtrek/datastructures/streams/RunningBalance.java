@@ -0,0 +1,113 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.nio.BufferUnderflowException;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import java.util.stream.Gatherer;
+
+/**
+ * A running balance whose state can be saved and restored, so that a replay
+ * job can resume after the last checkpoint instead of from the first
+ * transaction.
+ *
+ * <p>{@code Gatherers.scan(() -> 0, Integer::sum)} keeps its state inside the
+ * stream, where nothing outside can read it: when the job restarts, the whole
+ * history must be summed again. Here the state is this object, owned by the
+ * caller:</p>
+ * <ul>
+ *   <li>{@link #gatherer(RunningBalance)} drives the stream with it;</li>
+ *   <li>{@link #snapshot()} saves the balance and the number of transactions
+ *       applied in 22 bytes;</li>
+ *   <li>after a restart, {@link #restore(byte[])} rebuilds it, and the input
+ *       is resumed at {@link #count()}, e.g. with {@code skip(count())}.</li>
+ * </ul>
+ *
+ * <p>The balance is a {@code long}: a sum of many {@code int} transactions
+ * overflows an {@code int}. This class is not thread-safe.</p>
+ */
+public final class RunningBalance implements LongConsumer {
+
+    private static final int BODY_BYTES = 2 * Long.BYTES;
+
+    private long count;
+    private long balance;
+
+    /** Creates a zero balance. */
+    public RunningBalance() {
+    }
+
+    /**
+     * Applies one transaction.
+     *
+     * @param amount positive for a credit, negative for a debit
+     */
+    @Override
+    public void accept(long amount) {
+        balance += amount;
+        count++;
+    }
+
+    /** @return the balance after every transaction applied so far */
+    public long balance() {
+        return balance;
+    }
+
+    /** @return the number of transactions applied so far: where to resume the input */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Encodes the state in a compact binary form.
+     *
+     * @return a snapshot to pass to {@link #restore(byte[])}
+     */
+    public byte[] snapshot() {
+        return Checkpoints.writer(Checkpoints.RUNNING_BALANCE, BODY_BYTES)
+                .putLong(count)
+                .putLong(balance)
+                .array();
+    }
+
+    /**
+     * Rebuilds a running balance from a snapshot.
+     *
+     * @param snapshot bytes returned by {@link #snapshot()}
+     * @return a running balance in the saved state
+     * @throws IllegalArgumentException if {@code snapshot} is not a valid running-balance snapshot
+     */
+    public static RunningBalance restore(byte[] snapshot) {
+        var buffer = Checkpoints.reader(snapshot, Checkpoints.RUNNING_BALANCE);
+        var restored = new RunningBalance();
+        try {
+            restored.count = buffer.getLong();
+            restored.balance = buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            throw Checkpoints.truncated(e);
+        }
+        Checkpoints.requireConsumed(buffer);
+        if (restored.count < 0) {
+            throw new IllegalArgumentException("snapshot has a negative transaction count");
+        }
+        return restored;
+    }
+
+    /**
+     * Returns a gatherer that applies each transaction to {@code state} and
+     * emits the balance after it. The state is shared, not copied: it can be
+     * snapshotted between elements or once the stream is done, and a restored
+     * state continues where the saved one stopped.
+     *
+     * @param state the balance to continue from
+     * @return a sequential gatherer of running balances
+     */
+    public static Gatherer<Number, ?, Long> gatherer(RunningBalance state) {
+        Objects.requireNonNull(state, "state must not be null");
+        return Gatherer.<Number, RunningBalance, Long>ofSequential(
+                () -> state,
+                Gatherer.Integrator.ofGreedy((balance, amount, downstream) -> {
+                    balance.accept(amount.longValue());
+                    return downstream.push(balance.balance());
+                }));
+    }
+}
@@ -0,0 +1,363 @@
+package ch.jobtrek.datastructures.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collector;
+import java.util.stream.Gatherer;
+
+/**
+ * Space-Saving: finds the most frequent items of a stream (its
+ * <em>heavy hitters</em>) with a fixed number of counters.
+ *
+ * <p>An exact top-K first counts every distinct item, then sorts. Space-Saving
+ * monitors at most {@code capacity} items instead. A monitored item is simply
+ * incremented; an unmonitored item <em>replaces</em> the item with the
+ * smallest count {@code min}, and starts at {@code min + 1} with an error of
+ * {@code min} (it may have occurred up to {@code min} times while unmonitored).
+ * The counters live in a binary min-heap, so every update costs
+ * {@code O(log capacity)}.</p>
+ *
+ * <h2>Error bounds</h2>
+ * <p>For every monitored item, {@code count - error ≤ true count ≤ count}, and
+ * {@code error ≤ total / capacity}. Every item that occurs more than
+ * {@code total / capacity} times is guaranteed to be monitored.
+ * {@link #withError(double)} sizes the summary from the relative error ε:
+ * {@code capacity = ⌈1 / ε⌉}.</p>
+ *
+ * <p>Space-Saving is preferred here over the closely related Misra-Gries
+ * summary because its counts are upper bounds with a known error per item,
+ * which lets {@link HeavyHitter#guaranteed()} tell certain winners apart.</p>
+ *
+ * <p>Instances are not thread-safe. {@link #collector(int, double)} builds one
+ * summary per parallel worker and {@linkplain #merge merges} them: an item
+ * that one worker never monitored is charged that worker's minimum count as
+ * extra error. Counts stay upper bounds, but
+ * {@link HeavyHitter#guaranteed()} is usually lower than after a sequential
+ * pass over the same stream.</p>
+ *
+ * @param <T> the type of items counted
+ */
+public final class SpaceSaving<T> {
+
+    /**
+     * A monitored item with its estimated count.
+     *
+     * @param item  the item
+     * @param count an upper bound of its number of occurrences
+     * @param error the maximum overestimation: the true count is at least {@code count - error}
+     * @param <T>   the type of the item
+     */
+    public record HeavyHitter<T>(T item, long count, long error) {
+
+        /**
+         * Returns the number of occurrences the item certainly had.
+         *
+         * @return {@code count - error}
+         */
+        public long guaranteed() {
+            return count - error;
+        }
+    }
+
+    private final int capacity;
+    private final HashMap<T, Integer> positions;
+    private final Object[] items;
+    private final long[] counts;
+    private final long[] errors;
+    private int size;
+    private long total;
+
+    /**
+     * Creates an empty summary that monitors at most {@code capacity} items.
+     *
+     * @param capacity the number of counters (must be &gt; 0)
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.positions = HashMap.newHashMap(capacity);
+        this.items = new Object[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    /**
+     * Creates an empty summary whose counts overestimate by at most
+     * {@code epsilon × total}.
+     *
+     * @param <T>     the type of items counted
+     * @param epsilon the relative error, e.g. {@code 0.001} (0 &lt; ε &lt; 1)
+     * @return a new summary with {@code ⌈1 / ε⌉} counters
+     * @throws IllegalArgumentException if {@code epsilon} is out of range
+     */
+    public static <T> SpaceSaving<T> withError(double epsilon) {
+        return new SpaceSaving<>(capacityFor(epsilon));
+    }
+
+    /**
+     * Returns a collector of the {@code k} most frequent items, most frequent
+     * first, with counts that overestimate by at most {@code epsilon × total}.
+     *
+     * @param <T>     the type of items counted
+     * @param k       the number of heavy hitters to return (must be &gt; 0)
+     * @param epsilon the relative error (0 &lt; ε &lt; 1); at least {@code k} counters are used
+     * @return a collector producing up to {@code k} heavy hitters
+     */
+    public static <T> Collector<T, ?, List<HeavyHitter<T>>> collector(int k, double epsilon) {
+        int capacity = Math.max(requirePositive(k), capacityFor(epsilon));
+        return Collector.of(
+                () -> new SpaceSaving<T>(capacity),
+                SpaceSaving::add,
+                SpaceSaving::merge,
+                summary -> summary.top(k),
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Returns a gatherer that emits the current top {@code k} every
+     * {@code period} elements, and once more at the end of a finite stream.
+     * Unlike the collector, it works on unbounded streams, e.g. to refresh a
+     * "trending words" view.
+     *
+     * @param <T>     the type of items counted
+     * @param k       the number of heavy hitters per snapshot (must be &gt; 0)
+     * @param epsilon the relative error (0 &lt; ε &lt; 1)
+     * @param period  the number of elements between two snapshots (must be &gt; 0)
+     * @return a gatherer emitting snapshots of the heavy hitters
+     */
+    public static <T> Gatherer<T, ?, List<HeavyHitter<T>>> gatherer(int k, double epsilon, long period) {
+        int capacity = Math.max(requirePositive(k), capacityFor(epsilon));
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return Gatherer.ofSequential(
+                () -> new SpaceSaving<T>(capacity),
+                Gatherer.Integrator.ofGreedy((summary, item, downstream) -> {
+                    summary.add(item);
+                    return summary.total % period != 0 || downstream.push(summary.top(k));
+                }),
+                (summary, downstream) -> {
+                    if (summary.total % period != 0) {
+                        downstream.push(summary.top(k));
+                    }
+                });
+    }
+
+    /**
+     * Adds one occurrence of {@code item}.
+     *
+     * @param item the item to count
+     */
+    public void add(T item) {
+        add(item, 1, 0);
+    }
+
+    /**
+     * Adds {@code count} occurrences of {@code item}.
+     *
+     * @param item  the item to count
+     * @param count the number of occurrences (must be &gt;= 0)
+     */
+    public void add(T item, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        add(item, count, 0);
+    }
+
+    private void add(T item, long count, long error) {
+        Objects.requireNonNull(item, "item must not be null");
+        total += count;
+        Integer position = positions.get(item);
+        if (position != null) {
+            counts[position] += count;
+            errors[position] += error;
+            siftDown(position);
+        } else if (size < capacity) {
+            items[size] = item;
+            counts[size] = count;
+            errors[size] = error;
+            positions.put(item, size);
+            siftUp(size++);
+        } else {
+            // Evict the least frequent item: the newcomer inherits its count as error
+            positions.remove(items[0]);
+            long min = counts[0];
+            items[0] = item;
+            counts[0] = min + count;
+            errors[0] = min + error;
+            positions.put(item, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Merges the counters of {@code other} into this summary, keeping the
+     * guarantee {@code count - error ≤ true count ≤ count} for the merged
+     * stream.
+     *
+     * <p>An item monitored by only one side may have occurred, unseen, up to
+     * the other side's minimum count there: that minimum is added to its count
+     * and to its error. Items monitored by both sides add their counts and
+     * errors. The {@code capacity} largest counts are kept.</p>
+     *
+     * @param other another summary; left unchanged
+     * @return this summary
+     */
+    @SuppressWarnings("unchecked")
+    public SpaceSaving<T> merge(SpaceSaving<T> other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        long otherTotal = other.total;
+        // Each entry holds {count, error}
+        var merged = HashMap.<T, long[]>newHashMap(size + other.size);
+        for (int i = 0; i < size; i++) {
+            merged.put((T) items[i], new long[]{counts[i] + otherMin, errors[i] + otherMin});
+        }
+        for (int i = 0; i < other.size; i++) {
+            long[] entry = merged.get((T) other.items[i]);
+            if (entry == null) {
+                merged.put((T) other.items[i],
+                        new long[]{other.counts[i] + thisMin, other.errors[i] + thisMin});
+            } else {
+                entry[0] += other.counts[i] - otherMin;
+                entry[1] += other.errors[i] - otherMin;
+            }
+        }
+
+        var entries = new ArrayList<>(merged.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<T, long[]> entry) -> entry.getValue()[0]).reversed());
+        positions.clear();
+        size = Math.min(capacity, entries.size());
+        for (int i = 0; i < size; i++) {
+            var entry = entries.get(i);
+            items[i] = entry.getKey();
+            counts[i] = entry.getValue()[0];
+            errors[i] = entry.getValue()[1];
+            positions.put(entry.getKey(), i);
+        }
+        Arrays.fill(items, size, capacity, null);
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        total += otherTotal;
+        return this;
+    }
+
+    /**
+     * Returns up to {@code k} monitored items, most frequent first.
+     *
+     * @param k the maximum number of items (must be &gt; 0)
+     * @return the heavy hitters, sorted by descending count
+     */
+    @SuppressWarnings("unchecked")
+    public List<HeavyHitter<T>> top(int k) {
+        requirePositive(k);
+        var all = new ArrayList<HeavyHitter<T>>(size);
+        for (int i = 0; i < size; i++) {
+            all.add(new HeavyHitter<>((T) items[i], counts[i], errors[i]));
+        }
+        all.sort(Comparator.comparingLong(HeavyHitter<T>::count).reversed());
+        return List.copyOf(all.subList(0, Math.min(k, all.size())));
+    }
+
+    /**
+     * Returns the estimated count of {@code item}: an upper bound, or
+     * {@code 0} if it is not monitored (it then occurred at most
+     * {@code total / capacity} times).
+     *
+     * @param item the item to look up
+     * @return its estimated count
+     */
+    public long estimate(T item) {
+        Integer position = positions.get(item);
+        return position == null ? 0 : counts[position];
+    }
+
+    /** @return the smallest count an unmonitored item may have: 0 until every counter is in use */
+    private long minCount() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /** @return the total number of occurrences added */
+    public long total() {
+        return total;
+    }
+
+    /** @return the maximum number of monitored items */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return the number of currently monitored items */
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (counts[parent] <= counts[index]) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void swap(int i, int j) {
+        Object item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+        long error = errors[i];
+        errors[i] = errors[j];
+        errors[j] = error;
+        positions.put((T) items[i], i);
+        positions.put((T) items[j], j);
+    }
+
+    private static int capacityFor(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("epsilon must be between 0 and 1 (exclusive)");
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(1 / epsilon));
+    }
+
+    private static int requirePositive(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return k;
+    }
+}
@@ -0,0 +1,218 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+/**
+ * Count, min, max, mean and variance of the grades and the attendance of a
+ * group of students, plus the number who passed, gathered in one pass.
+ *
+ * <p>A report that calls {@code filterByGrade}, {@code computeAverageGrade}
+ * and {@code groupStudentsByPassFail} walks the list three times and builds
+ * lists it only counts. This accumulator visits each student once and keeps
+ * only primitive fields, in the spirit of {@link java.util.DoubleSummaryStatistics}.</p>
+ *
+ * <h2>Numerically stable variance</h2>
+ * <p>The textbook formula {@code E[x²] - E[x]²} subtracts two large, almost
+ * equal numbers and can even turn negative. Each student is therefore added
+ * with <em>Welford's</em> update of the mean and of {@code M2}, the sum of
+ * squared deviations from the mean. Two partial results of a parallel stream
+ * are merged with <em>Chan's</em> formula:</p>
+ * <pre>{@code
+ * delta = meanB - meanA
+ * mean  = meanA + delta × nB / n
+ * M2    = M2A + M2B + delta² × nA × nB / n
+ * }</pre>
+ *
+ * <p>Like {@code DoubleSummaryStatistics}, an instance is not thread-safe. The
+ * partial results of {@link #collector(double)} are joined by
+ * {@link #combine(StudentStatistics)} with the formula above, so a parallel
+ * collect may differ from a sequential one in the last bits of the mean and
+ * variance, never in the counts, minima or maxima.</p>
+ */
+public final class StudentStatistics implements Consumer<Student> {
+
+    private final double passingGrade;
+    private long count;
+    private long passed;
+
+    private double gradeMin = Double.POSITIVE_INFINITY;
+    private double gradeMax = Double.NEGATIVE_INFINITY;
+    private double gradeMean;
+    private double gradeM2;
+
+    private int attendanceMin = Integer.MAX_VALUE;
+    private int attendanceMax = Integer.MIN_VALUE;
+    private double attendanceMean;
+    private double attendanceM2;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     */
+    public StudentStatistics(double passingGrade) {
+        this.passingGrade = passingGrade;
+    }
+
+    /**
+     * Returns a collector of the statistics of a stream of students; it is
+     * safe to use on a parallel stream.
+     *
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     * @return a collector producing {@code StudentStatistics}
+     */
+    public static Collector<Student, ?, StudentStatistics> collector(double passingGrade) {
+        return Collector.of(
+                () -> new StudentStatistics(passingGrade),
+                StudentStatistics::accept,
+                StudentStatistics::combine,
+                Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Adds one student.
+     *
+     * @param student the student to add
+     */
+    @Override
+    public void accept(Student student) {
+        Objects.requireNonNull(student, "student must not be null");
+        double grade = student.grade();
+        int attendance = student.attendance();
+        count++;
+        if (grade >= passingGrade) {
+            passed++;
+        }
+
+        gradeMin = Math.min(gradeMin, grade);
+        gradeMax = Math.max(gradeMax, grade);
+        double delta = grade - gradeMean;
+        gradeMean += delta / count;
+        gradeM2 += delta * (grade - gradeMean);
+
+        attendanceMin = Math.min(attendanceMin, attendance);
+        attendanceMax = Math.max(attendanceMax, attendance);
+        delta = attendance - attendanceMean;
+        attendanceMean += delta / count;
+        attendanceM2 += delta * (attendance - attendanceMean);
+    }
+
+    /**
+     * Merges the statistics of another group of students into these.
+     *
+     * @param other statistics computed with the same passing grade; left unchanged
+     * @return these statistics
+     * @throws IllegalArgumentException if the passing grades differ
+     */
+    public StudentStatistics combine(StudentStatistics other) {
+        if (Double.compare(other.passingGrade, passingGrade) != 0) {
+            throw new IllegalArgumentException("cannot combine statistics with different passing grades");
+        }
+        if (other.count == 0) {
+            return this;
+        }
+        long total = count + other.count;
+        double weight = (double) other.count / total;
+        double cross = (double) count * other.count / total;
+
+        double delta = other.gradeMean - gradeMean;
+        gradeMean += delta * weight;
+        gradeM2 += other.gradeM2 + delta * delta * cross;
+        gradeMin = Math.min(gradeMin, other.gradeMin);
+        gradeMax = Math.max(gradeMax, other.gradeMax);
+
+        delta = other.attendanceMean - attendanceMean;
+        attendanceMean += delta * weight;
+        attendanceM2 += other.attendanceM2 + delta * delta * cross;
+        attendanceMin = Math.min(attendanceMin, other.attendanceMin);
+        attendanceMax = Math.max(attendanceMax, other.attendanceMax);
+
+        count = total;
+        passed += other.passed;
+        return this;
+    }
+
+    /** @return the minimum grade (inclusive) required to pass */
+    public double passingGrade() {
+        return passingGrade;
+    }
+
+    /** @return the number of students */
+    public long count() {
+        return count;
+    }
+
+    /** @return the number of students whose grade is at least the passing grade */
+    public long passed() {
+        return passed;
+    }
+
+    /** @return the number of students whose grade is below the passing grade */
+    public long failed() {
+        return count - passed;
+    }
+
+    /** @return the lowest grade, or {@link Double#POSITIVE_INFINITY} if there are no students */
+    public double gradeMin() {
+        return gradeMin;
+    }
+
+    /** @return the highest grade, or {@link Double#NEGATIVE_INFINITY} if there are no students */
+    public double gradeMax() {
+        return gradeMax;
+    }
+
+    /** @return the average grade, or {@code 0.0} if there are no students */
+    public double gradeMean() {
+        return gradeMean;
+    }
+
+    /** @return the population variance of the grades, or {@code 0.0} if there are no students */
+    public double gradeVariance() {
+        return count == 0 ? 0.0 : gradeM2 / count;
+    }
+
+    /** @return the population standard deviation of the grades */
+    public double gradeStandardDeviation() {
+        return Math.sqrt(gradeVariance());
+    }
+
+    /** @return the lowest attendance, or {@link Integer#MAX_VALUE} if there are no students */
+    public int attendanceMin() {
+        return attendanceMin;
+    }
+
+    /** @return the highest attendance, or {@link Integer#MIN_VALUE} if there are no students */
+    public int attendanceMax() {
+        return attendanceMax;
+    }
+
+    /** @return the average attendance, or {@code 0.0} if there are no students */
+    public double attendanceMean() {
+        return attendanceMean;
+    }
+
+    /** @return the population variance of the attendance, or {@code 0.0} if there are no students */
+    public double attendanceVariance() {
+        return count == 0 ? 0.0 : attendanceM2 / count;
+    }
+
+    /** @return the population standard deviation of the attendance */
+    public double attendanceStandardDeviation() {
+        return Math.sqrt(attendanceVariance());
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "StudentStatistics{count=%d, passed=%d, grade=[min=%.2f, max=%.2f, mean=%.3f, variance=%.3f], "
+                        + "attendance=[min=%d, max=%d, mean=%.2f, variance=%.2f]}",
+                count, passed, gradeMin, gradeMax, gradeMean, gradeVariance(),
+                attendanceMin, attendanceMax, attendanceMean, attendanceVariance());
+    }
+}
@@ -0,0 +1,295 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Students stored column by column: one array of names, one of grades and one
+ * of attendances, where row {@code i} of each array describes the same student.
+ *
+ * <p>A {@code List<Student>} holds references to records scattered on the
+ * heap: reading the grades of all students follows one pointer per student
+ * and drags the names and object headers through the cache along with them.
+ * Here the grades are one contiguous {@code double[]}, so a filter on the
+ * grade reads memory sequentially and touches nothing else.</p>
+ *
+ * <h2>Selections</h2>
+ * <p>Filters do not build lists of students. They return either</p>
+ * <ul>
+ *   <li>a <em>selection bitmap</em> — a {@code long[]} with bit {@code i}
+ *       set when row {@code i} matches, 64 rows per word, which can be
+ *       combined with {@link #and(long[], long[])} and counted with
+ *       {@link #cardinality(long[])}; or</li>
+ *   <li>an <em>index vector</em> — an {@code int[]} of the matching rows, in
+ *       ascending order.</li>
+ * </ul>
+ * <p>Both are computed by branch-free loops over the primitive columns
+ * (the comparison result is turned into a 0 or 1 instead of an {@code if}),
+ * which the JIT compiler can unroll and, where the hardware allows,
+ * auto-vectorise; no mispredicted branch depends on the data.</p>
+ *
+ * <p>The methods under "adapters" return the same results as the Group A
+ * exercises of {@link StreamGatherersExercise}, materialising {@link Student}
+ * records only for the selected rows.</p>
+ *
+ * <p>A table is immutable after construction.</p>
+ */
+public final class StudentTable {
+
+    private final String[] names;
+    private final double[] grades;
+    private final int[] attendance;
+
+    private StudentTable(String[] names, double[] grades, int[] attendance) {
+        this.names = names;
+        this.grades = grades;
+        this.attendance = attendance;
+    }
+
+    /**
+     * Builds a table holding the given students, in list order.
+     *
+     * @param students the students to store
+     * @return a new table
+     */
+    public static StudentTable of(List<Student> students) {
+        Objects.requireNonNull(students, "students must not be null");
+        int size = students.size();
+        var names = new String[size];
+        var grades = new double[size];
+        var attendance = new int[size];
+        int row = 0;
+        for (Student student : students) {
+            names[row] = student.name();
+            grades[row] = student.grade();
+            attendance[row] = student.attendance();
+            row++;
+        }
+        return new StudentTable(names, grades, attendance);
+    }
+
+    /** @return the number of rows */
+    public int size() {
+        return grades.length;
+    }
+
+    /**
+     * Rebuilds the student of one row.
+     *
+     * @param row the row index
+     * @return a new {@code Student} with the values of that row
+     */
+    public Student student(int row) {
+        return new Student(names[row], grades[row], attendance[row]);
+    }
+
+    /**
+     * Returns the grade of one row, without creating a {@code Student}.
+     *
+     * @param row the row index
+     * @return the grade
+     */
+    public double grade(int row) {
+        return grades[row];
+    }
+
+    // ---------------------------------------------------------------- filters
+
+    /**
+     * Selects the rows whose grade is at least {@code minGrade}.
+     *
+     * @param minGrade the minimum grade (inclusive)
+     * @return a selection bitmap of {@code ⌈size / 64⌉} words
+     */
+    public long[] selectGradeAtLeast(double minGrade) {
+        var bitmap = new long[words(grades.length)];
+        int full = grades.length & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long bits = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                bits |= (grades[base + bit] >= minGrade ? 1L : 0L) << bit;
+            }
+            bitmap[base >>> 6] = bits;
+        }
+        for (int row = full; row < grades.length; row++) {
+            bitmap[row >>> 6] |= (grades[row] >= minGrade ? 1L : 0L) << row;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Selects the rows whose attendance is at least {@code minAttendance}.
+     *
+     * @param minAttendance the minimum number of classes attended (inclusive)
+     * @return a selection bitmap of {@code ⌈size / 64⌉} words
+     */
+    public long[] selectAttendanceAtLeast(int minAttendance) {
+        var bitmap = new long[words(attendance.length)];
+        int full = attendance.length & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long bits = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                bits |= (attendance[base + bit] >= minAttendance ? 1L : 0L) << bit;
+            }
+            bitmap[base >>> 6] = bits;
+        }
+        for (int row = full; row < attendance.length; row++) {
+            bitmap[row >>> 6] |= (attendance[row] >= minAttendance ? 1L : 0L) << row;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the rows whose grade is at least {@code minGrade}.
+     *
+     * @param minGrade the minimum grade (inclusive)
+     * @return the matching row indices, in ascending order
+     */
+    public int[] indicesGradeAtLeast(double minGrade) {
+        var indices = new int[grades.length];
+        int count = 0;
+        for (int row = 0; row < grades.length; row++) {
+            // Always write, then advance only on a match: no data-dependent branch
+            indices[count] = row;
+            count += grades[row] >= minGrade ? 1 : 0;
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Intersects two selections of this table.
+     *
+     * @param left  a selection bitmap
+     * @param right a selection bitmap of the same length
+     * @return a new bitmap of the rows selected by both
+     */
+    public static long[] and(long[] left, long[] right) {
+        if (left.length != right.length) {
+            throw new IllegalArgumentException("bitmaps must have the same length");
+        }
+        var result = new long[left.length];
+        for (int i = 0; i < left.length; i++) {
+            result[i] = left[i] & right[i];
+        }
+        return result;
+    }
+
+    /**
+     * Counts the selected rows.
+     *
+     * @param bitmap a selection bitmap
+     * @return the number of set bits
+     */
+    public static int cardinality(long[] bitmap) {
+        int count = 0;
+        for (long word : bitmap) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Converts a selection bitmap into an index vector.
+     *
+     * @param bitmap a selection bitmap
+     * @return the selected row indices, in ascending order
+     */
+    public static int[] indicesOf(long[] bitmap) {
+        var indices = new int[cardinality(bitmap)];
+        int count = 0;
+        for (int word = 0; word < bitmap.length; word++) {
+            for (long bits = bitmap[word]; bits != 0; bits &= bits - 1) {
+                indices[count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return indices;
+    }
+
+    // --------------------------------------------------------------- adapters
+
+    /**
+     * Materialises the selected rows as students.
+     *
+     * @param rows row indices, e.g. from {@link #indicesGradeAtLeast(double)}
+     * @return the students of those rows, in the given order, as an unmodifiable list
+     */
+    public List<Student> students(int[] rows) {
+        var students = new Student[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            students[i] = student(rows[i]);
+        }
+        return List.of(students);
+    }
+
+    /**
+     * Same result as {@link StreamGatherersExercise#filterByGrade(List, double)}.
+     *
+     * @param minGrade the minimum grade (inclusive)
+     * @return the students with {@code grade >= minGrade}, in row order
+     */
+    public List<Student> filterByGrade(double minGrade) {
+        return students(indicesGradeAtLeast(minGrade));
+    }
+
+    /**
+     * Same result as {@link StreamGatherersExercise#extractNames(List)}.
+     *
+     * @return the name of each row, in row order, as an unmodifiable list
+     */
+    public List<String> extractNames() {
+        // Not List.of: like toList(), the result tolerates null names
+        return Collections.unmodifiableList(Arrays.asList(names.clone()));
+    }
+
+    /**
+     * Same result as {@link StreamGatherersExercise#computeAverageGrade(List)}.
+     *
+     * @return the average grade, or {@code 0.0} if the table is empty
+     */
+    public double computeAverageGrade() {
+        return GradeKernels.average(grades, grades.length);
+    }
+
+    /**
+     * Computes the average grade and the passing statistics in one pass over
+     * the grade column.
+     *
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     * @return the statistics
+     */
+    public GradeKernels.GradeSummary gradeSummary(double passingGrade) {
+        return GradeKernels.summarize(grades, grades.length, passingGrade);
+    }
+
+    /**
+     * Same result as {@link StreamGatherersExercise#groupStudentsByPassFail(List, double)}.
+     *
+     * @param passingGrade the minimum grade (inclusive) required to pass
+     * @return {@code true} → passing students, {@code false} → failing students, as unmodifiable lists
+     */
+    public Map<Boolean, List<Student>> groupStudentsByPassFail(double passingGrade) {
+        long[] passing = selectGradeAtLeast(passingGrade);
+        int passCount = cardinality(passing);
+        var passed = new Student[passCount];
+        var failed = new Student[grades.length - passCount];
+        int passedCount = 0;
+        int failedCount = 0;
+        for (int row = 0; row < grades.length; row++) {
+            if ((passing[row >>> 6] & (1L << row)) != 0) {
+                passed[passedCount++] = student(row);
+            } else {
+                failed[failedCount++] = student(row);
+            }
+        }
+        return Map.of(true, List.of(passed), false, List.of(failed));
+    }
+
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+}
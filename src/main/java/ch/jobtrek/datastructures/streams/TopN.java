@@ -0,0 +1,293 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collector;
+import java.util.stream.Gatherer;
+
+/**
+ * The {@code n} greatest elements of a stream or a list, without sorting all
+ * of them.
+ *
+ * <p>A leaderboard that sorts a whole list to show its first 50 rows pays
+ * {@code O(N log N)} comparisons and a full copy for 50 elements. Two cheaper
+ * ways are offered here:</p>
+ * <ul>
+ *   <li><strong>Bounded heap</strong> — {@link #gatherer(int, Comparator)} and
+ *       {@link #collector(int, Comparator)} keep the {@code n} best elements
+ *       seen so far in a min-heap whose root is the weakest of them. A new
+ *       element that does not beat the root — almost all of them once the
+ *       heap is warm — costs one comparison; the others cost
+ *       {@code O(log n)}. Total: {@code O(N log n)} at worst, {@code O(n)}
+ *       memory, and parallel workers merge their heaps.</li>
+ *   <li><strong>Quickselect</strong> — {@link #nthElement(List, int, Comparator)}
+ *       reorders a list in place so that the element at index {@code k} is the
+ *       one a sort would put there, with smaller elements before it and greater
+ *       ones after, in {@code O(N)} expected time.
+ *       {@link #selectTop(List, int, Comparator)} builds on it to move the top
+ *       {@code n} to the front, sorted, in {@code O(N + n log n)}.</li>
+ * </ul>
+ *
+ * <p>Elements that compare equal may come out in any order among themselves:
+ * neither approach is stable.</p>
+ */
+public final class TopN {
+
+    private TopN() {
+    }
+
+    /**
+     * Returns a gatherer that emits, once its input is exhausted, the {@code n}
+     * greatest elements, greatest first.
+     *
+     * @param <T>        the type of elements
+     * @param n          the number of elements to keep (must be &gt; 0)
+     * @param comparator the order; "greatest" is last in this order
+     * @return a gatherer emitting at most {@code n} elements
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    public static <T> Gatherer<T, ?, T> gatherer(int n, Comparator<? super T> comparator) {
+        requirePositive(n);
+        Objects.requireNonNull(comparator, "comparator must not be null");
+        return Gatherer.of(
+                () -> new BoundedHeap<T>(n, comparator),
+                Gatherer.Integrator.ofGreedy((heap, element, downstream) -> {
+                    heap.offer(element);
+                    return true;
+                }),
+                BoundedHeap::merge,
+                (heap, downstream) -> {
+                    for (T element : heap.descending()) {
+                        if (!downstream.push(element)) {
+                            return;
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Returns a collector of the {@code n} greatest elements, greatest first.
+     *
+     * @param <T>        the type of elements
+     * @param n          the number of elements to keep (must be &gt; 0)
+     * @param comparator the order; "greatest" is last in this order
+     * @return an unmodifiable list of at most {@code n} elements
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    public static <T> Collector<T, ?, List<T>> collector(int n, Comparator<? super T> comparator) {
+        requirePositive(n);
+        Objects.requireNonNull(comparator, "comparator must not be null");
+        return Collector.of(
+                () -> new BoundedHeap<T>(n, comparator),
+                BoundedHeap::offer,
+                BoundedHeap::merge,
+                heap -> Collections.unmodifiableList(Arrays.asList(heap.descending())));
+    }
+
+    /**
+     * The leaderboard case: the {@code n} students with the best grades, best
+     * first, without sorting the class.
+     *
+     * @param n the number of students to keep (must be &gt; 0)
+     * @return a gatherer emitting at most {@code n} students
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    public static Gatherer<Student, ?, Student> topStudentsByGrade(int n) {
+        return gatherer(n, Comparator.comparingDouble(Student::grade));
+    }
+
+    /**
+     * Partially sorts {@code list} in place with quickselect: afterwards, the
+     * element at index {@code k} is the one a full sort would put there, no
+     * element before it is greater, and no element after it is smaller.
+     *
+     * <p>Like {@link List#sort(Comparator)}, the elements are copied to an
+     * array, reordered there and written back, so any modifiable list works.
+     * Pivots are chosen at random, which makes the quadratic worst case
+     * vanishingly unlikely whatever the input order.</p>
+     *
+     * @param <T>        the type of elements
+     * @param list       the list to reorder
+     * @param k          the index to settle, {@code 0 ≤ k < list.size()}
+     * @param comparator the order
+     * @return the element now at index {@code k}
+     * @throws IndexOutOfBoundsException if {@code k} is outside the list
+     */
+    public static <T> T nthElement(List<T> list, int k, Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator, "comparator must not be null");
+        Objects.checkIndex(k, list.size());
+        Object[] elements = list.toArray();
+        select(elements, 0, elements.length - 1, k, comparator);
+        writeBack(list, elements);
+        return list.get(k);
+    }
+
+    /**
+     * Moves the {@code n} greatest elements of {@code list} to its front,
+     * greatest first; the order of the remaining elements is unspecified.
+     *
+     * @param <T>        the type of elements
+     * @param list       the list to reorder
+     * @param n          the number of elements to rank (must be &gt; 0); capped at the list size
+     * @param comparator the order; "greatest" is last in this order
+     * @return a view of the first {@code min(n, size)} elements of {@code list}
+     * @throws IllegalArgumentException if {@code n} is not positive
+     */
+    public static <T> List<T> selectTop(List<T> list, int n, Comparator<? super T> comparator) {
+        requirePositive(n);
+        Objects.requireNonNull(comparator, "comparator must not be null");
+        Comparator<? super T> descending = comparator.reversed();
+        int top = Math.min(n, list.size());
+        Object[] elements = list.toArray();
+        if (top < elements.length) {
+            select(elements, 0, elements.length - 1, top - 1, descending);
+        }
+        sort(elements, top, descending);
+        writeBack(list, elements);
+        return list.subList(0, top);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void sort(Object[] elements, int to, Comparator<? super T> comparator) {
+        Arrays.sort((T[]) elements, 0, to, comparator);
+    }
+
+    /** Iterative quickselect on {@code elements[from..to]} with a Hoare partition. */
+    @SuppressWarnings("unchecked")
+    private static <T> void select(Object[] elements, int from, int to, int k, Comparator<? super T> comparator) {
+        var random = ThreadLocalRandom.current();
+        while (from < to) {
+            T pivot = (T) elements[random.nextInt(from, to + 1)];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (comparator.compare((T) elements[i], pivot) < 0) {
+                    i++;
+                }
+                while (comparator.compare((T) elements[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    Object swap = elements[i];
+                    elements[i++] = elements[j];
+                    elements[j--] = swap;
+                }
+            }
+            // Now [from..j] ≤ pivot ≤ [i..to], and anything strictly between equals the pivot
+            if (k <= j) {
+                to = j;
+            } else if (k >= i) {
+                from = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void writeBack(List<T> list, Object[] elements) {
+        ListIterator<T> iterator = list.listIterator();
+        for (Object element : elements) {
+            iterator.next();
+            iterator.set((T) element);
+        }
+    }
+
+    private static int requirePositive(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        return n;
+    }
+
+    /**
+     * A binary min-heap holding at most {@code capacity} elements: its root is
+     * the weakest element kept, the one a better newcomer replaces.
+     */
+    private static final class BoundedHeap<T> {
+
+        private final int capacity;
+        private final Comparator<? super T> comparator;
+        private Object[] elements = new Object[8];
+        private int size;
+
+        BoundedHeap(int capacity, Comparator<? super T> comparator) {
+            this.capacity = capacity;
+            this.comparator = comparator;
+        }
+
+        void offer(T element) {
+            if (size < capacity) {
+                if (size == elements.length) {
+                    elements = Arrays.copyOf(elements, Math.min(capacity, size * 2));
+                }
+                elements[size] = element;
+                siftUp(size++);
+            } else if (comparator.compare(element, at(0)) > 0) {
+                elements[0] = element;
+                siftDown(0);
+            }
+        }
+
+        BoundedHeap<T> merge(BoundedHeap<T> other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.at(i));
+            }
+            return this;
+        }
+
+        /** @return the kept elements, greatest first */
+        @SuppressWarnings("unchecked")
+        T[] descending() {
+            T[] sorted = (T[]) Arrays.copyOf(elements, size);
+            Arrays.sort(sorted, comparator.reversed());
+            return sorted;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T at(int index) {
+            return (T) elements[index];
+        }
+
+        private void siftUp(int index) {
+            Object element = elements[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (comparator.compare(at(parent), at(index)) <= 0) {
+                    break;
+                }
+                elements[index] = elements[parent];
+                elements[parent] = element;
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && comparator.compare(at(left), at(smallest)) < 0) {
+                    smallest = left;
+                }
+                if (right < size && comparator.compare(at(right), at(smallest)) < 0) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                Object swap = elements[index];
+                elements[index] = elements[smallest];
+                elements[smallest] = swap;
+                index = smallest;
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import ch.jobtrek.datastructures.linear.ChunkedList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares how the backing storage grows while
+ * {@link PerformanceBenchmarkExercise#appendElements(List, int)} runs:
+ * {@code ArrayList} copying its array on every resize, {@code ArrayList}
+ * presized with {@code ensureCapacity}, and {@link ChunkedList} which never
+ * copies its elements.
+ */
+@DisplayName("Append growth policies")
+class AppendGrowthBenchmarkTest {
+
+    private static final int COUNT = 5_000_000;
+    private static final int LATENCY_COUNT = 1_000_000;
+
+    private static Map<String, Supplier<List<Integer>>> candidates(int count) {
+        var candidates = new LinkedHashMap<String, Supplier<List<Integer>>>();
+        candidates.put("ArrayList (default growth)", ArrayList::new);
+        candidates.put("ArrayList + ensureCapacity", () -> {
+            var list = new ArrayList<Integer>();
+            list.ensureCapacity(count);
+            return list;
+        });
+        candidates.put("ChunkedList FIXED 4096",
+                () -> new ChunkedList<>(ChunkedList.GrowthPolicy.FIXED, 4096));
+        candidates.put("ChunkedList DOUBLING 1024",
+                () -> new ChunkedList<>(ChunkedList.GrowthPolicy.DOUBLING, 1024));
+        return candidates;
+    }
+
+    @Test
+    @DisplayName("Benchmark: appendElements() elapsed time per growth policy")
+    void appendThroughput() {
+        System.out.println("=== Append " + String.format("%,d", COUNT) + " elements ===");
+        for (var entry : candidates(COUNT).entrySet()) {
+            // One warm-up round so that every candidate runs compiled code
+            PerformanceBenchmarkExercise.appendElements(entry.getValue().get(), COUNT / 10);
+
+            List<Integer> list = entry.getValue().get();
+            long start = System.nanoTime();
+            PerformanceBenchmarkExercise.appendElements(list, COUNT);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.printf("  %-28s %,8d µs%n", entry.getKey(), elapsed / 1_000);
+            assertThat(list).hasSize(COUNT);
+            assertThat(list.get(COUNT - 1)).isEqualTo(COUNT - 1);
+        }
+        System.out.println("  → Default growth copies the array about 30 times on the way to 5M elements;");
+        System.out.println("    presizing or chunking removes those copies and the garbage they leave. Boxing");
+        System.out.println("    each Integer still dominates the total, so the gap in elapsed time is modest.");
+        System.out.println();
+    }
+
+    @Test
+    @DisplayName("Benchmark: per-call latency of appendElements(list, 1) — resize spikes per growth policy")
+    void appendLatency() {
+        System.out.println("=== Latency: appendElements(list, 1) × " + String.format("%,d", LATENCY_COUNT) + " ===");
+        for (var entry : candidates(LATENCY_COUNT).entrySet()) {
+            List<Integer> list = entry.getValue().get();
+            var histogram = new LatencyHistogram();
+            for (int i = 0; i < LATENCY_COUNT; i++) {
+                long start = System.nanoTime();
+                PerformanceBenchmarkExercise.appendElements(list, 1);
+                histogram.recordSince(start);
+            }
+
+            histogram.printSummary(entry.getKey(), System.out);
+            assertThat(list).hasSize(LATENCY_COUNT);
+        }
+        System.out.println("  → With default growth, one unlucky append pays for a full array copy. A new chunk");
+        System.out.println("    only costs one allocation, which keeps p99 / p99.9 flat; the maxima are also");
+        System.out.println("    affected by GC pauses, so compare them over several runs.");
+        System.out.println();
+    }
+}
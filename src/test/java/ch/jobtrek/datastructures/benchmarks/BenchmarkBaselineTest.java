@@ -0,0 +1,155 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for the benchmark baseline store and its statistical comparison.
+ */
+@DisplayName("Benchmark baseline and regression detection")
+class BenchmarkBaselineTest {
+
+    private static final BenchmarkKey APPEND = new BenchmarkKey("append", "ArrayList", 100_000);
+
+    @Nested
+    @DisplayName("JSON storage")
+    class StorageTests {
+
+        @Test
+        @DisplayName("Should read back exactly what was saved")
+        void shouldRoundTrip(@TempDir Path dir) {
+            var baseline = new BenchmarkBaseline();
+            baseline.put(APPEND, new double[]{1.5e8, 1.25e8, 1.75e8});
+            baseline.put(new BenchmarkKey("contains", "Hash\"Set", 10), new double[]{42.0});
+            Path file = dir.resolve("nested/baseline.json");
+
+            baseline.save(file);
+            var loaded = BenchmarkBaseline.load(file);
+
+            assertThat(loaded.keys()).containsExactlyElementsOf(baseline.keys());
+            assertThat(loaded.samples(APPEND)).hasValueSatisfying(
+                    samples -> assertThat(samples).containsExactly(1.5e8, 1.25e8, 1.75e8));
+        }
+
+        @Test
+        @DisplayName("Should return an empty baseline when the file does not exist")
+        void shouldHandleMissingFile(@TempDir Path dir) {
+            var baseline = BenchmarkBaseline.load(dir.resolve("missing.json"));
+
+            assertThat(baseline.keys()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should reject a file without a results array")
+        void shouldRejectMalformedFile(@TempDir Path dir) throws Exception {
+            Path file = dir.resolve("broken.json");
+            Files.writeString(file, "{ \"unit\": \"ops/s\" }");
+
+            assertThatThrownBy(() -> BenchmarkBaseline.load(file))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("The checked-in baseline file should be readable")
+        void checkedInBaselineShouldLoad() {
+            var baseline = BenchmarkBaseline.load(Path.of("src/test/resources/benchmarks/baseline.json"));
+
+            assertThat(baseline).isNotNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Comparison")
+    class ComparisonTests {
+
+        @Test
+        @DisplayName("Should flag a large and consistent slowdown as a regression")
+        void shouldDetectRegression() {
+            var baseline = new BenchmarkBaseline();
+            baseline.put(APPEND, new double[]{100, 101, 99, 102, 98, 100, 101, 99});
+
+            var result = baseline.compare(APPEND, new double[]{80, 81, 79, 82, 78, 80, 81, 79}, 0.10, 0.05);
+
+            assertThat(result).hasValueSatisfying(comparison -> {
+                assertThat(comparison.regressed()).isTrue();
+                assertThat(comparison.relativeChange()).isCloseTo(-0.20, within(0.01));
+            });
+        }
+
+        @Test
+        @DisplayName("Should accept a slowdown that stays within the tolerance")
+        void shouldAcceptSlowdownWithinTolerance() {
+            var baseline = new BenchmarkBaseline();
+            baseline.put(APPEND, new double[]{100, 101, 99, 102, 98, 100, 101, 99});
+
+            var result = baseline.compare(APPEND, new double[]{95, 96, 94, 97, 93, 95, 96, 94}, 0.10, 0.05);
+
+            assertThat(result).hasValueSatisfying(comparison -> assertThat(comparison.regressed()).isFalse());
+        }
+
+        @Test
+        @DisplayName("Should accept a faster run")
+        void shouldAcceptImprovement() {
+            var baseline = new BenchmarkBaseline();
+            baseline.put(APPEND, new double[]{100, 101, 99, 102, 98});
+
+            var result = baseline.compare(APPEND, new double[]{150, 151, 149, 152, 148}, 0.10, 0.05);
+
+            assertThat(result).hasValueSatisfying(comparison -> assertThat(comparison.regressed()).isFalse());
+        }
+
+        @Test
+        @DisplayName("Should return empty for a scenario without baseline")
+        void shouldReturnEmptyWithoutBaseline() {
+            var result = new BenchmarkBaseline().compare(APPEND, new double[]{1, 2, 3}, 0.10, 0.05);
+
+            assertThat(result).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Mann-Whitney U test")
+    class MannWhitneyTests {
+
+        @Test
+        @DisplayName("Should give a tiny p-value when every current sample is smaller")
+        void shouldBeSignificantForSeparatedSamples() {
+            double p = MannWhitneyU.pValueLess(new double[]{1, 2, 3, 4, 5, 6}, new double[]{7, 8, 9, 10, 11, 12});
+
+            assertThat(p).isLessThan(0.01);
+        }
+
+        @Test
+        @DisplayName("Should give a large p-value when the current samples are larger")
+        void shouldNotBeSignificantInOppositeDirection() {
+            double p = MannWhitneyU.pValueLess(new double[]{7, 8, 9, 10, 11, 12}, new double[]{1, 2, 3, 4, 5, 6});
+
+            assertThat(p).isGreaterThan(0.99);
+        }
+
+        @Test
+        @DisplayName("Should return 1 when all values are tied")
+        void shouldHandleAllTies() {
+            double p = MannWhitneyU.pValueLess(new double[]{5, 5, 5}, new double[]{5, 5, 5});
+
+            assertThat(p).isEqualTo(1.0);
+        }
+
+        @Test
+        @DisplayName("Should not be fooled by a single outlier")
+        void shouldBeRobustToOutliers() {
+            double p = MannWhitneyU.pValueLess(new double[]{100, 101, 99, 100, 1}, new double[]{100, 99, 101, 100, 100});
+
+            assertThat(p).isGreaterThan(0.05);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regression gate for the collection operations measured in Module 9.
+ *
+ * <p>This test is excluded from a normal {@code mvn test} run. It only runs
+ * with the dedicated profile:</p>
+ * <pre>
+ * mvn test -Pbenchmark-regression                                  # compare against the baseline
+ * mvn test -Pbenchmark-regression -Dbenchmark.baseline.update=true # record a new baseline
+ * </pre>
+ *
+ * <p>The tolerance and significance level can be changed with
+ * {@code -Dbenchmark.tolerance=0.10} and {@code -Dbenchmark.alpha=0.05}.
+ * Scenarios missing from the baseline are reported but never fail the build.</p>
+ *
+ * <p>The scenarios use the collections directly rather than the exercise
+ * methods, so the gate measures the collection code itself and not a
+ * particular exercise solution.</p>
+ */
+@Tag("benchmark-regression")
+@DisplayName("Benchmark regression gate")
+class BenchmarkRegressionTest {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASUREMENT_ITERATIONS = 10;
+
+    @Test
+    @DisplayName("Collection throughput should not regress against the stored baseline")
+    void throughputShouldNotRegress() {
+        Path file = Path.of(System.getProperty("benchmark.baseline.file", "src/test/resources/benchmarks/baseline.json"));
+        double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.10"));
+        double alpha = Double.parseDouble(System.getProperty("benchmark.alpha", "0.05"));
+        boolean update = Boolean.getBoolean("benchmark.baseline.update");
+
+        var baseline = BenchmarkBaseline.load(file);
+        var regressions = new ArrayList<BaselineComparison>();
+
+        System.out.println("=== Benchmark regression gate (tolerance " + tolerance * 100 + " %, alpha " + alpha + ") ===");
+        for (var scenario : scenarios().entrySet()) {
+            BenchmarkKey key = scenario.getKey();
+            double[] samples = ThroughputSampler.sample(WARMUP_ITERATIONS, MEASUREMENT_ITERATIONS,
+                    key.size(), scenario.getValue());
+            var comparison = baseline.compare(key, samples, tolerance, alpha);
+            if (comparison.isPresent()) {
+                System.out.println("  " + comparison.get());
+                if (comparison.get().regressed()) {
+                    regressions.add(comparison.get());
+                }
+            } else {
+                System.out.printf("  %-40s no baseline yet (current median %,.0f ops/s)%n",
+                        key, BenchmarkBaseline.median(samples));
+            }
+            if (update) {
+                baseline.put(key, samples);
+            }
+        }
+        System.out.println();
+
+        if (update) {
+            baseline.save(file);
+            System.out.println("  Baseline written to " + file.toAbsolutePath());
+            return;
+        }
+        assertThat(regressions).as("scenarios slower than the baseline").isEmpty();
+    }
+
+    /**
+     * The measured scenarios. The key size is the number of operations performed
+     * by one call, so the samples are expressed per operation.
+     */
+    private static Map<BenchmarkKey, LongSupplier> scenarios() {
+        var scenarios = new LinkedHashMap<BenchmarkKey, LongSupplier>();
+
+        scenarios.put(new BenchmarkKey("append", "ArrayList", 100_000), () -> append(new ArrayList<>(), 100_000));
+        scenarios.put(new BenchmarkKey("append", "LinkedList", 100_000), () -> append(new LinkedList<>(), 100_000));
+
+        var arrayList = filledList(new ArrayList<>(), 100_000);
+        var linkedList = filledList(new LinkedList<>(), 2_000);
+        scenarios.put(new BenchmarkKey("sumByIndex", "ArrayList", 100_000), () -> sumByIndex(arrayList));
+        scenarios.put(new BenchmarkKey("sumByIndex", "LinkedList", 2_000), () -> sumByIndex(linkedList));
+
+        var queries = new ArrayList<Integer>(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            queries.add(i * 20);
+        }
+        var hashSet = new HashSet<>(filledList(new ArrayList<>(), 100_000));
+        var treeSet = new TreeSet<>(hashSet);
+        var smallList = filledList(new ArrayList<>(), 10_000);
+        var smallQueries = queries.subList(0, 1_000);
+        scenarios.put(new BenchmarkKey("countHits", "HashSet", 10_000), () -> countHits(hashSet, queries));
+        scenarios.put(new BenchmarkKey("countHits", "TreeSet", 10_000), () -> countHits(treeSet, queries));
+        scenarios.put(new BenchmarkKey("countHits", "ArrayList", 1_000), () -> countHits(smallList, smallQueries));
+        return scenarios;
+    }
+
+    private static <L extends List<Integer>> L filledList(L list, int size) {
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    private static long append(List<Integer> list, int count) {
+        for (int i = 0; i < count; i++) {
+            list.add(i);
+        }
+        return list.size();
+    }
+
+    private static long sumByIndex(List<Integer> list) {
+        long sum = 0;
+        for (int i = 0; i < list.size(); i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+
+    private static long countHits(Collection<Integer> collection, List<Integer> queries) {
+        long hits = 0;
+        for (Integer query : queries) {
+            if (collection.contains(query)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
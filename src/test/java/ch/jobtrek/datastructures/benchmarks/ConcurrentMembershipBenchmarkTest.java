@@ -0,0 +1,84 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import ch.jobtrek.datastructures.benchmarks.ConcurrentMembershipBenchmark.ThreadKind;
+import ch.jobtrek.datastructures.sets.StripedLockSet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrency mode for Exercise 3 ({@code countHits}): the same membership
+ * workload run from many platform and virtual threads against thread-safe
+ * set implementations.
+ */
+@DisplayName("Benchmark — countHits() under concurrency")
+class ConcurrentMembershipBenchmarkTest {
+
+    private static final int DATA_SIZE = 100_000;
+    private static final int QUERY_COUNT = 1_000;
+    private static final int TOTAL_CALLS = 2_048;
+
+    @Test
+    @DisplayName("Benchmark: synchronizedSet vs ConcurrentHashMap.newKeySet vs striped locks vs immutable snapshot")
+    void benchmarkContention() {
+        var data = new ArrayList<Integer>(DATA_SIZE);
+        for (int i = 0; i < DATA_SIZE; i++) {
+            data.add(i);
+        }
+        var queries = new ArrayList<Integer>(QUERY_COUNT);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries.add(i * 2 * DATA_SIZE / QUERY_COUNT);
+        }
+
+        Set<Integer> concurrentKeySet = ConcurrentHashMap.newKeySet();
+        concurrentKeySet.addAll(data);
+        Map<String, Set<Integer>> structures = new LinkedHashMap<>();
+        structures.put("synchronizedSet", Collections.synchronizedSet(new HashSet<>(data)));
+        structures.put("ConcurrentHashMap keys", concurrentKeySet);
+        structures.put("StripedLockSet", new StripedLockSet<>(data));
+        structures.put("Set.copyOf snapshot", Set.copyOf(data));
+
+        int expectedHitsPerCall = PerformanceBenchmarkExercise.countHits(new HashSet<>(data), queries);
+
+        System.out.println("=== Benchmark: countHits() under contention ("
+                + String.format("%,d", QUERY_COUNT) + " lookups per call, "
+                + String.format("%,d", TOTAL_CALLS) + " calls per run) ===");
+        for (var entry : structures.entrySet()) {
+            for (int threads : new int[]{1, 4, 16, 64}) {
+                var result = runAndPrint(entry.getKey(), entry.getValue(), queries, ThreadKind.PLATFORM, threads);
+                assertThat(result.totalHits()).isEqualTo((long) expectedHitsPerCall * TOTAL_CALLS);
+            }
+            for (int threads : new int[]{64, 512}) {
+                var result = runAndPrint(entry.getKey(), entry.getValue(), queries, ThreadKind.VIRTUAL, threads);
+                assertThat(result.totalHits()).isEqualTo((long) expectedHitsPerCall * TOTAL_CALLS);
+            }
+        }
+        System.out.println("  → A single monitor (synchronizedSet) serialises every lookup: throughput stays");
+        System.out.println("    flat while p99 latency grows with the thread count. Read-mostly workloads scale");
+        System.out.println("    with lock-free reads (ConcurrentHashMap, immutable snapshot) or striped read locks.");
+        System.out.println();
+    }
+
+    private static ConcurrentMembershipBenchmark.Result runAndPrint(String label, Set<Integer> set,
+                                                                    List<Integer> queries,
+                                                                    ThreadKind kind, int threads) {
+        int callsPerThread = Math.max(1, TOTAL_CALLS / threads);
+        // Warm-up run, so the JIT compiles countHits before we measure
+        ConcurrentMembershipBenchmark.run(label, set, queries, kind, threads, callsPerThread,
+                PerformanceBenchmarkExercise::countHits);
+        var result = ConcurrentMembershipBenchmark.run(label, set, queries, kind, threads, callsPerThread,
+                PerformanceBenchmarkExercise::countHits);
+        System.out.println("  " + result);
+        return result;
+    }
+}
@@ -0,0 +1,108 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import ch.jobtrek.datastructures.linear.UnrolledLinkedList;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache-miss-aware iteration benchmarks: the same values stored in linked
+ * structures with different memory layouts.
+ *
+ * <p>Read the console output: the gap between the sequential and the shuffled
+ * layouts is the cost of cache misses that the allocation-order benchmarks of
+ * Module 9 hide.</p>
+ */
+@DisplayName("Benchmark — memory layout and cache misses")
+class HeapLayoutBenchmarkTest {
+
+    private static final int SIZE = 1_000_000;
+    private static final long SEED = 42;
+    private static final long EXPECTED_SUM = (long) SIZE * (SIZE - 1) / 2;
+
+    @Test
+    @DisplayName("Benchmark: iteration over compact vs scattered layouts — 1,000,000 elements")
+    void benchmarkIterationByLayout() {
+        var arrayList = new ArrayList<Integer>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            arrayList.add(i);
+        }
+        var sequential = HeapLayoutScenarios.sequentialLinkedList(SIZE);
+        var interleaved = HeapLayoutScenarios.interleavedLinkedLists(SIZE, 8);
+        var shuffledBoxes = HeapLayoutScenarios.shuffledBoxLinkedList(SIZE, SEED);
+        var unrolled = HeapLayoutScenarios.unrolledLinkedList(SIZE, UnrolledLinkedList.DEFAULT_CHUNK_CAPACITY);
+        var compactChain = HeapLayoutScenarios.intChain(SIZE, false, SEED);
+        var shuffledChain = HeapLayoutScenarios.intChain(SIZE, true, SEED);
+
+        System.out.println("=== Benchmark: Iteration by memory layout (" + String.format("%,d", SIZE) + " elements) ===");
+        double base = report("ArrayList<Integer>", () -> HeapLayoutScenarios.sum(arrayList), Double.NaN);
+        report("LinkedList, allocation order", () -> HeapLayoutScenarios.sum(sequential), base);
+        report("LinkedList, 8-way interleaved", () -> HeapLayoutScenarios.sum(interleaved.getFirst()), base);
+        report("LinkedList, shuffled boxes", () -> HeapLayoutScenarios.sum(shuffledBoxes), base);
+        report("UnrolledLinkedList (64/chunk)", () -> HeapLayoutScenarios.sum(unrolled), base);
+        report("int chain, allocation order", compactChain::sum, base);
+        report("int chain, shuffled links", shuffledChain::sum, base);
+        System.out.println("  → Same values, same O(n) traversal: the difference is purely where the");
+        System.out.println("    nodes live in memory. Shuffled links defeat the hardware prefetcher and");
+        System.out.println("    pay a cache miss per node; chunked storage pays one per 64 elements.");
+        System.out.println();
+
+        assertThat(HeapLayoutScenarios.sum(interleaved.getLast())).isEqualTo(EXPECTED_SUM);
+        assertThat(HeapLayoutScenarios.sum(shuffledBoxes)).isEqualTo(EXPECTED_SUM);
+        assertThat(HeapLayoutScenarios.sum(unrolled)).isEqualTo(EXPECTED_SUM);
+        assertThat(shuffledChain.sum()).isEqualTo(EXPECTED_SUM);
+    }
+
+    @Test
+    @DisplayName("Benchmark: queue workload — LinkedList vs ArrayDeque vs UnrolledLinkedList")
+    void benchmarkQueueWorkload() {
+        int operations = 5_000_000;
+        int backlog = 10_000;
+
+        System.out.println("=== Benchmark: Queue churn (" + String.format("%,d", operations)
+                + " offer/poll pairs, backlog " + String.format("%,d", backlog) + ") ===");
+        double base = report("ArrayDeque", () -> churn(new ArrayDeque<>(), operations, backlog), Double.NaN);
+        report("LinkedList", () -> churn(new LinkedList<>(), operations, backlog), base);
+        report("UnrolledLinkedList", () -> churn(new UnrolledLinkedList<>(), operations, backlog), base);
+        System.out.println("  → LinkedList allocates a node per offer; UnrolledLinkedList allocates one");
+        System.out.println("    chunk per 64 offers and reuses a spare chunk when draining.");
+        System.out.println();
+
+        assertThat(churn(new UnrolledLinkedList<>(), 1_000, 10)).isEqualTo(churn(new ArrayDeque<>(), 1_000, 10));
+    }
+
+    /**
+     * Offers {@code backlog} elements, then performs {@code operations}
+     * offer/poll pairs, and returns the sum of everything polled.
+     */
+    private static long churn(Queue<Integer> queue, int operations, int backlog) {
+        for (int i = 0; i < backlog; i++) {
+            queue.offer(i);
+        }
+        long sum = 0;
+        for (int i = 0; i < operations; i++) {
+            queue.offer(i);
+            sum += queue.poll();
+        }
+        return sum;
+    }
+
+    private static double report(String label, LongSupplier body, double baseline) {
+        double[] samples = ThroughputSampler.sample(3, 5, 1, body);
+        double nanos = 1e9 / BenchmarkBaseline.median(samples);
+        if (Double.isNaN(baseline)) {
+            System.out.printf("  %-32s %,15.0f ns  (%7.2f ms)%n", label, nanos, nanos / 1_000_000.0);
+        } else {
+            System.out.printf("  %-32s %,15.0f ns  (%7.2f ms)  %5.1fx%n", label, nanos, nanos / 1_000_000.0,
+                    nanos / baseline);
+        }
+        return nanos;
+    }
+}
@@ -0,0 +1,223 @@
+package ch.jobtrek.datastructures.benchmarks;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link LatencyHistogram}, plus per-call latency profiles of the
+ * Module 9 exercise methods.
+ */
+@DisplayName("Latency histogram")
+class LatencyHistogramTest {
+
+    @Nested
+    @DisplayName("Recording and percentiles")
+    class PercentileTests {
+
+        @Test
+        @DisplayName("Small values should be recorded exactly")
+        void smallValuesShouldBeExact() {
+            var histogram = new LatencyHistogram();
+            for (int i = 1; i <= 100; i++) {
+                histogram.record(i);
+            }
+
+            assertThat(histogram.count()).isEqualTo(100);
+            assertThat(histogram.percentile(50)).isEqualTo(50);
+            assertThat(histogram.percentile(99)).isEqualTo(99);
+            assertThat(histogram.percentile(100)).isEqualTo(100);
+            assertThat(histogram.min()).isEqualTo(1);
+            assertThat(histogram.mean()).isCloseTo(50.5, within(1e-9));
+        }
+
+        @Test
+        @DisplayName("Large values should stay within the relative precision")
+        void largeValuesShouldBeWithinPrecision() {
+            var histogram = new LatencyHistogram();
+            var random = new Random(7);
+            long[] values = new long[10_000];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = 1_000 + (long) (random.nextDouble() * 1_000_000_000L);
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+
+            for (double p : new double[]{50, 90, 99, 99.9}) {
+                long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+                assertThat((double) histogram.percentile(p)).isCloseTo(exact, within(exact / 64.0 + 1));
+            }
+            assertThat(histogram.max()).isEqualTo(values[values.length - 1]);
+        }
+
+        @Test
+        @DisplayName("A single spike should show up at the maximum but not at the median")
+        void spikeShouldOnlyAffectTail() {
+            var histogram = new LatencyHistogram();
+            for (int i = 0; i < 999; i++) {
+                histogram.record(100);
+            }
+            histogram.record(5_000_000);
+
+            assertThat(histogram.percentile(50)).isEqualTo(100);
+            assertThat(histogram.percentile(99.9)).isEqualTo(100);
+            assertThat(histogram.max()).isEqualTo(5_000_000);
+        }
+
+        @Test
+        @DisplayName("Adding histograms should combine their counts")
+        void addShouldMerge() {
+            var a = new LatencyHistogram();
+            var b = new LatencyHistogram();
+            a.record(10);
+            b.record(20);
+            b.record(Long.MAX_VALUE);
+
+            a.add(b);
+
+            assertThat(a.count()).isEqualTo(3);
+            assertThat(a.min()).isEqualTo(10);
+            assertThat(a.max()).isEqualTo(Long.MAX_VALUE);
+            assertThat(a.percentile(100)).isEqualTo(Long.MAX_VALUE);
+        }
+
+        @Test
+        @DisplayName("Reset should empty the histogram")
+        void resetShouldClear() {
+            var histogram = new LatencyHistogram();
+            histogram.record(42);
+
+            histogram.reset();
+
+            assertThat(histogram.count()).isZero();
+            assertThat(histogram.percentile(99)).isZero();
+        }
+
+        @Test
+        @DisplayName("Should reject negative values and invalid percentiles")
+        void shouldRejectInvalidInput() {
+            var histogram = new LatencyHistogram();
+
+            assertThatThrownBy(() -> histogram.record(-1)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> histogram.percentile(101)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new LatencyHistogram(1)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Per-call latency of the exercise methods")
+    class ExerciseLatencyTests {
+
+        @Test
+        @DisplayName("Benchmark: per-call latency of appendElements() — resize spikes")
+        void appendLatency() {
+            int count = 1_000_000;
+            var arrayList = new ArrayList<Integer>();
+            var linkedList = new LinkedList<Integer>();
+            var arrayHistogram = new LatencyHistogram();
+            var linkedHistogram = new LatencyHistogram();
+
+            for (int i = 0; i < count; i++) {
+                long start = System.nanoTime();
+                PerformanceBenchmarkExercise.appendElements(arrayList, 1);
+                arrayHistogram.recordSince(start);
+                start = System.nanoTime();
+                PerformanceBenchmarkExercise.appendElements(linkedList, 1);
+                linkedHistogram.recordSince(start);
+            }
+
+            System.out.println("=== Latency: appendElements(list, 1) × " + String.format("%,d", count) + " ===");
+            arrayHistogram.printSummary("ArrayList", System.out);
+            linkedHistogram.printSummary("LinkedList", System.out);
+            System.out.println("  → Most appends are cheap, but the maxima are far above p99.9: an ArrayList resize");
+            System.out.println("    copies the whole backing array in one call, and a GC pause can land on any call.");
+            System.out.println("    Averages never show those spikes.");
+            System.out.println();
+
+            assertThat(arrayList).hasSize(count);
+            assertThat(arrayHistogram.count()).isEqualTo(count);
+        }
+
+        @Test
+        @DisplayName("Benchmark: per-call latency of sumByIndex() — get(i) cost grows with i")
+        void indexedAccessLatency() {
+            int size = 20_000;
+            var arrayList = new ArrayList<Integer>(size);
+            var linkedList = new LinkedList<Integer>();
+            for (int i = 0; i < size; i++) {
+                arrayList.add(i);
+                linkedList.add(i);
+            }
+            var arrayHistogram = new LatencyHistogram();
+            var linkedHistogram = new LatencyHistogram();
+
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                // A one-element view: summing it costs exactly one positional lookup at index i
+                long start = System.nanoTime();
+                sum += PerformanceBenchmarkExercise.sumByIndex(arrayList.subList(i, i + 1));
+                arrayHistogram.recordSince(start);
+                start = System.nanoTime();
+                sum -= PerformanceBenchmarkExercise.sumByIndex(linkedList.subList(i, i + 1));
+                linkedHistogram.recordSince(start);
+            }
+
+            System.out.println("=== Latency: one positional lookup per call, i = 0.." + String.format("%,d", size - 1) + " ===");
+            arrayHistogram.printSummary("ArrayList", System.out);
+            linkedHistogram.printSummary("LinkedList", System.out);
+            System.out.println("  → LinkedList's latency is spread over a wide range: reaching index i walks");
+            System.out.println("    min(i, n - i) nodes, so the p99 is orders of magnitude above the p50 of ArrayList.");
+            System.out.println();
+
+            assertThat(sum).isZero();
+        }
+
+        @Test
+        @DisplayName("Benchmark: per-call latency of countHits() — one query per call")
+        void membershipLatency() {
+            int dataSize = 100_000;
+            var arrayList = new ArrayList<Integer>(dataSize);
+            for (int i = 0; i < dataSize; i++) {
+                arrayList.add(i);
+            }
+            var hashSet = new HashSet<>(arrayList);
+            var treeSet = new TreeSet<>(arrayList);
+            var histograms = List.of(new LatencyHistogram(), new LatencyHistogram(), new LatencyHistogram());
+
+            int hits = 0;
+            for (int i = 0; i < 2_000; i++) {
+                var query = List.of(i * 97);
+                long start = System.nanoTime();
+                hits += PerformanceBenchmarkExercise.countHits(arrayList, query);
+                histograms.get(0).recordSince(start);
+                start = System.nanoTime();
+                hits += PerformanceBenchmarkExercise.countHits(hashSet, query);
+                histograms.get(1).recordSince(start);
+                start = System.nanoTime();
+                hits += PerformanceBenchmarkExercise.countHits(treeSet, query);
+                histograms.get(2).recordSince(start);
+            }
+
+            System.out.println("=== Latency: countHits(collection, [query]) × 2,000 ===");
+            histograms.get(0).printSummary("ArrayList", System.out);
+            histograms.get(1).printSummary("HashSet", System.out);
+            histograms.get(2).printSummary("TreeSet", System.out);
+            System.out.println("  → A miss on ArrayList scans all elements, so its tail is the full O(n) scan.");
+            System.out.println();
+
+            assertThat(hits % 3).isZero();
+        }
+    }
+}
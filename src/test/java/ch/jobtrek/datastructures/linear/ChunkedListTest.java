@@ -0,0 +1,127 @@
+package ch.jobtrek.datastructures.linear;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ChunkedList}.
+ */
+@DisplayName("ChunkedList — growable list that never copies its elements")
+class ChunkedListTest {
+
+    @Test
+    @DisplayName("Should keep indexed access correct across chunk boundaries for both growth policies")
+    void shouldIndexAcrossChunks() {
+        for (var policy : ChunkedList.GrowthPolicy.values()) {
+            var list = new ChunkedList<Integer>(policy, 4);
+            for (int i = 0; i < 1_000; i++) {
+                list.add(i);
+            }
+
+            assertThat(list).hasSize(1_000);
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(list.get(i)).isEqualTo(i);
+            }
+            assertThat(list.set(500, -1)).isEqualTo(500);
+            assertThat(list.get(500)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should behave like ArrayList under a random add/insert/remove workload")
+    void shouldMatchArrayList() {
+        for (var policy : ChunkedList.GrowthPolicy.values()) {
+            var list = new ChunkedList<Integer>(policy, 2);
+            var reference = new ArrayList<Integer>();
+            var random = new Random(42);
+
+            for (int i = 0; i < 5_000; i++) {
+                int action = random.nextInt(4);
+                if (action == 0 && !reference.isEmpty()) {
+                    int index = random.nextInt(reference.size());
+                    assertThat(list.remove(index)).isEqualTo(reference.remove(index));
+                } else if (action == 1) {
+                    int index = random.nextInt(reference.size() + 1);
+                    list.add(index, i);
+                    reference.add(index, i);
+                } else {
+                    list.add(i);
+                    reference.add(i);
+                }
+            }
+            assertThat(list).containsExactlyElementsOf(reference);
+        }
+    }
+
+    @Test
+    @DisplayName("Growth should follow the chosen policy")
+    void shouldGrowAccordingToPolicy() {
+        var fixed = new ChunkedList<Integer>(ChunkedList.GrowthPolicy.FIXED, 8);
+        var doubling = new ChunkedList<Integer>(ChunkedList.GrowthPolicy.DOUBLING, 8);
+        for (int i = 0; i < 30; i++) {
+            fixed.add(i);
+            doubling.add(i);
+        }
+
+        assertThat(fixed.capacity()).isEqualTo(32);      // 8 + 8 + 8 + 8
+        assertThat(doubling.capacity()).isEqualTo(56);   // 8 + 16 + 32
+    }
+
+    @Test
+    @DisplayName("ensureCapacity() should allocate up front")
+    void ensureCapacityShouldPreallocate() {
+        var list = new ChunkedList<Integer>(ChunkedList.GrowthPolicy.FIXED, 16);
+
+        list.ensureCapacity(100);
+
+        assertThat(list.capacity()).isEqualTo(112);
+        assertThat(list).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should be reusable after clear()")
+    void shouldClear() {
+        var list = new ChunkedList<String>();
+        list.addAll(List.of("a", "b", "c"));
+
+        list.clear();
+        list.add("d");
+
+        assertThat(list).containsExactly("d");
+        assertThat(list.capacity()).isEqualTo(ChunkedList.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid indices and chunk sizes")
+    void shouldRejectInvalidInput() {
+        var list = new ChunkedList<String>();
+        list.add("a");
+
+        assertThatThrownBy(() -> list.get(1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> list.remove(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> new ChunkedList<String>(ChunkedList.GrowthPolicy.FIXED, 12))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Iterator should fail fast on concurrent modification")
+    void iteratorShouldFailFast() {
+        var list = new ChunkedList<Integer>();
+        list.add(1);
+        list.add(2);
+        var iterator = list.iterator();
+        iterator.next();
+
+        list.add(3);
+
+        assertThatThrownBy(iterator::next).isInstanceOf(ConcurrentModificationException.class);
+    }
+}
@@ -0,0 +1,90 @@
+package ch.jobtrek.datastructures.linear;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link UnrolledLinkedList}.
+ */
+@DisplayName("UnrolledLinkedList — chunked FIFO queue")
+class UnrolledLinkedListTest {
+
+    @Test
+    @DisplayName("Should poll elements in FIFO order across several chunks")
+    void shouldPreserveFifoOrder() {
+        var queue = new UnrolledLinkedList<Integer>(4);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+
+        assertThat(queue).hasSize(10).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        for (int i = 0; i < 10; i++) {
+            assertThat(queue.poll()).isEqualTo(i);
+        }
+        assertThat(queue.poll()).isNull();
+        assertThat(queue).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should behave like ArrayDeque under a random offer/poll workload")
+    void shouldMatchArrayDeque() {
+        var queue = new UnrolledLinkedList<Integer>(3);
+        var reference = new ArrayDeque<Integer>();
+        var random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            if (random.nextInt(3) == 0) {
+                assertThat(queue.poll()).isEqualTo(reference.poll());
+            } else {
+                queue.offer(i);
+                reference.offer(i);
+            }
+            assertThat(queue.peek()).isEqualTo(reference.peek());
+            assertThat(queue.size()).isEqualTo(reference.size());
+        }
+        assertThat(queue).containsExactlyElementsOf(reference);
+    }
+
+    @Test
+    @DisplayName("Should be reusable after clear()")
+    void shouldClear() {
+        var queue = new UnrolledLinkedList<String>(2);
+        queue.addAll(List.of("a", "b", "c"));
+
+        queue.clear();
+        queue.offer("d");
+
+        assertThat(queue).containsExactly("d");
+    }
+
+    @Test
+    @DisplayName("Should reject null elements and invalid chunk capacities")
+    void shouldRejectInvalidInput() {
+        var queue = new UnrolledLinkedList<String>();
+
+        assertThatThrownBy(() -> queue.offer(null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> new UnrolledLinkedList<String>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Iterator should fail fast on concurrent modification")
+    void iteratorShouldFailFast() {
+        var queue = new UnrolledLinkedList<Integer>();
+        queue.offer(1);
+        queue.offer(2);
+        var iterator = queue.iterator();
+        iterator.next();
+
+        queue.offer(3);
+
+        assertThatThrownBy(iterator::next).isInstanceOf(ConcurrentModificationException.class);
+    }
+}
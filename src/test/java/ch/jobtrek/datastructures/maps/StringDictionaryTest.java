@@ -0,0 +1,232 @@
+package ch.jobtrek.datastructures.maps;
+
+import ch.jobtrek.datastructures.collections.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link StringDictionary}, plus a benchmark of counting encoded
+ * words against counting strings.
+ */
+@DisplayName("StringDictionary — concurrent dictionary encoding")
+class StringDictionaryTest {
+
+    /** Zipf-like words, each occurrence a new String instance, as if read from a file. */
+    private static List<String> freshWords(int count, int vocabulary, long seed) {
+        var random = new Random(seed);
+        var words = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            int rank = (int) Math.min(vocabulary - 1, Math.floor(Math.pow(vocabulary, random.nextDouble())) - 1);
+            words.add(new String("word" + rank));
+        }
+        return words;
+    }
+
+    @Nested
+    @DisplayName("Encoding")
+    class EncodingTests {
+
+        @Test
+        @DisplayName("Ids should be dense, in order of first appearance, and decode to the first instance")
+        void idsShouldBeDense() {
+            var dictionary = new StringDictionary(4);
+            String alice = new String("Alice");
+
+            assertThat(dictionary.encode(alice)).isZero();
+            assertThat(dictionary.encode("Bob")).isEqualTo(1);
+            assertThat(dictionary.encode(new String("Alice"))).isZero();
+            assertThat(dictionary.decode(0)).isSameAs(alice);
+            assertThat(dictionary.intern(new String("Alice"))).isSameAs(alice);
+            assertThat(dictionary.idOf("Carol")).isEqualTo(-1);
+            assertThat(dictionary.size()).isEqualTo(2);
+            assertThatThrownBy(() -> dictionary.decode(2)).isInstanceOf(IndexOutOfBoundsException.class);
+        }
+
+        @Test
+        @DisplayName("Should survive stripe resizes and page growth")
+        void shouldGrow() {
+            var dictionary = new StringDictionary(1);
+            for (int i = 0; i < 100_000; i++) {
+                assertThat(dictionary.encode("s" + i)).isEqualTo(i);
+            }
+            for (int i = 0; i < 100_000; i += 997) {
+                assertThat(dictionary.idOf("s" + i)).isEqualTo(i);
+                assertThat(dictionary.decode(i)).isEqualTo("s" + i);
+            }
+        }
+
+        @Test
+        @DisplayName("Concurrent encoders should agree on one dense id per string")
+        void concurrentEncodersShouldAgree() throws Exception {
+            var dictionary = new StringDictionary();
+            int threads = 4;
+            var words = freshWords(200_000, 20_000, 1);
+            List<Future<int[]>> results = new ArrayList<>();
+            try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+                for (int t = 0; t < threads; t++) {
+                    int offset = t * 1_000;
+                    results.add(pool.submit(() -> {
+                        int[] ids = new int[words.size()];
+                        for (int i = 0; i < words.size(); i++) {
+                            int index = (i + offset) % words.size();
+                            ids[index] = dictionary.encode(words.get(index));
+                        }
+                        return ids;
+                    }));
+                }
+            }
+
+            int[] first = results.getFirst().get();
+            for (var result : results) {
+                assertThat(result.get()).isEqualTo(first);
+            }
+            int distinct = new HashSet<>(words).size();
+            assertThat(dictionary.size()).isEqualTo(distinct);
+            for (int i = 0; i < words.size(); i += 101) {
+                assertThat(dictionary.decode(first[i])).isEqualTo(words.get(i));
+            }
+        }
+
+        @Test
+        @DisplayName("memoryBytes() should not fail while other threads are adding pages")
+        void memoryBytesShouldTolerateConcurrentEncoders() throws Exception {
+            var dictionary = new StringDictionary();
+            Future<?> encoder;
+            long lastEstimate = 0;
+            try (ExecutorService pool = Executors.newSingleThreadExecutor()) {
+                encoder = pool.submit(() -> {
+                    for (int i = 0; i < 200_000; i++) {
+                        dictionary.encode("s" + i);
+                    }
+                });
+                while (!encoder.isDone()) {
+                    lastEstimate = dictionary.memoryBytes();
+                }
+            }
+
+            encoder.get();
+            assertThat(dictionary.memoryBytes()).isGreaterThanOrEqualTo(lastEstimate);
+        }
+
+        @Test
+        @DisplayName("Should reject null strings and bad stripe counts")
+        void shouldRejectInvalidArguments() {
+            assertThatThrownBy(() -> new StringDictionary().encode(null)).isInstanceOf(NullPointerException.class);
+            assertThatThrownBy(() -> new StringDictionary(0)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new StringDictionary(257)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Counting and reports")
+    class CountingTests {
+
+        @Test
+        @DisplayName("countWordFrequencies() should match groupingBy(counting())")
+        void countShouldMatchGroupingBy() {
+            var words = freshWords(50_000, 2_000, 2);
+
+            var counts = new StringDictionary().countWordFrequencies(words);
+
+            assertThat(counts).isEqualTo(words.stream()
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting())));
+        }
+
+        @Test
+        @DisplayName("Student names should encode to shared ids")
+        void shouldEncodeNames() {
+            var dictionary = new StringDictionary();
+            var students = List.of(new Student("Alice", 5.5, 20), new Student("Bob", 3.2, 15),
+                    new Student(new String("Alice"), 4.0, 18));
+
+            int[] ids = dictionary.encodeNames(students);
+
+            assertThat(ids).containsExactly(0, 1, 0);
+            assertThat(dictionary.decodeCounts(dictionary.count(ids)))
+                    .containsEntry("Alice", 2L)
+                    .containsEntry("Bob", 1L);
+        }
+
+        @Test
+        @DisplayName("The memory report should count duplicated instances, not shared ones")
+        void reportShouldSeeInstances() {
+            var dictionary = new StringDictionary();
+            var fresh = freshWords(10_000, 100, 3);
+            dictionary.encodeAll(fresh.stream()).toArray();
+            var shared = fresh.stream().map(dictionary::intern).toList();
+
+            var freshReport = dictionary.report(fresh);
+            var sharedReport = dictionary.report(shared);
+
+            assertThat(freshReport.distinctInstances()).isEqualTo(10_000);
+            assertThat(sharedReport.distinctInstances()).isEqualTo(dictionary.size());
+            assertThat(freshReport.savedBytes()).isPositive();
+            assertThat(sharedReport.plainBytes()).isLessThan(freshReport.plainBytes());
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: counting 3M words as strings vs as dictionary ids")
+        void countingBenchmark() {
+            var words = freshWords(3_000_000, 50_000, 4);
+
+            long stringNanos = Long.MAX_VALUE;
+            long encodeNanos = Long.MAX_VALUE;
+            long countNanos = Long.MAX_VALUE;
+            StringDictionary dictionary = null;
+            int[] ids = null;
+            long[] counts = null;
+            var byString = new HashMap<String, Long>();
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                byString = new HashMap<>();
+                for (String word : words) {
+                    byString.merge(word, 1L, Long::sum);
+                }
+                stringNanos = Math.min(stringNanos, System.nanoTime() - start);
+
+                dictionary = new StringDictionary();
+                start = System.nanoTime();
+                ids = dictionary.encodeAll(words.parallelStream()).toArray();
+                encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                for (int repeat = 0; repeat < 10; repeat++) {
+                    counts = dictionary.count(ids);
+                }
+                countNanos = Math.min(countNanos, (System.nanoTime() - start) / 10);
+            }
+
+            System.out.println("=== Word counts over " + String.format("%,d", words.size())
+                    + " fresh String instances ===");
+            System.out.printf("  %-44s %,8d µs%n", "HashMap<String, Long>.merge", stringNanos / 1_000);
+            System.out.printf("  %-44s %,8d µs%n", "encode once (parallel stream)", encodeNanos / 1_000);
+            System.out.printf("  %-44s %,8d µs%n", "count encoded ids into long[] (per pass)", countNanos / 1_000);
+            System.out.println("  " + dictionary.report(words).summary());
+            System.out.println("  → Encoding costs about one hash lookup per word, once; every later count or");
+            System.out.println("    grouping over the ids is an array index, and the duplicates can be dropped.");
+            System.out.println();
+
+            assertThat(dictionary.decodeCounts(counts)).isEqualTo(byString);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package ch.jobtrek.datastructures.maps;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link Utf8WordCounter}, plus a benchmark of counting straight
+ * from bytes against decoding and splitting into strings first.
+ */
+@DisplayName("Utf8WordCounter — word counting from UTF-8 bytes")
+class Utf8WordCounterTest {
+
+    private static final String[] VOCABULARY = {
+            "the", "quick", "brown", "fox", "Zürich", "café", "naïve", "Genève", "ÉCOLE", "Ωmega",
+            "日本語", "42", "x", "straße", "данные"
+    };
+
+    /** The char-based definition of a word, as in {@link WordCountEngine}. */
+    private static Map<String, Long> reference(byte[] bytes) {
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        var counts = new HashMap<String, Long>();
+        var word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                counts.merge(word.toString(), 1L, Long::sum);
+                word.setLength(0);
+            }
+        }
+        return counts;
+    }
+
+    private static byte[] corpus(int words, long seed) {
+        var random = new Random(seed);
+        var text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = random.nextInt(4) == 0
+                    ? "word" + random.nextInt(50_000)
+                    : VOCABULARY[random.nextInt(VOCABULARY.length)];
+            text.append(random.nextBoolean() ? word.toUpperCase(Locale.ROOT) : word);
+            text.append(random.nextInt(10) == 0 ? ", " : " ");
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Utf8WordCounter count(byte[] bytes) {
+        var counter = new Utf8WordCounter();
+        counter.feed(ByteBuffer.wrap(bytes));
+        return counter;
+    }
+
+    @Nested
+    @DisplayName("Tokenizing")
+    class TokenizingTests {
+
+        @Test
+        @DisplayName("Should fold case, split on punctuation and count each word")
+        void shouldCountWords() {
+            var buffer = ByteBuffer.wrap("Hello, hello! CAFÉ café—Zürich\n\n42 apples; 42".getBytes(StandardCharsets.UTF_8));
+
+            var counter = new Utf8WordCounter();
+            counter.feed(buffer);
+
+            assertThat(counter.toMap()).containsOnly(
+                    Map.entry("hello", 2L), Map.entry("café", 2L), Map.entry("zürich", 1L),
+                    Map.entry("42", 2L), Map.entry("apples", 1L));
+            assertThat(counter.get("café")).isEqualTo(2);
+            assertThat(counter.get("Café")).isZero();
+            assertThat(counter.total()).isEqualTo(8);
+            assertThat(buffer.hasRemaining()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Malformed bytes, emoji and a truncated sequence should separate words")
+        void shouldSeparateOnMalformedBytes() {
+            var out = new ByteArrayOutputStream();
+            out.writeBytes("ab".getBytes(StandardCharsets.UTF_8));
+            out.write(0xFF);
+            out.writeBytes("cd😀ef".getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(new byte[]{(byte) 0xE0, (byte) 0x80, (byte) 0x80}); // overlong encoding
+            out.writeBytes("gh".getBytes(StandardCharsets.UTF_8));
+            out.write(0xC3); // first byte of "é", cut off
+            byte[] bytes = out.toByteArray();
+
+            assertThat(count(bytes).toMap())
+                    .containsOnlyKeys("ab", "cd", "ef", "gh")
+                    .isEqualTo(reference(bytes));
+        }
+
+        @Test
+        @DisplayName("Should match the char-based tokenizer on text and on random bytes")
+        void shouldMatchReference() {
+            byte[] text = corpus(100_000, 1);
+            var random = new Random(2);
+            byte[] noise = new byte[200_000];
+            for (int i = 0; i < noise.length; i++) {
+                noise[i] = (byte) (random.nextInt(3) == 0 ? random.nextInt(256) : 'a' + random.nextInt(26));
+            }
+
+            assertThat(count(text).toMap()).isEqualTo(reference(text));
+            assertThat(count(noise).toMap()).isEqualTo(reference(noise));
+        }
+
+        @Test
+        @DisplayName("Should read direct buffers and only the bytes between position and limit")
+        void shouldReadDirectBufferRegion() {
+            byte[] bytes = "skip this: counted words counted".getBytes(StandardCharsets.UTF_8);
+            var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+            direct.position(11).limit(bytes.length - 8);
+
+            var counter = new Utf8WordCounter(4);
+            counter.feed(direct);
+
+            assertThat(counter.toMap()).containsOnly(Map.entry("counted", 1L), Map.entry("words", 1L));
+            assertThat(direct.position()).isEqualTo(bytes.length - 8);
+        }
+    }
+
+    @Nested
+    @DisplayName("Word-count maps")
+    class MapTests {
+
+        @Test
+        @DisplayName("addTo() should add into an existing WordCountMap")
+        void addToShouldMerge() {
+            var map = new WordCountMap();
+            map.add("fox", 10);
+            map.add("dog", 1);
+
+            count("the fox the FOX".getBytes(StandardCharsets.UTF_8)).addTo(map);
+
+            assertThat(map.toMap()).containsOnly(
+                    Map.entry("fox", 12L), Map.entry("dog", 1L), Map.entry("the", 2L));
+            assertThat(map.total()).isEqualTo(15);
+        }
+
+        @Test
+        @DisplayName("Should survive table and key-array growth")
+        void shouldGrow() {
+            var text = new StringBuilder();
+            for (int i = 0; i < 50_000; i++) {
+                text.append("w").append(i).append(' ').append("longer_word_number_").append(i).append('\n');
+            }
+
+            var counter = count(text.toString().getBytes(StandardCharsets.UTF_8));
+
+            assertThat(counter.size()).isEqualTo(100_003); // w0..w49999, 0..49999, "longer", "word", "number"
+            assertThat(counter.get("w49999")).isEqualTo(1);
+            assertThat(counter.get("longer")).isEqualTo(50_000);
+            assertThat(counter.toWordCountMap().toMap()).isEqualTo(counter.toMap());
+        }
+
+        @Test
+        @DisplayName("Should reject a null buffer, a negative size and a size above the largest table")
+        void shouldRejectInvalidArguments() {
+            assertThatThrownBy(() -> new Utf8WordCounter().feed(null)).isInstanceOf(NullPointerException.class);
+            assertThatThrownBy(() -> new Utf8WordCounter(-1)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new Utf8WordCounter((1 << 29) + 1)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new Utf8WordCounter(Integer.MAX_VALUE)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: ~18 MB of UTF-8, decode + split + HashMap vs counting from bytes")
+        void bytesVersusStrings() {
+            byte[] text = corpus(2_500_000, 3);
+            var direct = ByteBuffer.allocateDirect(text.length).put(text).flip();
+            var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+            long splitNanos = Long.MAX_VALUE;
+            long bytesNanos = Long.MAX_VALUE;
+            long splitAllocated = 0;
+            long bytesAllocated = 0;
+            Map<String, Long> bySplit = null;
+            Utf8WordCounter counter = null;
+            for (int round = 0; round < 3; round++) {
+                long allocated = threadBean.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                bySplit = new HashMap<>();
+                for (String word : StandardCharsets.UTF_8.decode(direct.duplicate()).toString()
+                        .split("[^\\p{L}\\p{Nd}]+")) {
+                    if (!word.isEmpty()) {
+                        bySplit.merge(word.toLowerCase(Locale.ROOT), 1L, Long::sum);
+                    }
+                }
+                splitNanos = Math.min(splitNanos, System.nanoTime() - start);
+                splitAllocated = threadBean.getCurrentThreadAllocatedBytes() - allocated;
+
+                allocated = threadBean.getCurrentThreadAllocatedBytes();
+                start = System.nanoTime();
+                counter = new Utf8WordCounter();
+                counter.feed(direct.duplicate());
+                bytesNanos = Math.min(bytesNanos, System.nanoTime() - start);
+                bytesAllocated = threadBean.getCurrentThreadAllocatedBytes() - allocated;
+            }
+
+            System.out.println("=== Word counts over " + String.format("%,d", text.length) + " bytes, "
+                    + String.format("%,d", counter.total()) + " words, "
+                    + String.format("%,d", counter.size()) + " distinct ===");
+            System.out.printf("  %-34s %,8d ms %,10d KB allocated%n", "decode + split + HashMap.merge",
+                    splitNanos / 1_000_000, splitAllocated / 1024);
+            System.out.printf("  %-34s %,8d ms %,10d KB allocated%n", "Utf8WordCounter.feed",
+                    bytesNanos / 1_000_000, bytesAllocated / 1024);
+            System.out.println("  → Only distinct words become Strings: allocation follows the vocabulary,");
+            System.out.println("    not the length of the text.");
+            System.out.println();
+
+            assertThat(counter.toMap()).isEqualTo(bySplit);
+            assertThat(bytesAllocated).isLessThan(splitAllocated / 4);
+        }
+    }
+}
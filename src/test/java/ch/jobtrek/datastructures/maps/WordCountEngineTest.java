@@ -0,0 +1,212 @@
+package ch.jobtrek.datastructures.maps;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WordCountEngine}, plus a file throughput benchmark.
+ *
+ * <p>The benchmark generates a 32 MB corpus by default. Point it at a larger
+ * local file with {@code -Dwordcount.file=/path/to/corpus.txt}.</p>
+ */
+@DisplayName("WordCountEngine — sharded word counting")
+class WordCountEngineTest {
+
+    private static final String[] VOCABULARY = {
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "Zürich", "café",
+            "naïve", "Genève", "data", "structure", "stream", "gatherer", "java", "ÉCOLE", "x", "42"
+    };
+
+    private static Map<String, Long> reference(String text) {
+        var counts = new HashMap<String, Long>();
+        for (String word : text.split("[^\\p{L}\\p{Nd}]+")) {
+            if (!word.isEmpty()) {
+                counts.merge(word.toLowerCase(Locale.ROOT), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static void writeCorpus(Path file, long targetBytes, long seed) throws IOException {
+        var random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            long written = 0;
+            while (written < targetBytes) {
+                // A Zipf-like mix: a few frequent words and a long tail of rare ones
+                String word = random.nextInt(4) == 0
+                        ? "word" + random.nextInt(200_000)
+                        : VOCABULARY[random.nextInt(VOCABULARY.length)];
+                String separator = random.nextInt(12) == 0 ? ".\n" : " ";
+                writer.write(word);
+                writer.write(separator);
+                written += word.length() + separator.length();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("countWords() should match HashMap.merge() on lower-cased words")
+        void countWordsShouldMatchMerge() {
+            var words = new ArrayList<String>();
+            var random = new Random(1);
+            for (int i = 0; i < 50_000; i++) {
+                String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+                words.add(random.nextBoolean() ? word.toUpperCase(Locale.ROOT) : word);
+            }
+            var expected = new HashMap<String, Long>();
+            words.forEach(word -> expected.merge(word.toLowerCase(Locale.ROOT), 1L, Long::sum));
+
+            for (int threads : new int[]{1, 3, 8}) {
+                assertThat(WordCountEngine.countWords(words, threads).toMap()).isEqualTo(expected);
+            }
+            assertThat(WordCountEngine.countWords(List.of(), 4).size()).isZero();
+        }
+
+        @Test
+        @DisplayName("countFile() should not split words or UTF-8 characters between chunks")
+        void countFileShouldMatchReference(@TempDir Path dir) throws IOException {
+            Path file = dir.resolve("corpus.txt");
+            writeCorpus(file, 300_000, 2);
+            var expected = reference(Files.readString(file));
+
+            for (int threads : new int[]{1, 2, 7, 32}) {
+                assertThat(WordCountEngine.countFile(file, threads).toMap()).isEqualTo(expected);
+            }
+        }
+
+        @Test
+        @DisplayName("countFile() should handle punctuation, mixed case and an empty file")
+        void countFileShouldTokenize(@TempDir Path dir) throws IOException {
+            Path file = dir.resolve("small.txt");
+            Files.writeString(file, "Hello, hello! CAFÉ café—Zürich\n\n42 apples; 42", StandardCharsets.UTF_8);
+            Path empty = Files.createFile(dir.resolve("empty.txt"));
+
+            var counts = WordCountEngine.countFile(file, 4);
+
+            assertThat(counts.toMap()).containsOnly(
+                    Map.entry("hello", 2L), Map.entry("café", 2L), Map.entry("zürich", 1L),
+                    Map.entry("42", 2L), Map.entry("apples", 1L));
+            assertThat(WordCountEngine.countFile(empty, 4).size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Lists and files should fold case the same way")
+        void listsAndFilesShouldAgree(@TempDir Path dir) throws IOException {
+            var words = List.of("İstanbul", "ISTANBUL", "Straße", "ΣΟΦΙΑ", "Ǆemal");
+            Path file = dir.resolve("words.txt");
+            Files.writeString(file, String.join(" ", words), StandardCharsets.UTF_8);
+
+            var fromList = WordCountEngine.countWords(words, 2).toMap();
+
+            assertThat(fromList).isEqualTo(WordCountEngine.countFile(file, 2).toMap());
+            assertThat(fromList).containsEntry("istanbul", 2L);
+        }
+
+        @Test
+        @DisplayName("Text without ASCII separators should still be cut into bounded chunks")
+        void shouldBoundChunksWithoutAsciiSeparators(@TempDir Path dir) throws IOException {
+            Path file = dir.resolve("cjk.txt");
+            Files.writeString(file, "日本語。".repeat(50_000), StandardCharsets.UTF_8);
+            int maxChunkBytes = 4096;
+
+            long[] bounds;
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                bounds = WordCountEngine.chunkBounds(channel, 4, maxChunkBytes);
+            }
+            var counts = WordCountEngine.countFile(file, 4, maxChunkBytes).toMap();
+
+            byte[] bytes = Files.readAllBytes(file);
+            for (int i = 1; i < bounds.length; i++) {
+                assertThat(bounds[i] - bounds[i - 1]).isBetween(0L, (long) maxChunkBytes);
+                if (bounds[i] < bytes.length) {
+                    // Never inside a character: a cut may split a word, not a UTF-8 sequence
+                    assertThat(bytes[(int) bounds[i]] & 0xC0).isNotEqualTo(0x80);
+                }
+            }
+            assertThat(counts.get("日本語")).isGreaterThan(50_000L - bounds.length);
+            assertThat(counts.keySet()).allMatch("日本語"::contains);
+        }
+
+        @Test
+        @DisplayName("Should reject a non-positive thread count")
+        void shouldRejectInvalidThreads() {
+            assertThatThrownBy(() -> WordCountEngine.countWords(List.of("a"), 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: file throughput in GB/s by thread count")
+        void fileThroughput(@TempDir Path dir) throws IOException {
+            String configured = System.getProperty("wordcount.file");
+            Path file;
+            if (configured != null) {
+                file = Path.of(configured);
+            } else {
+                file = dir.resolve("corpus.txt");
+                writeCorpus(file, 32L << 20, 3);
+            }
+            long bytes = Files.size(file);
+
+            System.out.println("=== Word count of " + String.format("%,d", bytes) + " bytes ("
+                    + Runtime.getRuntime().availableProcessors() + " cores available) ===");
+
+            long start = System.nanoTime();
+            var baseline = new HashMap<String, Integer>();
+            try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+                lines.forEach(line -> {
+                    for (String word : line.split("[^\\p{L}\\p{Nd}]+")) {
+                        if (!word.isEmpty()) {
+                            baseline.merge(word.toLowerCase(Locale.ROOT), 1, Integer::sum);
+                        }
+                    }
+                });
+            }
+            printThroughput("lines + split + HashMap.merge", bytes, System.nanoTime() - start);
+
+            long expectedTotal = baseline.values().stream().mapToLong(Integer::longValue).sum();
+            int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                start = System.nanoTime();
+                var counts = WordCountEngine.countFile(file, threads);
+                printThroughput("WordCountEngine, " + threads + " thread(s)", bytes, System.nanoTime() - start);
+                assertThat(counts.total()).isEqualTo(expectedTotal);
+                assertThat(counts.size()).isEqualTo(baseline.size());
+            }
+            System.out.println("  → Per-thread maps need no synchronisation, so throughput grows with the cores");
+            System.out.println("    until decoding and memory bandwidth become the limit.");
+            System.out.println();
+        }
+
+        private static void printThroughput(String label, long bytes, long nanos) {
+            System.out.printf("  %-34s %,8d ms   %6.3f GB/s%n", label, nanos / 1_000_000, bytes / (double) nanos);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ch.jobtrek.datastructures.maps;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link WordCountMap}.
+ */
+@DisplayName("WordCountMap — open-addressing word counter")
+class WordCountMapTest {
+
+    @Test
+    @DisplayName("Should count words like HashMap.merge() across many resizes")
+    void shouldMatchHashMap() {
+        var counts = new WordCountMap(4);
+        var reference = new HashMap<String, Long>();
+        var random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            String word = "w" + random.nextInt(20_000);
+            counts.increment(word);
+            reference.merge(word, 1L, Long::sum);
+        }
+
+        assertThat(counts.size()).isEqualTo(reference.size());
+        assertThat(counts.total()).isEqualTo(100_000);
+        assertThat(counts.toMap()).isEqualTo(reference);
+        assertThat(counts.get("absent")).isZero();
+    }
+
+    @Test
+    @DisplayName("addAll() should merge two maps")
+    void addAllShouldMerge() {
+        var left = new WordCountMap();
+        left.add("apple", 2);
+        left.increment("banana");
+        var right = new WordCountMap();
+        right.add("banana", 4);
+        right.increment("cherry");
+
+        left.addAll(right);
+
+        assertThat(left.get("apple")).isEqualTo(2);
+        assertThat(left.get("banana")).isEqualTo(5);
+        assertThat(left.get("cherry")).isEqualTo(1);
+        assertThat(left.total()).isEqualTo(8);
+        assertThat(right.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should tell apart words whose hashes collide")
+    void shouldHandleHashCollisions() {
+        // "Aa" and "BB" have the same String.hashCode()
+        var counts = new WordCountMap();
+        counts.increment("Aa");
+        counts.increment("BB");
+        counts.increment("BB");
+
+        assertThat(counts.get("Aa")).isEqualTo(1);
+        assertThat(counts.get("BB")).isEqualTo(2);
+        assertThat(counts.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should reject null words and negative counts")
+    void shouldRejectInvalidInput() {
+        var counts = new WordCountMap();
+
+        assertThatThrownBy(() -> counts.increment(null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> counts.add("a", -1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new WordCountMap(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should size the table in long arithmetic and reject sizes above the largest table")
+    void shouldRejectOversizedCapacity() {
+        assertThat(WordCountMap.tableSizeFor(0)).isEqualTo(32);
+        assertThat(WordCountMap.tableSizeFor(1_000)).isEqualTo(2048);
+        assertThat(WordCountMap.tableSizeFor(1 << 29)).isEqualTo(WordCountMap.MAX_CAPACITY);
+
+        assertThatThrownBy(() -> new WordCountMap((1 << 29) + 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new WordCountMap(1 << 30)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new WordCountMap(Integer.MAX_VALUE)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,78 @@
+package ch.jobtrek.datastructures.sets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link StripedLockSet}.
+ */
+@DisplayName("StripedLockSet — lock-striped concurrent set")
+class StripedLockSetTest {
+
+    @Test
+    @DisplayName("Should behave like a Set for add, contains and remove")
+    void shouldHaveSetSemantics() {
+        var set = new StripedLockSet<String>(4);
+
+        assertThat(set.add("a")).isTrue();
+        assertThat(set.add("b")).isTrue();
+        assertThat(set.add("a")).isFalse();
+        assertThat(set.remove("b")).isTrue();
+
+        assertThat(set).containsExactly("a");
+        assertThat(set.contains("b")).isFalse();
+        assertThat(set.contains(null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should round the stripe count up to a power of two")
+    void shouldRoundStripeCount() {
+        assertThat(new StripedLockSet<Integer>(1).stripeCount()).isEqualTo(1);
+        assertThat(new StripedLockSet<Integer>(5).stripeCount()).isEqualTo(8);
+        assertThat(new StripedLockSet<Integer>(16).stripeCount()).isEqualTo(16);
+        assertThatThrownBy(() -> new StripedLockSet<Integer>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should be equal to a HashSet with the same elements")
+    void shouldEqualHashSet() {
+        var set = new StripedLockSet<>(List.of(1, 2, 3, 1000, 100_000));
+
+        assertThat(set).isEqualTo(Set.of(1, 2, 3, 1000, 100_000));
+        assertThat(set).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("Should not lose concurrent insertions")
+    void shouldHandleConcurrentAdds() throws Exception {
+        var set = new StripedLockSet<Integer>(8);
+        int threads = 8;
+        int perThread = 10_000;
+
+        try (var executor = Executors.newFixedThreadPool(threads)) {
+            var futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        set.add(offset + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(set).hasSize(threads * perThread);
+    }
+}
@@ -0,0 +1,177 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Gatherers;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link BatchDispatcher}, using a simulated email sink with a
+ * configurable latency.
+ */
+@DisplayName("BatchDispatcher — backpressured virtual-thread dispatch")
+class BatchDispatcherTest {
+
+    /**
+     * A local stand-in for a remote email API: every call sleeps for the
+     * configured latency and records how many calls overlap.
+     */
+    static final class SimulatedSink {
+
+        private final Duration latency;
+        private final AtomicInteger current = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final AtomicInteger delivered = new AtomicInteger();
+
+        SimulatedSink(Duration latency) {
+            this.latency = latency;
+        }
+
+        /** Sends one batch and returns a receipt: the first email of the batch. */
+        String send(List<String> batch) {
+            int now = current.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                current.decrementAndGet();
+            }
+            delivered.addAndGet(batch.size());
+            return batch.getFirst();
+        }
+    }
+
+    private static Stream<String> emails(int count) {
+        return IntStream.range(0, count).mapToObj(i -> "user" + i + "@example.ch");
+    }
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("ORDERED should emit one result per batch, in batch order")
+        void orderedShouldKeepBatchOrder() {
+            var sink = new SimulatedSink(Duration.ofMillis(2));
+
+            var receipts = BatchDispatcher.dispatch(emails(95), 10, 4,
+                    BatchDispatcher.Completion.ORDERED, sink::send).toList();
+
+            assertThat(receipts).isEqualTo(IntStream.range(0, 10).mapToObj(i -> "user" + i * 10 + "@example.ch").toList());
+            assertThat(sink.delivered).hasValue(95);
+        }
+
+        @Test
+        @DisplayName("UNORDERED should emit every result, whatever the completion order")
+        void unorderedShouldEmitAll() {
+            var sink = new SimulatedSink(Duration.ofMillis(2));
+
+            var receipts = BatchDispatcher.dispatch(emails(100), 10, 8,
+                    BatchDispatcher.Completion.UNORDERED, sink::send).toList();
+
+            assertThat(receipts).hasSize(10).doesNotHaveDuplicates();
+            assertThat(sink.delivered).hasValue(100);
+        }
+
+        @Test
+        @DisplayName("Should never run more batches at once than the window allows")
+        void shouldBoundInFlightBatches() {
+            for (var completion : BatchDispatcher.Completion.values()) {
+                var sink = new SimulatedSink(Duration.ofMillis(5));
+
+                long batches = BatchDispatcher.dispatch(emails(400), 10, 3, completion, sink::send).count();
+
+                assertThat(batches).isEqualTo(40);
+                assertThat(sink.maxConcurrent.get()).isBetween(1, 3);
+            }
+        }
+
+        @Test
+        @DisplayName("Should only read as many batches as needed after a short-circuit")
+        void shouldApplyBackpressureToTheSource() {
+            var read = new AtomicInteger();
+            var sink = new SimulatedSink(Duration.ofMillis(1));
+
+            try (var receipts = BatchDispatcher.dispatch(emails(10_000).peek(email -> read.incrementAndGet()),
+                    10, 4, BatchDispatcher.Completion.ORDERED, sink::send)) {
+                assertThat(receipts.limit(2).toList()).hasSize(2);
+            }
+
+            // Two consumed batches plus at most a full window read ahead
+            assertThat(read.get()).isLessThanOrEqualTo(10 * (2 + 4));
+        }
+
+        @Test
+        @DisplayName("A failing handler should surface as an IllegalStateException")
+        void shouldPropagateHandlerFailure() {
+            var receipts = BatchDispatcher.dispatch(emails(50), 10, 2, BatchDispatcher.Completion.ORDERED,
+                    batch -> {
+                        throw new IllegalArgumentException("bad batch");
+                    });
+
+            assertThatThrownBy(receipts::toList)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("Should reject a non-positive batch size or window")
+        void shouldRejectInvalidArguments() {
+            assertThatThrownBy(() -> BatchDispatcher.dispatch(emails(1), 0, 1,
+                    BatchDispatcher.Completion.ORDERED, List::size)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> BatchDispatcher.dispatch(emails(1), 1, 0,
+                    BatchDispatcher.Completion.ORDERED, List::size)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: sequential sending vs dispatch windows, 10 ms per batch")
+        void benchmark() {
+            int count = 20_000;
+            int batchSize = 100;
+            var latency = Duration.ofMillis(10);
+
+            System.out.println("=== Sending " + String.format("%,d", count) + " emails in batches of " + batchSize
+                    + ", " + latency.toMillis() + " ms per batch ===");
+
+            var sequentialSink = new SimulatedSink(latency);
+            long start = System.nanoTime();
+            emails(count).gather(Gatherers.windowFixed(batchSize)).forEach(sequentialSink::send);
+            System.out.printf("  %-30s %,7d ms%n", "sequential", (System.nanoTime() - start) / 1_000_000);
+
+            for (var completion : BatchDispatcher.Completion.values()) {
+                for (int window : new int[]{1, 8, 64}) {
+                    var sink = new SimulatedSink(latency);
+                    start = System.nanoTime();
+                    long batches = BatchDispatcher.dispatch(emails(count), batchSize, window, completion, sink::send).count();
+                    long elapsed = (System.nanoTime() - start) / 1_000_000;
+                    System.out.printf("  %-30s %,7d ms   max concurrent %d%n",
+                            completion + ", window " + window, elapsed, sink.maxConcurrent.get());
+                    assertThat(batches).isEqualTo(count / batchSize);
+                    assertThat(sink.delivered).hasValue(count);
+                }
+            }
+            System.out.println("  → Elapsed time is about (batches / window) × latency: the window bounds both the");
+            System.out.println("    load on the receiver and the number of batches held in memory.");
+            System.out.println();
+
+            assertThat(sequentialSink.delivered).hasValue(count);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Gatherers;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link Batches}, plus an allocation benchmark against
+ * {@code Gatherers.windowFixed()}.
+ */
+@DisplayName("Batches — zero-copy batching")
+class BatchesTest {
+
+    private static final List<String> EMAILS = List.of(
+            "a@x.ch", "b@x.ch", "c@x.ch", "d@x.ch", "e@x.ch", "f@x.ch", "g@x.ch", "h@x.ch");
+
+    private static List<String> emails(int count) {
+        var emails = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            emails.add("user" + i + "@example.ch");
+        }
+        return emails;
+    }
+
+    @Nested
+    @DisplayName("subList views")
+    class ViewTests {
+
+        @Test
+        @DisplayName("Should produce the same batches as Gatherers.windowFixed()")
+        void shouldMatchWindowFixed() {
+            var expected = EMAILS.stream().gather(Gatherers.windowFixed(3)).toList();
+
+            assertThat(Batches.views(EMAILS, 3)).isEqualTo(expected);
+            assertThat(Batches.stream(EMAILS, 3).toList()).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("Batches should be views: writes to the source are visible")
+        void batchesShouldBeViews() {
+            var source = new ArrayList<>(EMAILS);
+            var batches = Batches.views(source, 3);
+
+            source.set(4, "changed@x.ch");
+
+            assertThat(batches.get(1)).containsExactly("d@x.ch", "changed@x.ch", "f@x.ch");
+        }
+
+        @Test
+        @DisplayName("Should handle empty lists and exact multiples")
+        void shouldHandleEdgeSizes() {
+            assertThat(Batches.views(List.of(), 3)).isEmpty();
+            assertThat(Batches.views(EMAILS, 4)).hasSize(2);
+            assertThat(Batches.views(EMAILS, 100)).containsExactly(EMAILS);
+        }
+
+        @Test
+        @DisplayName("Should not overflow on the last batch of a list near Integer.MAX_VALUE elements")
+        void shouldHandleHugeLists() {
+            class Indices extends AbstractList<Integer> implements RandomAccess {
+                @Override
+                public Integer get(int index) {
+                    return index;
+                }
+
+                @Override
+                public int size() {
+                    return Integer.MAX_VALUE;
+                }
+            }
+
+            var batches = Batches.views(new Indices(), 1 << 30);
+
+            assertThat(batches).hasSize(2);
+            assertThat(batches.getLast()).hasSize(Integer.MAX_VALUE - (1 << 30));
+            assertThat(batches.getLast().getFirst()).isEqualTo(1 << 30);
+            assertThat(batches.getLast().getLast()).isEqualTo(Integer.MAX_VALUE - 1);
+        }
+
+        @Test
+        @DisplayName("Should reject invalid batch sizes and non-random-access lists")
+        void shouldRejectInvalidInput() {
+            assertThatThrownBy(() -> Batches.views(EMAILS, 0)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Batches.views(new LinkedList<>(EMAILS), 3))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Batches.reusingWindowFixed(-1)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Reused buffer")
+    class ReusedBufferTests {
+
+        @Test
+        @DisplayName("Should deliver the right batches when each one is consumed immediately")
+        void shouldDeliverBatches() {
+            var received = new ArrayList<List<String>>();
+
+            Batches.streamReusing(new LinkedList<>(EMAILS), 3).forEach(batch -> received.add(List.copyOf(batch)));
+
+            assertThat(received).isEqualTo(EMAILS.stream().gather(Gatherers.windowFixed(3)).toList());
+        }
+
+        @Test
+        @DisplayName("stream() should never hand out the reused buffer, whatever the collection")
+        void streamShouldNotReuseBuffer() {
+            var expected = EMAILS.stream().gather(Gatherers.windowFixed(3)).toList();
+
+            assertThat(Batches.stream(new LinkedList<>(EMAILS), 3).toList()).isEqualTo(expected);
+            assertThat(Batches.stream(new LinkedHashSet<>(EMAILS), 3).toList()).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("Should batch an infinite stream with bounded memory")
+        void shouldBatchInfiniteStream() {
+            var firstElements = new ArrayList<Integer>();
+
+            Stream.iterate(0, i -> i + 1)
+                    .gather(Batches.reusingWindowFixed(1_000))
+                    .limit(5)
+                    .forEach(batch -> firstElements.add(batch.getFirst()));
+
+            assertThat(firstElements).containsExactly(0, 1_000, 2_000, 3_000, 4_000);
+        }
+
+        @Test
+        @DisplayName("Pushed batches should be read-only")
+        void batchesShouldBeReadOnly() {
+            Stream.of("a", "b").gather(Batches.<String>reusingWindowFixed(2)).forEach(batch ->
+                    assertThatThrownBy(() -> batch.add("c")).isInstanceOf(UnsupportedOperationException.class));
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        private static long allocatedBytes() {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+
+        @Test
+        @DisplayName("Benchmark: bytes allocated and time to batch 2M emails")
+        void allocationBenchmark() {
+            int count = 2_000_000;
+            int batchSize = 500;
+            var emails = emails(count);
+            var linked = new LinkedList<>(emails);
+            var checksum = new AtomicLong();
+
+            System.out.println("=== Batching " + String.format("%,d", count) + " emails into batches of " + batchSize + " ===");
+            record Strategy(String name, Runnable run) {
+            }
+            for (var strategy : List.of(
+                    new Strategy("Gatherers.windowFixed (copies)", () -> emails.stream()
+                            .gather(Gatherers.windowFixed(batchSize))
+                            .forEach(batch -> checksum.addAndGet(batch.size()))),
+                    new Strategy("Batches.views (subList)", () -> Batches.views(emails, batchSize)
+                            .forEach(batch -> checksum.addAndGet(batch.size()))),
+                    new Strategy("Batches.streamReusing (LinkedList)", () -> Batches.streamReusing(linked, batchSize)
+                            .forEach(batch -> checksum.addAndGet(batch.size()))))) {
+                strategy.run().run();
+                long bytesBefore = allocatedBytes();
+                long start = System.nanoTime();
+                strategy.run().run();
+                long elapsed = System.nanoTime() - start;
+                long bytes = allocatedBytes() - bytesBefore;
+                System.out.printf("  %-36s %,12d bytes allocated  %,8d µs%n", strategy.name(), bytes, elapsed / 1_000);
+            }
+            System.out.println("  → windowFixed allocates a copy of every batch: about 4 bytes per email plus list");
+            System.out.println("    headers. Views cost one small object per batch; the reused buffer costs one batch.");
+            System.out.println();
+
+            assertThat(checksum.get()).isEqualTo(6L * count);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link CountMinSketch}, plus a memory and throughput benchmark
+ * against the exact {@code groupingBy(counting())} collector.
+ */
+@DisplayName("CountMinSketch — approximate frequencies")
+class CountMinSketchTest {
+
+    /** Draws words from a skewed (Zipf-like) distribution over {@code vocabulary} words. */
+    static String[] zipfWords(int count, int vocabulary, long seed) {
+        var names = new String[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            names[i] = "w" + i;
+        }
+        var random = new Random(seed);
+        var words = new String[count];
+        for (int i = 0; i < count; i++) {
+            double u = random.nextDouble();
+            words[i] = names[(int) (u * u * u * u * vocabulary)];
+        }
+        return words;
+    }
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("Estimates should never be below the true count and stay within ε × total")
+        void estimatesShouldBeBounded() {
+            String[] words = zipfWords(200_000, 50_000, 1);
+            Map<String, Long> exact = Arrays.stream(words)
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            double epsilon = 0.001;
+            CountMinSketch<String> sketch = CountMinSketch.withError(epsilon, 0.01);
+            for (String word : words) {
+                sketch.add(word);
+            }
+
+            long bound = (long) (epsilon * sketch.total());
+            long withinBound = exact.entrySet().stream()
+                    .peek(e -> assertThat(sketch.estimate(e.getKey())).isGreaterThanOrEqualTo(e.getValue()))
+                    .filter(e -> sketch.estimate(e.getKey()) - e.getValue() <= bound)
+                    .count();
+
+            assertThat(sketch.total()).isEqualTo(words.length);
+            assertThat(withinBound).isGreaterThanOrEqualTo((long) (exact.size() * 0.99));
+        }
+
+        @Test
+        @DisplayName("Should be exact for a few items in a wide sketch")
+        void shouldBeExactWithoutCollisions() {
+            var sketch = new CountMinSketch<String>(1 << 16, 4);
+            sketch.add("apple", 3);
+            sketch.add("banana");
+            sketch.add("apple");
+
+            assertThat(sketch.estimate("apple")).isEqualTo(4);
+            assertThat(sketch.estimate("banana")).isEqualTo(1);
+            assertThat(sketch.estimate("cherry")).isZero();
+        }
+
+        @Test
+        @DisplayName("Dimensions should follow ε and δ, the width rounded to a power of two")
+        void dimensionsShouldFollowErrorBounds() {
+            CountMinSketch<String> sketch = CountMinSketch.withError(0.001, 0.01);
+
+            assertThat(sketch.width()).isEqualTo(4096);
+            assertThat(sketch.depth()).isEqualTo(5);
+            assertThat(sketch.memoryBytes()).isEqualTo(8L * 4096 * 5);
+            assertThat(new CountMinSketch<String>(1000, 3).width()).isEqualTo(1024);
+        }
+
+        @Test
+        @DisplayName("The parallel collector should give the same upper bounds as a sequential sketch")
+        void parallelCollectorShouldMerge() {
+            String[] words = zipfWords(100_000, 10_000, 2);
+            var exact = Arrays.stream(words)
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+            CountMinSketch<String> sketch = Arrays.stream(words).parallel()
+                    .collect(CountMinSketch.collector(0.0005, 0.01));
+
+            assertThat(sketch.total()).isEqualTo(words.length);
+            exact.forEach((word, count) -> assertThat(sketch.estimate(word)).isGreaterThanOrEqualTo(count));
+        }
+
+        @Test
+        @DisplayName("Should reject dimensions whose counters do not fit in one array")
+        void shouldRejectOversizedDimensions() {
+            // 2^29 × 4 = 2^31 counters: one more than an int index can reach
+            assertThatThrownBy(() -> new CountMinSketch<>(1 << 29, 4)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new CountMinSketch<>(1 << 29, 5)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new CountMinSketch<>(1 << 30, 4)).isInstanceOf(IllegalArgumentException.class);
+            // Rounded up to 2^29 before the check
+            assertThatThrownBy(() -> new CountMinSketch<>((1 << 28) + 1, 4)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> CountMinSketch.withError(1e-9, 0.01)).isInstanceOf(IllegalArgumentException.class);
+
+            var deep = new CountMinSketch<String>(1 << 16, 32);
+            deep.add("x");
+            assertThat(deep.estimate("x")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should reject invalid bounds, dimensions and merges")
+        void shouldRejectInvalidInput() {
+            assertThatThrownBy(() -> CountMinSketch.withError(0, 0.1)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> CountMinSketch.collector(0.1, 1)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new CountMinSketch<>(0, 4)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new CountMinSketch<String>(64, 4).merge(new CountMinSketch<>(64, 3)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new CountMinSketch<String>(64, 4).add(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        private static long allocatedBytes() {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+
+        @Test
+        @DisplayName("Benchmark: memory and throughput against groupingBy(counting())")
+        void sketchVersusExactCounting() {
+            int count = 2_000_000;
+            String[] words = zipfWords(count, 500_000, 3);
+
+            System.out.println("=== Counting " + String.format("%,d", count) + " Zipf-distributed words ===");
+            Map<String, Long> exact = null;
+            CountMinSketch<String> sketch = null;
+            for (int round = 0; round < 2; round++) {
+                long bytesBefore = allocatedBytes();
+                long start = System.nanoTime();
+                exact = Arrays.stream(words)
+                        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+                long exactNanos = System.nanoTime() - start;
+                long exactBytes = allocatedBytes() - bytesBefore;
+
+                bytesBefore = allocatedBytes();
+                start = System.nanoTime();
+                sketch = Arrays.stream(words).collect(CountMinSketch.collector(0.0001, 0.01));
+                long sketchNanos = System.nanoTime() - start;
+                long sketchBytes = allocatedBytes() - bytesBefore;
+
+                if (round == 1) {
+                    System.out.printf("  %-34s %,8d ms  %,14d bytes allocated  (%,d entries)%n",
+                            "groupingBy(counting())", exactNanos / 1_000_000, exactBytes, exact.size());
+                    System.out.printf("  %-34s %,8d ms  %,14d bytes allocated  (%,d bytes of counters)%n",
+                            "CountMinSketch ε=0.0001 δ=0.01", sketchNanos / 1_000_000, sketchBytes,
+                            sketch.memoryBytes());
+                }
+            }
+
+            var finalSketch = sketch;
+            double meanOverestimate = exact.entrySet().stream()
+                    .mapToLong(e -> finalSketch.estimate(e.getKey()) - e.getValue())
+                    .average().orElse(0);
+            System.out.printf("  → mean overestimate %.2f occurrences (bound ε × total = %,d)%n",
+                    meanOverestimate, (long) (0.0001 * count));
+            System.out.println("    The sketch is a fixed table whatever the vocabulary; the exact map grows with");
+            System.out.println("    every distinct word and boxes a Long per update.");
+            System.out.println();
+
+            assertThat(meanOverestimate).isLessThanOrEqualTo(0.0001 * count);
+            assertThat(sketch.total()).isEqualTo(count);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link Deduplicate}, plus a memory benchmark of the bounded
+ * variants against {@code Stream.distinct()}.
+ */
+@DisplayName("Deduplicate — lazy deduplicating gatherers")
+class DeduplicateTest {
+
+    @Nested
+    @DisplayName("Consecutive")
+    class ConsecutiveTests {
+
+        @Test
+        @DisplayName("Should remove consecutive duplicates only")
+        void shouldRemoveConsecutiveDuplicates() {
+            var result = Stream.of("A", "A", "B", "C", "C", "C", "A", "B", "B")
+                    .gather(Deduplicate.consecutive())
+                    .toList();
+
+            assertThat(result).containsExactly("A", "B", "C", "A", "B");
+        }
+
+        @Test
+        @DisplayName("Should handle null elements, including a leading null")
+        void shouldHandleNulls() {
+            var result = Stream.of(null, null, "A", null, "A", "A")
+                    .gather(Deduplicate.<String>consecutive())
+                    .toList();
+
+            assertThat(result).containsExactly(null, "A", null, "A");
+        }
+
+        @Test
+        @DisplayName("Should compare by key or by a custom predicate")
+        void shouldCompareByKeyOrPredicate() {
+            var byKey = Stream.of("Hello", "HELLO", "hello", "World", "hello")
+                    .gather(Deduplicate.consecutiveBy(String::toLowerCase))
+                    .toList();
+            var byTolerance = Stream.of(1.0, 1.05, 1.08, 2.0, 2.01)
+                    .gather(Deduplicate.<Double>consecutive((a, b) -> Math.abs(a - b) < 0.1))
+                    .toList();
+
+            assertThat(byKey).containsExactly("Hello", "World", "hello");
+            assertThat(byTolerance).containsExactly(1.0, 2.0);
+        }
+
+        @Test
+        @DisplayName("Should stop pulling from an infinite source once limit() is satisfied")
+        void shouldShortCircuitInfiniteStream() {
+            var pulled = new AtomicInteger();
+
+            var result = Stream.iterate(0, i -> i + 1)
+                    .peek(i -> pulled.incrementAndGet())
+                    .map(i -> i / 3)
+                    .gather(Deduplicate.consecutive())
+                    .limit(4)
+                    .toList();
+
+            assertThat(result).containsExactly(0, 1, 2, 3);
+            assertThat(pulled.get()).isEqualTo(10);
+        }
+    }
+
+    @Nested
+    @DisplayName("Global")
+    class GlobalTests {
+
+        @Test
+        @DisplayName("recent() should drop repeats within its horizon and forget older keys")
+        void recentShouldUseLruHorizon() {
+            var result = Stream.of("a", "b", "a", "c", "d", "a", "b")
+                    .gather(Deduplicate.recent(2))
+                    .toList();
+
+            // After "a b a c d", only {c, d} are remembered: "a" and "b" pass again
+            assertThat(result).containsExactly("a", "b", "c", "d", "a", "b");
+        }
+
+        @Test
+        @DisplayName("recentBy() should behave like distinct() when the horizon covers all keys")
+        void recentByShouldMatchDistinct() {
+            var words = List.of("Apple", "apple", "Banana", "APPLE", "cherry", "banana");
+
+            var result = words.stream().gather(Deduplicate.recentBy(String::toLowerCase, 100)).toList();
+
+            assertThat(result).containsExactly("Apple", "Banana", "cherry");
+        }
+
+        @Test
+        @DisplayName("approximate() should never let a repeat through and drop few new elements")
+        void approximateShouldRespectFalsePositiveRate() {
+            int distinct = 100_000;
+            var result = IntStream.range(0, 2 * distinct)
+                    .mapToObj(i -> "id-" + (i % distinct))
+                    .gather(Deduplicate.approximate(distinct, 0.01))
+                    .toList();
+
+            assertThat(result).doesNotHaveDuplicates();
+            assertThat(result.size()).isGreaterThan((int) (distinct * 0.98));
+        }
+
+        @Test
+        @DisplayName("Should reject invalid sizes and rates")
+        void shouldRejectInvalidInput() {
+            assertThatThrownBy(() -> Deduplicate.recent(0)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Deduplicate.approximate(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Deduplicate.approximate(10, 1.0)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Deduplicate.consecutiveBy(null)).isInstanceOf(NullPointerException.class);
+        }
+
+        @Test
+        @DisplayName("approximate() should reject a Bloom filter larger than one array")
+        void approximateShouldRejectOversizedFilter() {
+            // About 9.6 bits per element at p = 1%: 10 billion elements fit, 20 billion do not
+            assertThat(Deduplicate.BloomFilter.bitCount(10_000_000_000L, 0.01))
+                    .isLessThanOrEqualTo(Deduplicate.BloomFilter.MAX_BITS);
+            assertThat(Deduplicate.approximate(10_000_000_000L, 0.01)).isNotNull();
+            assertThatThrownBy(() -> Deduplicate.approximate(20_000_000_000L, 0.01))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Deduplicate.approximate(Long.MAX_VALUE, 0.5))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(Deduplicate.BloomFilter.bitCount(1, 0.5)).isEqualTo(64);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: remembered state of distinct() vs LRU vs Bloom filter")
+        void memoryBenchmark() {
+            int count = 1_000_000;
+            int distinct = 200_000;
+            var ids = IntStream.range(0, count).mapToObj(i -> "id-" + (i * 7919L % distinct)).toArray(String[]::new);
+
+            System.out.println("=== Deduplicating " + String.format("%,d", count) + " ids ("
+                    + String.format("%,d", distinct) + " distinct) ===");
+            record Strategy(String name, String state, Runnable run) {
+            }
+            var bloom = new Deduplicate.BloomFilter(distinct, 0.01);
+            var sizes = new long[3];
+            for (var strategy : List.of(
+                    new Strategy("Stream.distinct()", "one HashSet entry per distinct id",
+                            () -> sizes[0] = Arrays.stream(ids).distinct().count()),
+                    new Strategy("Deduplicate.recent(10_000)", "10,000 LinkedHashMap entries at most",
+                            () -> sizes[1] = Arrays.stream(ids).gather(Deduplicate.recent(10_000)).count()),
+                    new Strategy("Deduplicate.approximate(p=1%)",
+                            String.format("%,d bytes of bits", bloom.memoryBytes()),
+                            () -> sizes[2] = Arrays.stream(ids)
+                                    .gather(Deduplicate.approximate(distinct, 0.01)).count()))) {
+                strategy.run().run();
+                long start = System.nanoTime();
+                strategy.run().run();
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("  %-32s %,6d ms   state: %s%n", strategy.name(), elapsed / 1_000_000, strategy.state());
+            }
+            System.out.printf("  → kept %,d / %,d / %,d elements. The LRU forgets ids seen more than 10,000 ids%n",
+                    sizes[0], sizes[1], sizes[2]);
+            System.out.println("    ago; the Bloom filter never lets a repeat through but drops ~1% of new ids.");
+            System.out.println();
+
+            assertThat(sizes[0]).isEqualTo(distinct);
+            assertThat(sizes[2]).isLessThanOrEqualTo(distinct);
+        }
+    }
+}
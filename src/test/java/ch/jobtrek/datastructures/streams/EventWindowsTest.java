@@ -0,0 +1,215 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.streams.EventWindows.Window;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link EventWindows}, plus a benchmark against buffering each
+ * window with {@code groupingBy}.
+ */
+@DisplayName("EventWindows — event-time window gatherers")
+class EventWindowsTest {
+
+    /** A telemetry sample: a timestamp in milliseconds and a measured value. */
+    record Reading(long time, double value) {
+    }
+
+    private static List<Window<Long>> countTumbling(List<Reading> readings, long length, long lateness) {
+        return readings.stream()
+                .gather(EventWindows.tumbling(Reading::time, length, lateness, Collectors.counting()))
+                .toList();
+    }
+
+    @Nested
+    @DisplayName("Tumbling and hopping")
+    class FixedWindowTests {
+
+        @Test
+        @DisplayName("Tumbling windows should aggregate sorted events and skip empty windows")
+        void tumblingShouldAggregate() {
+            var readings = List.of(new Reading(0, 1.0), new Reading(30, 3.0), new Reading(59, 5.0),
+                    new Reading(60, 10.0), new Reading(250, 7.0));
+
+            var windows = readings.stream()
+                    .gather(EventWindows.tumbling(Reading::time, 60, 0, Collectors.averagingDouble(Reading::value)))
+                    .toList();
+
+            assertThat(windows).containsExactly(
+                    new Window<>(0, 60, 3, 3.0),
+                    new Window<>(60, 120, 1, 10.0),
+                    new Window<>(240, 300, 1, 7.0));
+        }
+
+        @Test
+        @DisplayName("Out-of-order events within the lateness should land in the right window")
+        void shouldAcceptBoundedDisorder() {
+            var readings = List.of(new Reading(10, 0), new Reading(70, 0), new Reading(50, 0),
+                    new Reading(65, 0), new Reading(130, 0), new Reading(200, 0));
+
+            assertThat(countTumbling(readings, 60, 30)).extracting(Window::count).containsExactly(2L, 2L, 1L, 1L);
+        }
+
+        @Test
+        @DisplayName("Events behind the watermark should be dropped")
+        void shouldDropLateEvents() {
+            // With lateness 10, the watermark reaches 120 - 10 = 110 before the event at 50 arrives
+            var readings = List.of(new Reading(10, 0), new Reading(120, 0), new Reading(50, 0), new Reading(115, 0));
+
+            assertThat(countTumbling(readings, 60, 10)).containsExactly(
+                    new Window<>(0, 60, 1, 1L), new Window<>(60, 120, 1, 1L), new Window<>(120, 180, 1, 1L));
+        }
+
+        @Test
+        @DisplayName("Hopping windows should place each event in length / hop windows")
+        void hoppingShouldOverlap() {
+            var readings = List.of(new Reading(5, 0), new Reading(25, 0), new Reading(45, 0));
+
+            var windows = readings.stream()
+                    .gather(EventWindows.hopping(Reading::time, 60, 20, 0, Collectors.counting()))
+                    .toList();
+
+            assertThat(windows).containsExactly(
+                    new Window<>(-40, 20, 1, 1L), new Window<>(-20, 40, 2, 2L),
+                    new Window<>(0, 60, 3, 3L), new Window<>(20, 80, 2, 2L), new Window<>(40, 100, 1, 1L));
+        }
+
+        @Test
+        @DisplayName("Should emit windows lazily from an infinite stream")
+        void shouldWorkOnInfiniteStream() {
+            var windows = Stream.iterate(0L, t -> t + 7)
+                    .map(t -> new Reading(t, 1.0))
+                    .gather(EventWindows.tumbling(Reading::time, 100, 0, Collectors.counting()))
+                    .limit(3)
+                    .toList();
+
+            assertThat(windows).extracting(Window::start).containsExactly(0L, 100L, 200L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Sessions")
+    class SessionTests {
+
+        @Test
+        @DisplayName("Events less than gap apart should form one session")
+        void shouldSplitOnInactivity() {
+            var readings = List.of(new Reading(0, 0), new Reading(20, 0), new Reading(45, 0),
+                    new Reading(200, 0), new Reading(210, 0));
+
+            var sessions = readings.stream()
+                    .gather(EventWindows.session(Reading::time, 30, 0, Collectors.counting()))
+                    .toList();
+
+            assertThat(sessions).containsExactly(new Window<>(0, 75, 3, 3L), new Window<>(200, 240, 2, 2L));
+        }
+
+        @Test
+        @DisplayName("A late event should bridge two sessions by combining their aggregates")
+        void lateEventShouldMergeSessions() {
+            var readings = List.of(new Reading(0, 1), new Reading(50, 2), new Reading(25, 3), new Reading(300, 4));
+
+            var sessions = readings.stream()
+                    .gather(EventWindows.session(Reading::time, 30, 100,
+                            Collectors.summingDouble(Reading::value)))
+                    .toList();
+
+            assertThat(sessions).containsExactly(new Window<>(0, 80, 3, 6.0), new Window<>(300, 330, 1, 4.0));
+        }
+
+        @Test
+        @DisplayName("A late event just before a session should extend it backwards")
+        void lateEventShouldExtendSession() {
+            var readings = List.of(new Reading(100, 0), new Reading(80, 0));
+
+            var sessions = readings.stream()
+                    .gather(EventWindows.session(Reading::time, 30, 50, Collectors.counting()))
+                    .toList();
+
+            assertThat(sessions).containsExactly(new Window<>(80, 130, 2, 2L));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject invalid lengths, hops, gaps and lateness")
+    void shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> EventWindows.tumbling(Reading::time, 0, 0, Collectors.counting()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EventWindows.hopping(Reading::time, 10, 20, 0, Collectors.counting()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EventWindows.session(Reading::time, 10, -1, Collectors.counting()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        private static long allocatedBytes() {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+
+        @Test
+        @DisplayName("Benchmark: incremental aggregates vs buffering windows with groupingBy")
+        void incrementalVersusBuffered() {
+            int count = 2_000_000;
+            var random = new Random(1);
+            var readings = new ArrayList<Reading>(count);
+            for (int i = 0; i < count; i++) {
+                // One reading per ms, up to 500 ms out of order
+                readings.add(new Reading(Math.max(0, i - random.nextInt(500)), random.nextDouble()));
+            }
+            long windowLength = 60_000;
+
+            System.out.println("=== Average per minute of " + String.format("%,d", count) + " readings ===");
+            List<Window<Double>> incremental = List.of();
+            int buffered = 0;
+            for (int round = 0; round < 2; round++) {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                var groups = readings.stream()
+                        .collect(Collectors.groupingBy(r -> r.time() / windowLength, java.util.TreeMap::new,
+                                Collectors.toList()));
+                var averages = new ArrayList<Double>();
+                groups.values().forEach(group ->
+                        averages.add(group.stream().mapToDouble(Reading::value).average().orElse(0)));
+                buffered = averages.size();
+                long bufferedNanos = System.nanoTime() - start;
+                long bufferedBytes = allocatedBytes() - bytes;
+
+                bytes = allocatedBytes();
+                start = System.nanoTime();
+                incremental = readings.stream()
+                        .gather(EventWindows.tumbling(Reading::time, windowLength, 500,
+                                Collectors.averagingDouble(Reading::value)))
+                        .toList();
+                long incrementalNanos = System.nanoTime() - start;
+                long incrementalBytes = allocatedBytes() - bytes;
+
+                if (round == 1) {
+                    System.out.printf("  %-40s %,6d ms  %,14d bytes allocated%n",
+                            "groupingBy window → list → average", bufferedNanos / 1_000_000, bufferedBytes);
+                    System.out.printf("  %-40s %,6d ms  %,14d bytes allocated%n",
+                            "EventWindows.tumbling + averagingDouble", incrementalNanos / 1_000_000, incrementalBytes);
+                }
+            }
+            System.out.println("  → The gatherer keeps one running average per open window instead of every");
+            System.out.println("    reading, and emits each minute as soon as the watermark passes it.");
+            System.out.println();
+
+            assertThat(incremental).hasSize(buffered);
+            assertThat(incremental.stream().mapToLong(Window::count).sum()).isEqualTo(count);
+        }
+    }
+}
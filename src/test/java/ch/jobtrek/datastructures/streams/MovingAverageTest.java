@@ -0,0 +1,247 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+import java.util.stream.Gatherers;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link MovingAverage}, plus a benchmark against
+ * {@code Gatherers.windowSliding()} followed by a per-window average.
+ */
+@DisplayName("MovingAverage — O(1) sliding-window average")
+class MovingAverageTest {
+
+    private static List<Double> naive(List<Double> values, int windowSize) {
+        var averages = new ArrayList<Double>();
+        for (int end = windowSize; end <= values.size(); end++) {
+            double sum = 0;
+            for (int i = end - windowSize; i < end; i++) {
+                sum += values.get(i);
+            }
+            averages.add(sum / windowSize);
+        }
+        return averages;
+    }
+
+    private static List<Double> randomReadings(int count, long seed) {
+        var random = new Random(seed);
+        var readings = new ArrayList<Double>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(15 + random.nextGaussian() * 5);
+        }
+        return readings;
+    }
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("Should compute the documented example [1, 2, 3, 4] with window 3")
+        void shouldComputeExample() {
+            var result = Stream.of(1.0, 2.0, 3.0, 4.0).gather(MovingAverage.gatherer(3)).toList();
+
+            assertThat(result).containsExactly(2.0, 3.0);
+        }
+
+        @Test
+        @DisplayName("Should match a naive O(n·w) average on random readings")
+        void shouldMatchNaive() {
+            var readings = randomReadings(5_000, 42);
+
+            for (int windowSize : new int[]{1, 7, 100, 5_000}) {
+                var expected = naive(readings, windowSize);
+                var gathered = readings.stream().gather(MovingAverage.gatherer(windowSize)).toList();
+                double[] primitive = MovingAverage.of(readings.stream().mapToDouble(Double::doubleValue), windowSize)
+                        .toArray();
+
+                assertThat(gathered).hasSize(expected.size());
+                assertThat(primitive).hasSize(expected.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertThat(gathered.get(i)).isCloseTo(expected.get(i), within(1e-9));
+                    assertThat(primitive[i]).isCloseTo(expected.get(i), within(1e-9));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should emit one partial average when the input is shorter than the window, like windowSliding")
+        void shouldHandleShortInput() {
+            assertThat(Stream.of(1.0, 2.0).gather(MovingAverage.gatherer(5)).toList()).containsExactly(1.5);
+            assertThat(MovingAverage.of(DoubleStream.of(1.0, 2.0), 5).toArray()).containsExactly(1.5);
+            assertThat(Stream.<Double>empty().gather(MovingAverage.gatherer(5)).toList()).isEmpty();
+            assertThat(MovingAverage.of(DoubleStream.empty(), 5).count()).isZero();
+        }
+
+        @Test
+        @DisplayName("Compensated sum should not drift when large and small values alternate")
+        void shouldNotDrift() {
+            var average = new MovingAverage(2);
+            for (int i = 0; i < 1_000_000; i++) {
+                average.accept(i % 2 == 0 ? 1e16 : 1.0);
+            }
+            average.accept(1.0);
+            average.accept(1.0);
+
+            assertThat(average.average()).isEqualTo(1.0);
+        }
+
+        @Test
+        @DisplayName("Should be usable directly and reusable after reset()")
+        void shouldAcceptValuesDirectly() {
+            var average = new MovingAverage(3);
+            average.accept(3);
+            average.accept(6);
+
+            assertThat(average.isFull()).isFalse();
+            assertThat(average.average()).isEqualTo(4.5);
+
+            average.accept(9);
+            average.accept(12);
+
+            assertThat(average.isFull()).isTrue();
+            assertThat(average.average()).isEqualTo(9.0);
+
+            average.reset();
+
+            assertThat(average.count()).isZero();
+            assertThat(average.average()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should reject a non-positive window size")
+        void shouldRejectInvalidWindow() {
+            assertThatThrownBy(() -> new MovingAverage(0)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> MovingAverage.gatherer(-1)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Checkpoints")
+    class CheckpointTests {
+
+        @Test
+        @DisplayName("Resuming from a snapshot should continue exactly like an uninterrupted run")
+        void resumeShouldMatchUninterruptedRun() {
+            var readings = randomReadings(10_000, 7);
+            var uninterrupted = readings.stream().gather(MovingAverage.gatherer(50)).toList();
+
+            var state = new MovingAverage(50);
+            var firstRun = readings.stream().limit(6_123).gather(MovingAverage.gatherer(state)).toList();
+            byte[] checkpoint = state.snapshot();
+            var restored = MovingAverage.restore(checkpoint);
+            var secondRun = readings.stream().skip(restored.accepted())
+                    .gather(MovingAverage.gatherer(restored)).toList();
+
+            var resumed = new ArrayList<>(firstRun);
+            resumed.addAll(secondRun);
+            assertThat(resumed).containsExactlyElementsOf(uninterrupted);
+            assertThat(checkpoint)
+                    .hasSize(Checkpoints.HEADER_BYTES + 2 * Integer.BYTES + Long.BYTES + 52 * Double.BYTES);
+        }
+
+        @Test
+        @DisplayName("A partially filled window should round-trip with only its values")
+        void partialWindowShouldRoundTrip() {
+            var average = new MovingAverage(1_000);
+            average.accept(1.0);
+            average.accept(2.0);
+
+            var restored = MovingAverage.restore(average.snapshot());
+            restored.accept(6.0);
+
+            assertThat(average.snapshot())
+                    .hasSize(Checkpoints.HEADER_BYTES + 2 * Integer.BYTES + Long.BYTES + 4 * Double.BYTES);
+            assertThat(restored.count()).isEqualTo(3);
+            assertThat(restored.accepted()).isEqualTo(3);
+            assertThat(restored.average()).isEqualTo(3.0);
+        }
+
+        @Test
+        @DisplayName("Should reject corrupted, truncated and foreign snapshots")
+        void shouldRejectBadSnapshots() {
+            var average = new MovingAverage(3);
+            average.accept(1.0);
+            byte[] snapshot = average.snapshot();
+
+            assertThatThrownBy(() -> MovingAverage.restore(Arrays.copyOf(snapshot, snapshot.length - 1)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> MovingAverage.restore(new byte[]{1, 2, 3}))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> MovingAverage.restore(new RunningBalance().snapshot()))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("A corrupted window size should be rejected before the window is allocated")
+        void shouldBoundWindowSize() {
+            byte[] huge = new MovingAverage(3).snapshot();
+            ByteBuffer.wrap(huge).putInt(Checkpoints.HEADER_BYTES, Integer.MAX_VALUE);
+            var large = new MovingAverage(MovingAverage.MAX_RESTORED_WINDOW + 1);
+            large.accept(4.0);
+
+            assertThatThrownBy(() -> MovingAverage.restore(huge))
+                    .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("window");
+            assertThatThrownBy(() -> MovingAverage.restore(new MovingAverage(3).snapshot(), 4))
+                    .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("window");
+            assertThatThrownBy(() -> MovingAverage.restore(large.snapshot()))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(MovingAverage.restore(large.snapshot(), large.windowSize()).average()).isEqualTo(4.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: windowSliding + average vs MovingAverage")
+        void benchmark() {
+            int count = 100_000;
+            int windowSize = 1_000;
+            var readings = randomReadings(count, 7);
+            double[] primitiveReadings = readings.stream().mapToDouble(Double::doubleValue).toArray();
+
+            long start = System.nanoTime();
+            var sliding = readings.stream()
+                    .gather(Gatherers.windowSliding(windowSize))
+                    .map(window -> window.stream().mapToDouble(Double::doubleValue).average().orElse(0.0))
+                    .toList();
+            long slidingTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var gathered = readings.stream().gather(MovingAverage.gatherer(windowSize)).toList();
+            long gathererTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double[] primitive = MovingAverage.of(DoubleStream.of(primitiveReadings), windowSize).toArray();
+            long primitiveTime = System.nanoTime() - start;
+
+            System.out.println("=== Moving average: " + String.format("%,d", count)
+                    + " readings, window " + String.format("%,d", windowSize) + " ===");
+            System.out.printf("  %-38s %,10d µs%n", "windowSliding + average (O(n·w))", slidingTime / 1_000);
+            System.out.printf("  %-38s %,10d µs%n", "MovingAverage.gatherer (O(n))", gathererTime / 1_000);
+            System.out.printf("  %-38s %,10d µs%n", "MovingAverage.of(DoubleStream) (O(n))", primitiveTime / 1_000);
+            System.out.printf("  → Speed-up of the gatherer: %.0fx; the window list copies and re-additions grow with w.%n",
+                    (double) slidingTime / Math.max(1, gathererTime));
+            System.out.println();
+
+            assertThat(gathered).hasSameSizeAs(sliding);
+            assertThat(primitive).hasSize(sliding.size());
+            assertThat(gathered.getLast()).isCloseTo(sliding.getLast(), within(1e-9));
+        }
+    }
+}
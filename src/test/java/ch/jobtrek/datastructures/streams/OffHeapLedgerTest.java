@@ -0,0 +1,196 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Gatherers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link OffHeapLedger}, plus a benchmark of heap use against boxed
+ * running balances.
+ */
+@DisplayName("OffHeapLedger — native and mapped transaction columns")
+class OffHeapLedgerTest {
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static List<Long> boxedRunningBalance(List<Integer> transactions) {
+        return transactions.stream().gather(Gatherers.scan(() -> 0L, (Long sum, Integer t) -> sum + t)).toList();
+    }
+
+    @Nested
+    @DisplayName("Native ledger")
+    class NativeTests {
+
+        @Test
+        @DisplayName("Running balances should match the stream version across chunk boundaries")
+        void runningBalancesShouldMatchStream() throws IOException {
+            var random = new Random(1);
+            var transactions = new ArrayList<Integer>();
+            int count = OffHeapLedger.CHUNK_ENTRIES * 2 + 17;
+            try (var ledger = OffHeapLedger.allocate(count)) {
+                for (int i = 0; i < count; i++) {
+                    int amount = random.nextInt(-1_000, 1_001);
+                    transactions.add(amount);
+                    ledger.append(amount);
+                }
+
+                var balances = ledger.runningBalances();
+
+                var expected = boxedRunningBalance(transactions);
+                assertThat(balances.byteSize()).isEqualTo(count * 8L);
+                assertThat(balances.toArray(ValueLayout.JAVA_LONG)).containsExactly(
+                        expected.stream().mapToLong(Long::longValue).toArray());
+                assertThat(ledger.amount(count - 1)).isEqualTo(transactions.getLast());
+            }
+        }
+
+        @Test
+        @DisplayName("Balances should continue from the last computed one after more appends")
+        void balancesShouldBeIncremental() throws IOException {
+            try (var ledger = OffHeapLedger.allocate(10)) {
+                ledger.append(100);
+                ledger.append(-30);
+                assertThat(ledger.balance(1)).isEqualTo(70);
+
+                ledger.append(50);
+                ledger.append(-20);
+
+                assertThat(ledger.balance(3)).isEqualTo(100);
+                assertThat(ledger.runningBalances().toArray(ValueLayout.JAVA_LONG)).containsExactly(100, 70, 120, 100);
+            }
+        }
+
+        @Test
+        @DisplayName("Balances should not overflow where int sums would")
+        void balancesShouldUseLongs() throws IOException {
+            try (var ledger = OffHeapLedger.allocate(3)) {
+                ledger.append(Integer.MAX_VALUE);
+                ledger.append(Integer.MAX_VALUE);
+                ledger.append(Integer.MAX_VALUE);
+
+                assertThat(ledger.balance(2)).isEqualTo(3L * Integer.MAX_VALUE);
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject appends beyond capacity, bad indices and bad capacities")
+        void shouldRejectInvalidUse() throws IOException {
+            try (var ledger = OffHeapLedger.allocate(1)) {
+                ledger.append(1);
+
+                assertThatThrownBy(() -> ledger.append(2)).isInstanceOf(IllegalStateException.class);
+                assertThatThrownBy(() -> ledger.amount(1)).isInstanceOf(IndexOutOfBoundsException.class);
+                assertThatThrownBy(() -> ledger.balance(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+            }
+            assertThatThrownBy(() -> OffHeapLedger.allocate(0)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Files")
+    class FileTests {
+
+        @Test
+        @DisplayName("A mapped ledger should be trimmed on close and reopened with its transactions")
+        void mappedLedgerShouldPersist(@TempDir Path dir) throws IOException {
+            Path file = dir.resolve("ledger.bin");
+            try (var ledger = OffHeapLedger.mapped(file, 1_000)) {
+                ledger.append(100);
+                ledger.append(-30);
+            }
+            assertThat(Files.size(file)).isEqualTo(8);
+
+            try (var ledger = OffHeapLedger.mapped(file, 1_000)) {
+                ledger.append(50);
+
+                assertThat(ledger.size()).isEqualTo(3);
+                assertThat(ledger.amount(0)).isEqualTo(100);
+                assertThat(ledger.balance(2)).isEqualTo(120);
+            }
+            assertThatThrownBy(() -> OffHeapLedger.mapped(file, 2)).isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("persistRunningBalances() should write the balance column to a file")
+        void persistShouldWriteBalances(@TempDir Path dir) throws IOException {
+            Path target = dir.resolve("balances.bin");
+            try (var ledger = OffHeapLedger.allocate(4)) {
+                for (int amount : new int[]{100, -30, 50, -20}) {
+                    ledger.append(amount);
+                }
+
+                assertThat(ledger.persistRunningBalances(target)).isEqualTo(100);
+            }
+
+            try (var arena = Arena.ofConfined(); var channel = FileChannel.open(target)) {
+                var column = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+                assertThat(column.toArray(ValueLayout.JAVA_LONG)).containsExactly(100, 70, 120, 100);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: heap allocated by boxed vs off-heap running balances")
+        void heapUsage(@TempDir Path dir) throws IOException {
+            System.out.println("=== Running balance: bytes allocated on the heap ===");
+            System.out.printf("  %14s %22s %22s %10s%n", "transactions", "boxed List<Integer>", "OffHeapLedger", "ledger ms");
+            for (int count : new int[]{1_000_000, 4_000_000, 16_000_000}) {
+                var random = new Random(count);
+                long boxedBytes = -1;
+                if (count <= 4_000_000) {
+                    long before = allocatedBytes();
+                    var transactions = new ArrayList<Integer>(count);
+                    for (int i = 0; i < count; i++) {
+                        transactions.add(random.nextInt(-10_000, 10_001));
+                    }
+                    boxedRunningBalance(transactions);
+                    boxedBytes = allocatedBytes() - before;
+                }
+
+                long before = allocatedBytes();
+                long start = System.nanoTime();
+                long last;
+                try (var ledger = OffHeapLedger.mapped(dir.resolve("ledger-" + count + ".bin"), count)) {
+                    for (int i = 0; i < count; i++) {
+                        ledger.append(random.nextInt(-10_000, 10_001));
+                    }
+                    ledger.runningBalances();
+                    last = ledger.persistRunningBalances(dir.resolve("balances-" + count + ".bin"));
+                }
+                long ledgerNanos = System.nanoTime() - start;
+                long ledgerBytes = allocatedBytes() - before;
+
+                System.out.printf("  %,14d %22s %,22d %,10d%n", count,
+                        boxedBytes < 0 ? "(skipped)" : String.format("%,d", boxedBytes), ledgerBytes,
+                        ledgerNanos / 1_000_000);
+                assertThat(ledgerBytes).as("heap bytes for %d transactions (last balance %d)", count, last)
+                        .isLessThan(1_000_000);
+            }
+            System.out.println("  → The boxed version allocates ~50 bytes per transaction; the ledger's heap use");
+            System.out.println("    does not depend on its size — its columns live in native memory and files.");
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link ParallelPartitioner}, plus a scaling benchmark against
+ * {@code partitioningBy} and {@code groupingByConcurrent}.
+ */
+@DisplayName("ParallelPartitioner — count-then-scatter partitioning")
+class ParallelPartitionerTest {
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("Should equal partitioningBy(), keeping encounter order, at every size and pool")
+        void shouldMatchPartitioningBy() {
+            for (int size : new int[]{0, 1, 63, 64, 65, 10_000, 100_003}) {
+                var students = StudentFixtures.random(size, size);
+                var expected = students.stream().collect(Collectors.partitioningBy(s -> s.grade() >= 4.0));
+                for (int threads : new int[]{1, 3, 8}) {
+                    try (var pool = new ForkJoinPool(threads)) {
+                        assertThat(ParallelPartitioner.partition(students, s -> s.grade() >= 4.0, pool))
+                                .as("size %d, %d threads", size, threads)
+                                .isEqualTo(expected);
+                    }
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("groupStudentsByPassFail() should put the boundary grade in the passing group")
+        void groupStudentsByPassFail() {
+            var students = List.of(new Student("Alice", 5.5, 20), new Student("Bob", 3.2, 15),
+                    new Student("Charlie", 4.0, 18));
+
+            var groups = ParallelPartitioner.groupStudentsByPassFail(students, 4.0);
+
+            assertThat(groups.get(true)).extracting(Student::name).containsExactly("Alice", "Charlie");
+            assertThat(groups.get(false)).extracting(Student::name).containsExactly("Bob");
+            assertThatThrownBy(() -> groups.get(true).add(students.get(1)))
+                    .isInstanceOf(UnsupportedOperationException.class);
+        }
+
+        @Test
+        @DisplayName("Should call the predicate exactly once per element")
+        void shouldEvaluatePredicateOnce() {
+            var calls = new AtomicInteger();
+            var students = StudentFixtures.random(200_000, 1);
+
+            ParallelPartitioner.partition(students, s -> calls.incrementAndGet() > 0 && s.attendance() > 20);
+
+            assertThat(calls.get()).isEqualTo(200_000);
+        }
+
+        @Test
+        @DisplayName("Should reject a list without random access")
+        void shouldRejectLinkedList() {
+            assertThatThrownBy(() -> ParallelPartitioner.partition(new LinkedList<>(List.of(1, 2)), i -> i > 1))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: partitioning 4M students by number of cores")
+        void scalingBenchmark() {
+            int count = 4_000_000;
+            var students = StudentFixtures.random(count, 2);
+            long expectedPassing = students.stream().filter(s -> s.grade() >= 4.0).count();
+
+            System.out.println("=== Partitioning " + String.format("%,d", count) + " students by grade >= 4.0 ("
+                    + Runtime.getRuntime().availableProcessors() + " cores available) ===");
+            record Strategy(String name, Runnable run) {
+            }
+            var passing = new long[1];
+            for (var strategy : List.of(
+                    new Strategy("partitioningBy, sequential", () -> passing[0] = students.stream()
+                            .collect(Collectors.partitioningBy(s -> s.grade() >= 4.0)).get(true).size()),
+                    new Strategy("partitioningBy, parallel", () -> passing[0] = students.parallelStream()
+                            .collect(Collectors.partitioningBy(s -> s.grade() >= 4.0)).get(true).size()),
+                    new Strategy("groupingByConcurrent, parallel", () -> passing[0] = students.parallelStream()
+                            .collect(Collectors.groupingByConcurrent(s -> s.grade() >= 4.0)).get(true).size()))) {
+                strategy.run().run();
+                long start = System.nanoTime();
+                strategy.run().run();
+                System.out.printf("  %-34s %,9d µs%n", strategy.name(), (System.nanoTime() - start) / 1_000);
+                assertThat(passing[0]).isEqualTo(expectedPassing);
+            }
+
+            int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                try (var pool = new ForkJoinPool(threads)) {
+                    ParallelPartitioner.partition(students, s -> s.grade() >= 4.0, pool);
+                    long start = System.nanoTime();
+                    var groups = ParallelPartitioner.partition(students, s -> s.grade() >= 4.0, pool);
+                    long elapsed = System.nanoTime() - start;
+                    System.out.printf("  %-34s %,9d µs%n", "ParallelPartitioner, " + threads + " thread(s)",
+                            elapsed / 1_000);
+                    assertThat(groups.get(true)).hasSize((int) expectedPassing);
+                }
+            }
+            System.out.println("  → The partitioner copies each element once into pre-sized arrays; partitioningBy");
+            System.out.println("    copies again at every merge, and groupingByConcurrent loses order. Speed-ups need");
+            System.out.println("    real cores: threads beyond the core count only add scheduling.");
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Gatherer;
+import java.util.stream.Gatherers;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ParallelPrefixSum}, plus a core-scaling benchmark.
+ */
+@DisplayName("ParallelPrefixSum — blocked parallel running balance")
+class ParallelPrefixSumTest {
+
+    private static int[] randomTransactions(int count, long seed) {
+        var random = new Random(seed);
+        int[] transactions = new int[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = random.nextInt(2_000_001) - 1_000_000;
+        }
+        return transactions;
+    }
+
+    private static long[] sequential(int[] values) {
+        long[] sums = new long[values.length];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i];
+            sums[i] = sum;
+        }
+        return sums;
+    }
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("Should match the sequential scan for sizes around the block boundaries")
+        void shouldMatchSequential() {
+            try (var pool = new ForkJoinPool(4)) {
+                for (int size : new int[]{0, 1, 1_000, ParallelPrefixSum.SEQUENTIAL_THRESHOLD,
+                        ParallelPrefixSum.SEQUENTIAL_THRESHOLD * 3 + 17, 1_000_003}) {
+                    int[] transactions = randomTransactions(size, size);
+
+                    assertThat(ParallelPrefixSum.prefixSums(transactions, pool)).isEqualTo(sequential(transactions));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should not overflow where an int running balance would")
+        void shouldNotOverflow() {
+            int[] transactions = new int[200_000];
+            Arrays.fill(transactions, Integer.MAX_VALUE);
+
+            long[] sums = ParallelPrefixSum.prefixSums(transactions);
+
+            assertThat(sums[sums.length - 1]).isEqualTo(200_000L * Integer.MAX_VALUE);
+        }
+
+        @Test
+        @DisplayName("The gatherer should match Gatherers.scan() on a sequential stream")
+        void gathererShouldMatchScan() {
+            int[] transactions = randomTransactions(10_000, 5);
+
+            var expected = IntStream.of(transactions).boxed()
+                    .gather(Gatherers.scan(() -> 0L, (Long sum, Integer value) -> sum + value)).toList();
+            var actual = IntStream.of(transactions).boxed().gather(ParallelPrefixSum.gatherer()).toList();
+
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        @Test
+        @DisplayName("The gatherer should keep encounter order on a parallel stream")
+        void gathererShouldMatchSequentialInParallel() {
+            try (var pool = new ForkJoinPool(4)) {
+                // Large enough for the stream to split the source several times
+                for (int size : new int[]{1, 4_099, 100_000, 1_000_003}) {
+                    int[] transactions = randomTransactions(size, size);
+
+                    // A parallel stream started from a pool's worker runs its tasks in that pool
+                    List<Long> actual = pool.submit(() -> IntStream.of(transactions).boxed().parallel()
+                            .gather(ParallelPrefixSum.gatherer()).toList()).join();
+
+                    assertThat(actual).containsExactly(Arrays.stream(sequential(transactions)).boxed()
+                            .toArray(Long[]::new));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("The gatherer's combiner should offset the right-hand partial scan")
+        @SuppressWarnings("unchecked")
+        void combinerShouldOffsetRightPart() {
+            var gatherer = (Gatherer<Integer, Object, Long>) ParallelPrefixSum.gatherer();
+            var output = new ArrayList<Long>();
+            Gatherer.Downstream<Long> downstream = output::add;
+
+            // Simulate three workers, each integrating its own share of [1..9]
+            List<Object> states = new ArrayList<>();
+            for (int worker = 0; worker < 3; worker++) {
+                Object state = gatherer.initializer().get();
+                for (int value = worker * 3 + 1; value <= worker * 3 + 3; value++) {
+                    gatherer.integrator().integrate(state, value, downstream);
+                }
+                states.add(state);
+            }
+            Object right = gatherer.combiner().apply(states.get(1), states.get(2));
+            Object all = gatherer.combiner().apply(states.get(0), right);
+            gatherer.finisher().accept(all, downstream);
+
+            assertThat(output).containsExactly(1L, 3L, 6L, 10L, 15L, 21L, 28L, 36L, 45L);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: running balance of 20M transactions by number of cores")
+        void scalingBenchmark() {
+            int count = 20_000_000;
+            int[] transactions = randomTransactions(count, 11);
+            long[] expected = sequential(transactions);
+
+            System.out.println("=== Running balance of " + String.format("%,d", count) + " transactions ("
+                    + Runtime.getRuntime().availableProcessors() + " cores available) ===");
+
+            long start = System.nanoTime();
+            var boxed = IntStream.of(transactions).limit(count / 10).boxed()
+                    .gather(Gatherers.scan(() -> 0L, (Long sum, Integer value) -> sum + value)).toList();
+            long boxedTime = (System.nanoTime() - start) * 10;
+            System.out.printf("  %-32s %,9d µs (extrapolated from 2M)%n", "Gatherers.scan (boxed)", boxedTime / 1_000);
+
+            sequential(transactions);
+            start = System.nanoTime();
+            long[] sequential = sequential(transactions);
+            System.out.printf("  %-32s %,9d µs%n", "sequential loop", (System.nanoTime() - start) / 1_000);
+
+            start = System.nanoTime();
+            long[] widened = new long[count];
+            Arrays.setAll(widened, i -> transactions[i]);
+            Arrays.parallelPrefix(widened, Long::sum);
+            System.out.printf("  %-32s %,9d µs%n", "Arrays.parallelPrefix", (System.nanoTime() - start) / 1_000);
+
+            int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                try (var pool = new ForkJoinPool(threads)) {
+                    ParallelPrefixSum.prefixSums(transactions, pool);
+                    start = System.nanoTime();
+                    long[] sums = ParallelPrefixSum.prefixSums(transactions, pool);
+                    long elapsed = System.nanoTime() - start;
+                    System.out.printf("  %-32s %,9d µs%n", "blocked scan, " + threads + " thread(s)", elapsed / 1_000);
+                    assertThat(sums[count - 1]).isEqualTo(expected[count - 1]);
+                }
+            }
+            System.out.println("  → Boxing makes scan() an order of magnitude slower than any primitive loop. The blocked");
+            System.out.println("    scan reads the data twice, so it needs several cores to beat the loop, and stops");
+            System.out.println("    scaling once memory bandwidth is saturated; threads beyond the core count only wait.");
+            System.out.println();
+
+            assertThat(Arrays.equals(sequential, expected)).isTrue();
+            assertThat(widened[count - 1]).isEqualTo(expected[count - 1]);
+            assertThat(boxed.getLast()).isEqualTo(expected[count / 10 - 1]);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Gatherer;
+import java.util.stream.Gatherers;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PipelineProfiler}, plus a benchmark of its overhead.
+ */
+@DisplayName("PipelineProfiler — per-stage stream profiling")
+class PipelineProfilerTest {
+
+    /** filterByGrade → extractNames → upper-case, with a probe after each step. */
+    private static List<String> profiledPipeline(PipelineProfiler profiler, List<Student> students) {
+        var source = profiler.probe(students.stream(), "source");
+        var passing = profiler.probe(source.filter(s -> s.grade() >= 4.0), "filterByGrade");
+        var names = profiler.probe(passing.map(Student::name), "extractNames");
+        return profiler.probe(names.map(String::toUpperCase), "toUpperCase").toList();
+    }
+
+    @Nested
+    @DisplayName("Measurements")
+    class MeasurementTests {
+
+        @Test
+        @DisplayName("Probes should count the elements flowing past each point")
+        void probesShouldCountElements() {
+            var students = StudentFixtures.random(10_000, 1);
+            long passing = students.stream().filter(s -> s.grade() >= 4.0).count();
+            var profiler = PipelineProfiler.enabled();
+
+            var result = profiledPipeline(profiler, students);
+
+            assertThat(result).hasSize((int) passing);
+            assertThat(profiler.stages()).extracting(PipelineProfiler.StageStats::name)
+                    .containsExactly("source", "filterByGrade", "extractNames", "toUpperCase");
+            assertThat(profiler.stages()).extracting(PipelineProfiler.StageStats::in)
+                    .containsExactly(10_000L, passing, passing, passing);
+        }
+
+        @Test
+        @DisplayName("The most expensive stage should get the largest self time")
+        void selfTimeShouldPointAtBottleneck() {
+            var profiler = PipelineProfiler.enabled();
+
+            IntStream.range(0, 20_000).boxed()
+                    .gather(profiler.stage("cheap", Gatherer.<Integer, Integer>of((unused, i, downstream) ->
+                            downstream.push(i + 1))))
+                    .gather(profiler.stage("expensive", Gatherer.<Integer, Double>of((unused, i, downstream) -> {
+                        double x = i;
+                        for (int k = 0; k < 2_000; k++) {
+                            x = Math.sqrt(x + k);
+                        }
+                        return downstream.push(x);
+                    })))
+                    .gather(profiler.stage("batches", Gatherers.windowFixed(100)))
+                    .toList();
+
+            var stages = profiler.stages();
+            assertThat(stages).allSatisfy(stage -> assertThat(stage.selfNanos()).isNotNegative());
+            assertThat(stages.stream().max(Comparator.comparingLong(PipelineProfiler.StageStats::selfNanos))
+                    .orElseThrow().name()).isEqualTo("expensive");
+        }
+
+        @Test
+        @DisplayName("A wrapped stateful gatherer should report its input, output and finisher pushes")
+        void stageShouldWrapStatefulGatherer() {
+            var profiler = PipelineProfiler.enabled();
+
+            var batches = IntStream.range(0, 10).boxed()
+                    .gather(profiler.stage("windowFixed(3)", Gatherers.windowFixed(3)))
+                    .toList();
+
+            assertThat(batches).hasSize(4);
+            var stage = profiler.stages().getFirst();
+            assertThat(stage.in()).isEqualTo(10);
+            assertThat(stage.out()).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("Wrapping should keep short-circuiting with limit()")
+        void stageShouldShortCircuit() {
+            var profiler = PipelineProfiler.enabled();
+
+            var first = profiler.probe(Stream.iterate(1, i -> i + 1), "naturals").limit(5).toList();
+
+            assertThat(first).containsExactly(1, 2, 3, 4, 5);
+            assertThat(profiler.stages().getFirst().in()).isLessThanOrEqualTo(6);
+        }
+
+        @Test
+        @DisplayName("The report should show every stage, indented in pipeline order")
+        void reportShouldListStages() {
+            var profiler = PipelineProfiler.enabled();
+            profiledPipeline(profiler, StudentFixtures.random(1_000, 3));
+
+            String report = profiler.report();
+
+            assertThat(report).contains("source", "  filterByGrade", "    extractNames", "      toUpperCase");
+            assertThat(report.lines()).hasSize(5);
+        }
+    }
+
+    @Nested
+    @DisplayName("Disabled")
+    class DisabledTests {
+
+        @Test
+        @DisplayName("A disabled profiler should hand back the original gatherer and stream")
+        void disabledShouldReturnOriginals() {
+            var profiler = PipelineProfiler.of(false);
+            Gatherer<Integer, ?, List<Integer>> gatherer = Gatherers.windowFixed(2);
+            var stream = Stream.of(1, 2, 3);
+
+            assertThat(profiler.stage("batches", gatherer)).isSameAs(gatherer);
+            assertThat(profiler.probe(stream, "source")).isSameAs(stream);
+            assertThat(profiler.stages()).isEmpty();
+            assertThat(profiler.isEnabled()).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: cost of a disabled and an enabled profiler")
+        void overheadBenchmark() {
+            var students = StudentFixtures.random(1_000_000, 4);
+
+            System.out.println("=== filter → map → map over " + String.format("%,d", students.size()) + " students ===");
+            long plainNanos = Long.MAX_VALUE;
+            long disabledNanos = Long.MAX_VALUE;
+            long enabledNanos = Long.MAX_VALUE;
+            PipelineProfiler enabled = null;
+            int size = 0;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                size = students.stream().filter(s -> s.grade() >= 4.0).map(Student::name)
+                        .map(String::toUpperCase).toList().size();
+                plainNanos = Math.min(plainNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                size -= profiledPipeline(PipelineProfiler.disabled(), students).size();
+                disabledNanos = Math.min(disabledNanos, System.nanoTime() - start);
+
+                enabled = PipelineProfiler.enabled();
+                start = System.nanoTime();
+                profiledPipeline(enabled, students);
+                enabledNanos = Math.min(enabledNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("  %-28s %,6d ms%n", "no profiler", plainNanos / 1_000_000);
+            System.out.printf("  %-28s %,6d ms%n", "disabled profiler", disabledNanos / 1_000_000);
+            System.out.printf("  %-28s %,6d ms%n", "enabled profiler (4 probes)", enabledNanos / 1_000_000);
+            System.out.println();
+            System.out.print(enabled.report());
+            System.out.println("  → Disabled, the pipeline is the plain one. Enabled, the clock and allocation");
+            System.out.println("    counter reads dominate cheap stages: read the self column as a comparison.");
+            System.out.println();
+
+            assertThat(size).isZero();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.Gatherer;
+import java.util.stream.Gatherers;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link PrimitiveGatherers}, plus benchmarks against the boxed
+ * {@link Gatherers} pipelines they replace.
+ */
+@DisplayName("PrimitiveGatherers — boxing-free running sums, windows and dedupe")
+class PrimitiveGatherersTest {
+
+    private static int[] randomTransactions(int count, long seed) {
+        var random = new Random(seed);
+        int[] transactions = new int[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = random.nextInt(2_001) - 1_000;
+        }
+        return transactions;
+    }
+
+    private static <T> Gatherer<T, ?, T> boxedDistinctConsecutive() {
+        return Gatherer.<T, AtomicReference<T>, T>ofSequential(
+                AtomicReference::new,
+                Gatherer.Integrator.ofGreedy((previous, element, downstream) -> {
+                    boolean changed = !Objects.equals(previous.get(), element);
+                    previous.set(element);
+                    return !changed || downstream.push(element);
+                }));
+    }
+
+    @Nested
+    @DisplayName("Running sums")
+    class RunningSumTests {
+
+        @Test
+        @DisplayName("Should match Gatherers.scan(() -> 0, Integer::sum)")
+        void shouldMatchScan() {
+            int[] transactions = randomTransactions(10_000, 1);
+
+            var boxed = IntStream.of(transactions).boxed().gather(Gatherers.scan(() -> 0, Integer::sum)).toList();
+            int[] primitive = PrimitiveGatherers.runningSum(IntStream.of(transactions)).toArray();
+
+            assertThat(primitive).containsExactly(boxed.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        @Test
+        @DisplayName("Should compute long and double running sums")
+        void shouldSumLongsAndDoubles() {
+            assertThat(PrimitiveGatherers.runningSum(LongStream.of(Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, 1)).toArray())
+                    .containsExactly(Long.MAX_VALUE / 2, Long.MAX_VALUE - 1, Long.MAX_VALUE);
+            assertThat(PrimitiveGatherers.runningSum(DoubleStream.of(0.5, 1.5, -2.0)).toArray())
+                    .containsExactly(0.5, 2.0, 0.0);
+        }
+
+        @Test
+        @DisplayName("Should stay lazy with short-circuiting operations")
+        void shouldBeLazy() {
+            var closed = new AtomicBoolean();
+            try (var sums = PrimitiveGatherers.runningSum(IntStream.iterate(1, i -> i + 1).onClose(() -> closed.set(true)))) {
+                assertThat(sums.limit(4).toArray()).containsExactly(1, 3, 6, 10);
+            }
+            assertThat(closed).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Windows")
+    class WindowTests {
+
+        @Test
+        @DisplayName("Fixed windows should match Gatherers.windowFixed(), including the short last window")
+        void fixedWindowsShouldMatch() {
+            int[] values = IntStream.range(0, 23).toArray();
+
+            var boxed = IntStream.of(values).boxed().gather(Gatherers.windowFixed(5)).toList();
+            var primitive = PrimitiveGatherers.windowFixed(IntStream.of(values), 5).toList();
+
+            assertThat(primitive).hasSameSizeAs(boxed);
+            for (int i = 0; i < boxed.size(); i++) {
+                assertThat(primitive.get(i)).containsExactly(boxed.get(i).stream().mapToInt(Integer::intValue).toArray());
+            }
+            assertThat(PrimitiveGatherers.windowFixed(LongStream.range(0, 4), 2).map(Arrays::toString).toList())
+                    .containsExactly("[0, 1]", "[2, 3]");
+            assertThat(PrimitiveGatherers.windowFixed(DoubleStream.empty(), 3).count()).isZero();
+        }
+
+        @Test
+        @DisplayName("Sliding windows should match Gatherers.windowSliding()")
+        void slidingWindowsShouldMatch() {
+            int[] values = randomTransactions(200, 2);
+
+            for (int size : new int[]{1, 3, 200}) {
+                var boxed = IntStream.of(values).boxed().gather(Gatherers.windowSliding(size)).toList();
+                var primitive = PrimitiveGatherers.windowSliding(IntStream.of(values), size).toList();
+
+                assertThat(primitive).hasSameSizeAs(boxed);
+                for (int i = 0; i < boxed.size(); i++) {
+                    assertThat(primitive.get(i)).containsExactly(boxed.get(i).stream().mapToInt(Integer::intValue).toArray());
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("An input shorter than the sliding window should produce one shorter window")
+        void shortInputShouldProduceOneWindow() {
+            assertThat(PrimitiveGatherers.windowSliding(LongStream.of(1, 2), 5).map(Arrays::toString).toList())
+                    .containsExactly("[1, 2]");
+            assertThat(PrimitiveGatherers.windowSliding(DoubleStream.of(1, 2, 3), 2).map(Arrays::toString).toList())
+                    .containsExactly("[1.0, 2.0]", "[2.0, 3.0]");
+        }
+
+        @Test
+        @DisplayName("Should reject a non-positive window size")
+        void shouldRejectInvalidSize() {
+            assertThatThrownBy(() -> PrimitiveGatherers.windowFixed(IntStream.empty(), 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> PrimitiveGatherers.windowSliding(DoubleStream.empty(), -1))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Consecutive deduplication")
+    class DistinctConsecutiveTests {
+
+        @Test
+        @DisplayName("Should drop only consecutive duplicates")
+        void shouldDropConsecutiveDuplicates() {
+            assertThat(PrimitiveGatherers.distinctConsecutive(IntStream.of(1, 1, 2, 3, 3, 3, 1, 2, 2)).toArray())
+                    .containsExactly(1, 2, 3, 1, 2);
+            assertThat(PrimitiveGatherers.distinctConsecutive(LongStream.of(0, 0, 0)).toArray())
+                    .containsExactly(0);
+        }
+
+        @Test
+        @DisplayName("Doubles should compare like Double.equals()")
+        void doublesShouldCompareLikeEquals() {
+            assertThat(PrimitiveGatherers.distinctConsecutive(DoubleStream.of(Double.NaN, Double.NaN, 0.0, -0.0)).toArray())
+                    .containsExactly(Double.NaN, 0.0, -0.0);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        private static final int COUNT = 5_000_000;
+
+        private static long time(Supplier<Object> work) {
+            work.get();
+            long start = System.nanoTime();
+            Object result = work.get();
+            long elapsed = System.nanoTime() - start;
+            assertThat(result).isNotNull();
+            return elapsed;
+        }
+
+        private static void print(String operation, long boxed, long primitive) {
+            System.out.printf("  %-22s boxed %,9d µs   primitive %,9d µs   %5.1fx%n",
+                    operation, boxed / 1_000, primitive / 1_000, (double) boxed / Math.max(1, primitive));
+        }
+
+        @Test
+        @DisplayName("Benchmark: boxed Gatherers vs PrimitiveGatherers")
+        void benchmark() {
+            int[] transactions = randomTransactions(COUNT, 3);
+            List<Integer> boxedTransactions = new ArrayList<>(COUNT);
+            for (int value : transactions) {
+                boxedTransactions.add(value);
+            }
+            int[] repeated = IntStream.of(transactions).map(value -> value / 200).toArray();
+            List<Integer> boxedRepeated = IntStream.of(repeated).boxed().toList();
+
+            System.out.println("=== Boxed vs primitive gatherers, " + String.format("%,d", COUNT) + " elements ===");
+            print("running sum",
+                    time(() -> boxedTransactions.stream().gather(Gatherers.scan(() -> 0, Integer::sum)).toList()),
+                    time(() -> PrimitiveGatherers.runningSum(IntStream.of(transactions)).toArray()));
+            print("fixed windows of 100",
+                    time(() -> boxedTransactions.stream().gather(Gatherers.windowFixed(100)).toList()),
+                    time(() -> PrimitiveGatherers.windowFixed(IntStream.of(transactions), 100).toList()));
+            print("sliding windows of 8",
+                    time(() -> boxedTransactions.stream().gather(Gatherers.windowSliding(8)).count()),
+                    time(() -> PrimitiveGatherers.windowSliding(IntStream.of(transactions), 8).count()));
+            print("distinct consecutive",
+                    time(() -> boxedRepeated.stream().gather(boxedDistinctConsecutive()).toList()),
+                    time(() -> PrimitiveGatherers.distinctConsecutive(IntStream.of(repeated)).toArray()));
+            System.out.println("  → The boxed versions allocate an Integer per running total and a List per window;");
+            System.out.println("    the primitive versions only allocate the arrays they return.");
+            System.out.println();
+        }
+    }
+}
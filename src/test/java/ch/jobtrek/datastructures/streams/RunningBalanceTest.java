@@ -0,0 +1,148 @@
+package ch.jobtrek.datastructures.streams;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Gatherers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link RunningBalance}, plus a benchmark of resuming from a
+ * checkpoint against replaying the whole history.
+ */
+@DisplayName("RunningBalance — checkpointable running balance")
+class RunningBalanceTest {
+
+    private static List<Integer> randomTransactions(int count, long seed) {
+        var random = new Random(seed);
+        var transactions = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(random.nextInt(-500, 501));
+        }
+        return transactions;
+    }
+
+    @Nested
+    @DisplayName("Balances")
+    class BalanceTests {
+
+        @Test
+        @DisplayName("Should emit the same balances as Gatherers.scan()")
+        void shouldMatchScan() {
+            var transactions = List.of(100, -30, 50, -20, 10);
+
+            var balances = transactions.stream().gather(RunningBalance.gatherer(new RunningBalance())).toList();
+
+            assertThat(balances).containsExactly(100L, 70L, 120L, 100L, 110L);
+            assertThat(transactions.stream().gather(Gatherers.scan(() -> 0, Integer::sum)).toList())
+                    .containsExactly(100, 70, 120, 100, 110);
+        }
+
+        @Test
+        @DisplayName("Should not overflow where an int balance would")
+        void shouldUseLongBalance() {
+            var state = new RunningBalance();
+
+            List.of(Integer.MAX_VALUE, Integer.MAX_VALUE).stream().gather(RunningBalance.gatherer(state)).toList();
+
+            assertThat(state.balance()).isEqualTo(2L * Integer.MAX_VALUE);
+            assertThat(state.count()).isEqualTo(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("Checkpoints")
+    class CheckpointTests {
+
+        @Test
+        @DisplayName("Resuming from a snapshot should continue exactly like an uninterrupted run")
+        void resumeShouldMatchUninterruptedRun() {
+            var transactions = randomTransactions(10_000, 1);
+            var uninterrupted = transactions.stream().gather(RunningBalance.gatherer(new RunningBalance())).toList();
+
+            var state = new RunningBalance();
+            var firstRun = transactions.stream().limit(4_321).gather(RunningBalance.gatherer(state)).toList();
+            byte[] checkpoint = state.snapshot();
+            var restored = RunningBalance.restore(checkpoint);
+            var secondRun = transactions.stream().skip(restored.count())
+                    .gather(RunningBalance.gatherer(restored)).toList();
+
+            var resumed = new ArrayList<>(firstRun);
+            resumed.addAll(secondRun);
+            assertThat(resumed).containsExactlyElementsOf(uninterrupted);
+            assertThat(checkpoint).hasSize(22);
+        }
+
+        @Test
+        @DisplayName("Should reject corrupted, truncated and foreign snapshots")
+        void shouldRejectBadSnapshots() {
+            byte[] snapshot = new RunningBalance().snapshot();
+            byte[] wrongVersion = snapshot.clone();
+            wrongVersion[4] = 99;
+            byte[] padded = Arrays.copyOf(snapshot, snapshot.length + 1);
+
+            assertThatThrownBy(() -> RunningBalance.restore(Arrays.copyOf(snapshot, 10)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> RunningBalance.restore(wrongVersion))
+                    .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("version");
+            assertThatThrownBy(() -> RunningBalance.restore(padded))
+                    .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("trailing");
+            assertThatThrownBy(() -> RunningBalance.restore(new MovingAverage(2).snapshot()))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: restart at 90% of 5M transactions, replay vs resume")
+        void replayVersusResume() {
+            int count = 5_000_000;
+            int crashAt = count / 10 * 9;
+            var transactions = randomTransactions(count, 2);
+            var state = new RunningBalance();
+            transactions.stream().limit(crashAt).gather(RunningBalance.gatherer(state)).forEach(balance -> {
+            });
+            byte[] checkpoint = state.snapshot();
+
+            long replayNanos = Long.MAX_VALUE;
+            long resumeNanos = Long.MAX_VALUE;
+            long replayed = 0;
+            long resumed = 0;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                var replay = new RunningBalance();
+                transactions.stream().gather(RunningBalance.gatherer(replay)).forEach(balance -> {
+                });
+                replayed = replay.balance();
+                replayNanos = Math.min(replayNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                var restored = RunningBalance.restore(checkpoint);
+                transactions.subList((int) restored.count(), count).stream()
+                        .gather(RunningBalance.gatherer(restored)).forEach(balance -> {
+                        });
+                resumed = restored.balance();
+                resumeNanos = Math.min(resumeNanos, System.nanoTime() - start);
+            }
+
+            System.out.println("=== Restart after " + String.format("%,d", crashAt) + " of "
+                    + String.format("%,d", count) + " transactions ===");
+            System.out.printf("  %-36s %,8d µs%n", "replay from the first transaction", replayNanos / 1_000);
+            System.out.printf("  %-36s %,8d µs%n", "restore 22-byte snapshot + resume", resumeNanos / 1_000);
+            System.out.println("  → The restart only processes what came after the checkpoint.");
+            System.out.println();
+
+            assertThat(resumed).isEqualTo(replayed);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random students shared by the tests and benchmarks of this package.
+ */
+final class StudentFixtures {
+
+    private StudentFixtures() {
+    }
+
+    /**
+     * Returns {@code count} students named {@code S0}, {@code S1}, …, with a
+     * grade from 1.0 to 6.0 in steps of 0.1, as on a Swiss report card, and
+     * an attendance from 0 to 39. The same seed always gives the same students.
+     *
+     * @param count the number of students
+     * @param seed  the seed of the random generator
+     * @return a new mutable list
+     */
+    static List<Student> random(int count, long seed) {
+        var random = new Random(seed);
+        var students = new ArrayList<Student>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(new Student("S" + i, 1.0 + random.nextInt(51) / 10.0, random.nextInt(40)));
+        }
+        return students;
+    }
+}
@@ -0,0 +1,161 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link StudentStatistics}, plus a benchmark of one pass against
+ * the three separate passes of the exercises.
+ */
+@DisplayName("StudentStatistics — single-pass student aggregates")
+class StudentStatisticsTest {
+
+    private static final List<Student> STUDENTS = List.of(
+            new Student("Alice", 5.5, 20),
+            new Student("Bob", 3.2, 15),
+            new Student("Charlie", 4.0, 18),
+            new Student("Diana", 5.0, 22),
+            new Student("Eve", 2.8, 10),
+            new Student("Frank", 4.8, 19)
+    );
+
+    @Nested
+    @DisplayName("Correctness")
+    class CorrectnessTests {
+
+        @Test
+        @DisplayName("Should compute every aggregate of a small class")
+        void shouldComputeAggregates() {
+            var stats = STUDENTS.stream().collect(StudentStatistics.collector(4.0));
+
+            assertThat(stats.count()).isEqualTo(6);
+            assertThat(stats.passed()).isEqualTo(4);
+            assertThat(stats.failed()).isEqualTo(2);
+            assertThat(stats.gradeMin()).isEqualTo(2.8);
+            assertThat(stats.gradeMax()).isEqualTo(5.5);
+            assertThat(stats.gradeMean()).isCloseTo(25.3 / 6, within(1e-12));
+            assertThat(stats.attendanceMin()).isEqualTo(10);
+            assertThat(stats.attendanceMax()).isEqualTo(22);
+            assertThat(stats.attendanceMean()).isCloseTo(104 / 6.0, within(1e-12));
+
+            double gradeMean = 25.3 / 6;
+            double gradeVariance = STUDENTS.stream()
+                    .mapToDouble(s -> (s.grade() - gradeMean) * (s.grade() - gradeMean)).sum() / 6;
+            assertThat(stats.gradeVariance()).isCloseTo(gradeVariance, within(1e-12));
+            assertThat(stats.attendanceStandardDeviation())
+                    .isCloseTo(Math.sqrt(STUDENTS.stream()
+                            .mapToDouble(s -> Math.pow(s.attendance() - 104 / 6.0, 2)).sum() / 6), within(1e-12));
+        }
+
+        @Test
+        @DisplayName("A parallel collect should match the sequential one")
+        void parallelShouldMatchSequential() {
+            var students = StudentFixtures.random(200_000, 1);
+
+            var sequential = students.stream().collect(StudentStatistics.collector(4.0));
+            var parallel = students.parallelStream().collect(StudentStatistics.collector(4.0));
+
+            assertThat(parallel.count()).isEqualTo(sequential.count());
+            assertThat(parallel.passed()).isEqualTo(sequential.passed());
+            assertThat(parallel.gradeMin()).isEqualTo(sequential.gradeMin());
+            assertThat(parallel.attendanceMax()).isEqualTo(sequential.attendanceMax());
+            assertThat(parallel.gradeMean()).isCloseTo(sequential.gradeMean(), within(1e-9));
+            assertThat(parallel.gradeVariance()).isCloseTo(sequential.gradeVariance(), within(1e-9));
+            assertThat(parallel.attendanceVariance()).isCloseTo(sequential.attendanceVariance(), within(1e-9));
+        }
+
+        @Test
+        @DisplayName("combine() should give the same result as adding every student to one accumulator")
+        void combineShouldMatchSingleAccumulator() {
+            var left = new StudentStatistics(4.0);
+            var right = new StudentStatistics(4.0);
+            var all = new StudentStatistics(4.0);
+            for (int i = 0; i < STUDENTS.size(); i++) {
+                (i < 2 ? left : right).accept(STUDENTS.get(i));
+                all.accept(STUDENTS.get(i));
+            }
+
+            left.combine(right).combine(new StudentStatistics(4.0));
+
+            assertThat(left.count()).isEqualTo(all.count());
+            assertThat(left.gradeMean()).isCloseTo(all.gradeMean(), within(1e-12));
+            assertThat(left.gradeVariance()).isCloseTo(all.gradeVariance(), within(1e-12));
+            assertThat(left.attendanceVariance()).isCloseTo(all.attendanceVariance(), within(1e-12));
+            assertThat(new StudentStatistics(4.0).combine(all).gradeMax()).isEqualTo(5.5);
+        }
+
+        @Test
+        @DisplayName("Should stay accurate where E[x²] - E[x]² cancels catastrophically")
+        void shouldBeNumericallyStable() {
+            var stats = new StudentStatistics(4.0);
+            double offset = 1e9;
+            for (int i = 0; i < 1_000; i++) {
+                stats.accept(new Student("S" + i, offset + (i % 2 == 0 ? 1.0 : -1.0), 0));
+            }
+
+            assertThat(stats.gradeVariance()).isCloseTo(1.0, within(1e-6));
+        }
+
+        @Test
+        @DisplayName("Should describe an empty group and reject mismatched combines")
+        void shouldHandleEdgeCases() {
+            var empty = List.<Student>of().stream().collect(StudentStatistics.collector(4.0));
+
+            assertThat(empty.count()).isZero();
+            assertThat(empty.gradeMean()).isZero();
+            assertThat(empty.gradeVariance()).isZero();
+            assertThat(empty.gradeMin()).isEqualTo(Double.POSITIVE_INFINITY);
+            assertThatThrownBy(() -> empty.combine(new StudentStatistics(3.5)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> empty.accept(null)).isInstanceOf(NullPointerException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: one pass against filter + average + partitioningBy")
+        void singlePassVersusThreePasses() {
+            int count = 2_000_000;
+            var students = StudentFixtures.random(count, 2);
+
+            System.out.println("=== Report over " + String.format("%,d", count) + " students ===");
+            long threePassNanos = Long.MAX_VALUE;
+            long singlePassNanos = Long.MAX_VALUE;
+            long threePassPassed = 0;
+            StudentStatistics stats = null;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                var passing = students.stream().filter(s -> s.grade() >= 4.0).toList();
+                double average = students.stream().mapToDouble(Student::grade).average().orElse(0.0);
+                var partitions = students.stream().collect(Collectors.partitioningBy(s -> s.grade() >= 4.0));
+                threePassNanos = Math.min(threePassNanos, System.nanoTime() - start);
+                threePassPassed = passing.size() + partitions.get(true).size() + (long) average;
+
+                start = System.nanoTime();
+                stats = students.stream().collect(StudentStatistics.collector(4.0));
+                singlePassNanos = Math.min(singlePassNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("  %-38s %,6d ms  (count, mean, pass/fail lists)%n",
+                    "filter + average + partitioningBy", threePassNanos / 1_000_000);
+            System.out.printf("  %-38s %,6d ms  (+ min, max, variance of grade and attendance)%n",
+                    "StudentStatistics.collector", singlePassNanos / 1_000_000);
+            System.out.println("  → One traversal and no intermediate lists, even though it computes more.");
+            System.out.println();
+
+            assertThat(threePassPassed).isEqualTo(2 * stats.passed() + (long) stats.gradeMean());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Tests for {@link StudentTable}, plus a filtering benchmark against a
+ * stream over {@code List<Student>}.
+ */
+@DisplayName("StudentTable — columnar students")
+class StudentTableTest {
+
+    private static final List<Student> STUDENTS = List.of(
+            new Student("Alice", 5.5, 20),
+            new Student("Bob", 3.2, 15),
+            new Student("Charlie", 4.0, 18),
+            new Student("Diana", 5.0, 22),
+            new Student("Eve", 2.8, 10),
+            new Student("Frank", 4.8, 19)
+    );
+
+    @Nested
+    @DisplayName("Filters")
+    class FilterTests {
+
+        @Test
+        @DisplayName("Bitmaps and index vectors should select the same rows as a stream filter")
+        void selectionsShouldMatchStreamFilter() {
+            // 1,000 rows: 15 full bitmap words and a partial one
+            var students = StudentFixtures.random(1_000, 1);
+            var table = StudentTable.of(students);
+            int[] expected = IntStream.range(0, students.size())
+                    .filter(i -> students.get(i).grade() >= 4.0).toArray();
+
+            assertThat(table.indicesGradeAtLeast(4.0)).isEqualTo(expected);
+            assertThat(StudentTable.indicesOf(table.selectGradeAtLeast(4.0))).isEqualTo(expected);
+            assertThat(StudentTable.cardinality(table.selectGradeAtLeast(4.0))).isEqualTo(expected.length);
+        }
+
+        @Test
+        @DisplayName("and() should combine a grade and an attendance selection")
+        void andShouldIntersectSelections() {
+            var table = StudentTable.of(STUDENTS);
+
+            long[] both = StudentTable.and(table.selectGradeAtLeast(4.5), table.selectAttendanceAtLeast(20));
+
+            assertThat(StudentTable.indicesOf(both)).containsExactly(0, 3);
+            assertThat(table.students(StudentTable.indicesOf(both)))
+                    .extracting(Student::name).containsExactly("Alice", "Diana");
+        }
+
+        @Test
+        @DisplayName("Should handle an empty table and reject bitmaps of different lengths")
+        void shouldHandleEdgeCases() {
+            var empty = StudentTable.of(List.of());
+
+            assertThat(empty.size()).isZero();
+            assertThat(empty.selectGradeAtLeast(0)).isEmpty();
+            assertThat(empty.indicesGradeAtLeast(0)).isEmpty();
+            assertThat(empty.computeAverageGrade()).isZero();
+            assertThatThrownBy(() -> StudentTable.and(new long[1], new long[2]))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Adapters")
+    class AdapterTests {
+
+        private final StudentTable table = StudentTable.of(STUDENTS);
+
+        @Test
+        @DisplayName("filterByGrade() should keep students with grade >= minGrade, in order")
+        void filterByGrade() {
+            assertThat(table.filterByGrade(4.5)).extracting(Student::name)
+                    .containsExactly("Alice", "Diana", "Frank");
+            assertThat(table.filterByGrade(4.0)).isEqualTo(STUDENTS.stream().filter(s -> s.grade() >= 4.0).toList());
+        }
+
+        @Test
+        @DisplayName("extractNames() and computeAverageGrade() should match the list versions")
+        void extractNamesAndAverage() {
+            assertThat(table.extractNames()).isEqualTo(STUDENTS.stream().map(Student::name).toList());
+            assertThat(table.computeAverageGrade()).isCloseTo(25.3 / 6, within(1e-12));
+        }
+
+        @Test
+        @DisplayName("Adapters should return unmodifiable lists, like toList()")
+        void adaptersShouldBeUnmodifiable() {
+            var names = table.extractNames();
+            var passed = table.groupStudentsByPassFail(4.0).get(true);
+            var withNullName = StudentTable.of(List.of(new Student(null, 5.0, 10)));
+
+            assertThatThrownBy(() -> names.set(0, "Mallory")).isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> table.filterByGrade(4.0).clear()).isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> passed.removeFirst()).isInstanceOf(UnsupportedOperationException.class);
+            assertThat(withNullName.extractNames()).containsExactly((String) null);
+        }
+
+        @Test
+        @DisplayName("groupStudentsByPassFail() should equal Collectors.partitioningBy()")
+        void groupStudentsByPassFail() {
+            var students = StudentFixtures.random(500, 2);
+
+            assertThat(StudentTable.of(students).groupStudentsByPassFail(4.0))
+                    .isEqualTo(students.stream().collect(Collectors.partitioningBy(s -> s.grade() >= 4.0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: counting students with grade >= 4.0, list stream vs columns")
+        void filterBenchmark() {
+            int count = 2_000_000;
+            var students = StudentFixtures.random(count, 3);
+            // Allocate the records in random order, as in a long-lived heap where list order and
+            // memory order differ
+            var order = IntStream.range(0, count).boxed().collect(Collectors.toCollection(ArrayList::new));
+            Collections.shuffle(order, new Random(4));
+            var records = new Student[count];
+            order.forEach(i -> records[i] = new Student(students.get(i).name(), students.get(i).grade(),
+                    students.get(i).attendance()));
+            var shuffled = Arrays.asList(records);
+            var table = StudentTable.of(students);
+
+            System.out.println("=== Selecting grade >= 4.0 among " + String.format("%,d", count) + " students ===");
+            long streamNanos = Long.MAX_VALUE;
+            long indexNanos = Long.MAX_VALUE;
+            long bitmapNanos = Long.MAX_VALUE;
+            long streamCount = 0;
+            int indexCount = 0;
+            int bitmapCount = 0;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                streamCount = shuffled.stream().filter(s -> s.grade() >= 4.0).count();
+                streamNanos = Math.min(streamNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                indexCount = table.indicesGradeAtLeast(4.0).length;
+                indexNanos = Math.min(indexNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                bitmapCount = StudentTable.cardinality(table.selectGradeAtLeast(4.0));
+                bitmapNanos = Math.min(bitmapNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("  %-36s %,8d µs%n", "List<Student>.stream().filter()", streamNanos / 1_000);
+            System.out.printf("  %-36s %,8d µs%n", "StudentTable index vector", indexNanos / 1_000);
+            System.out.printf("  %-36s %,8d µs%n", "StudentTable bitmap + bitCount", bitmapNanos / 1_000);
+            System.out.println("  → The columns read 8 bytes per student sequentially; the list follows a pointer");
+            System.out.println("    to every record. A bitmap costs one bit per row, an index vector 32 per match.");
+            System.out.println();
+
+            assertThat(indexCount).isEqualTo((int) streamCount);
+            assertThat(bitmapCount).isEqualTo((int) streamCount);
+        }
+    }
+}
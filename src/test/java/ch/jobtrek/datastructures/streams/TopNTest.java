@@ -0,0 +1,183 @@
+package ch.jobtrek.datastructures.streams;
+
+import ch.jobtrek.datastructures.collections.Student;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for {@link TopN}, plus a benchmark against sorting the whole list.
+ */
+@DisplayName("TopN — bounded heap and quickselect")
+class TopNTest {
+
+    private static final Comparator<Student> BY_GRADE = Comparator.comparingDouble(Student::grade);
+
+    private static List<Double> topGradesBySorting(List<Student> students, int n) {
+        return students.stream().map(Student::grade).sorted(Comparator.reverseOrder()).limit(n).toList();
+    }
+
+    @Nested
+    @DisplayName("Bounded heap")
+    class HeapTests {
+
+        @Test
+        @DisplayName("The gatherer should emit the best students, best first")
+        void gathererShouldEmitTopStudents() {
+            var students = StudentFixtures.random(10_000, 1);
+
+            var top = students.stream().gather(TopN.topStudentsByGrade(50)).toList();
+
+            assertThat(top).extracting(Student::grade).containsExactlyElementsOf(topGradesBySorting(students, 50));
+        }
+
+        @Test
+        @DisplayName("A parallel collector should merge the workers' heaps into the same answer")
+        void parallelCollectorShouldMerge() {
+            var students = StudentFixtures.random(100_000, 2);
+
+            var top = students.parallelStream().collect(TopN.collector(20, BY_GRADE));
+
+            assertThat(top).extracting(Student::grade).containsExactlyElementsOf(topGradesBySorting(students, 20));
+        }
+
+        @Test
+        @DisplayName("Fewer elements than n should all be returned, sorted")
+        void shouldReturnEverythingWhenShort() {
+            assertThat(Stream.of(3, 1, 2).gather(TopN.gatherer(10, Comparator.<Integer>naturalOrder())).toList())
+                    .containsExactly(3, 2, 1);
+            assertThat(Stream.<Integer>empty().collect(TopN.collector(5, Comparator.<Integer>naturalOrder())))
+                    .isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should stop emitting when downstream short-circuits")
+        void shouldShortCircuit() {
+            var top = IntStream.range(0, 1_000).boxed()
+                    .gather(TopN.gatherer(100, Comparator.<Integer>naturalOrder()))
+                    .limit(3)
+                    .toList();
+
+            assertThat(top).containsExactly(999, 998, 997);
+        }
+
+        @Test
+        @DisplayName("Should reject a non-positive n")
+        void shouldRejectInvalidN() {
+            assertThatThrownBy(() -> TopN.gatherer(0, BY_GRADE)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> TopN.collector(-1, BY_GRADE)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Quickselect")
+    class QuickselectTests {
+
+        @Test
+        @DisplayName("nthElement() should settle index k with smaller elements before and greater after")
+        void nthElementShouldPartition() {
+            var random = new Random(3);
+            for (int size : new int[]{1, 2, 7, 100, 5_000}) {
+                // Few distinct values, to exercise duplicates of the pivot
+                var values = new ArrayList<Integer>();
+                random.ints(size, 0, 20).forEach(values::add);
+                var sorted = values.stream().sorted().toList();
+                for (int k : new int[]{0, size / 2, size - 1}) {
+                    var list = new ArrayList<>(values);
+
+                    Integer nth = TopN.nthElement(list, k, Comparator.naturalOrder());
+
+                    assertThat(nth).isEqualTo(sorted.get(k));
+                    assertThat(list.subList(0, k)).allMatch(v -> v <= nth);
+                    assertThat(list.subList(k, size)).allMatch(v -> v >= nth);
+                    assertThat(list).containsExactlyInAnyOrderElementsOf(values);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("nthElement() should work on a list without random access, and reject a bad index")
+        void nthElementOnLinkedList() {
+            var list = new LinkedList<>(List.of(5, 1, 4, 2, 3));
+
+            assertThat(TopN.nthElement(list, 1, Comparator.naturalOrder())).isEqualTo(2);
+            assertThatThrownBy(() -> TopN.nthElement(list, 5, Comparator.<Integer>naturalOrder()))
+                    .isInstanceOf(IndexOutOfBoundsException.class);
+        }
+
+        @Test
+        @DisplayName("selectTop() should move the best students to the front, best first")
+        void selectTopShouldRankFront() {
+            var students = StudentFixtures.random(10_000, 4);
+            var expected = topGradesBySorting(students, 50);
+
+            var top = TopN.selectTop(students, 50, BY_GRADE);
+
+            assertThat(top).extracting(Student::grade).containsExactlyElementsOf(expected);
+            assertThat(students).hasSize(10_000);
+            assertThat(TopN.selectTop(new ArrayList<>(List.of(1, 3, 2)), 5, Comparator.<Integer>naturalOrder()))
+                    .containsExactly(3, 2, 1);
+        }
+    }
+
+    @Nested
+    @DisplayName("Performance")
+    class PerformanceTests {
+
+        @Test
+        @DisplayName("Benchmark: top 50 of 2M students vs sorting them all")
+        void topVersusSort() {
+            int count = 2_000_000;
+            int n = 50;
+            var students = StudentFixtures.random(count, 5);
+
+            System.out.println("=== Top " + n + " of " + String.format("%,d", count) + " students by grade ===");
+            long sortNanos = Long.MAX_VALUE;
+            long heapNanos = Long.MAX_VALUE;
+            long selectNanos = Long.MAX_VALUE;
+            List<Student> sorted = List.of();
+            List<Student> heap = List.of();
+            List<Student> selected = List.of();
+            for (int round = 0; round < 3; round++) {
+                var copy = new ArrayList<>(students);
+                long start = System.nanoTime();
+                copy.sort(BY_GRADE.reversed());
+                sorted = List.copyOf(copy.subList(0, n));
+                sortNanos = Math.min(sortNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                heap = students.stream().gather(TopN.topStudentsByGrade(n)).toList();
+                heapNanos = Math.min(heapNanos, System.nanoTime() - start);
+
+                copy = new ArrayList<>(students);
+                start = System.nanoTime();
+                selected = List.copyOf(TopN.selectTop(copy, n, BY_GRADE));
+                selectNanos = Math.min(selectNanos, System.nanoTime() - start);
+            }
+
+            System.out.printf("  %-36s %,6d ms%n", "sort everything, take 50", sortNanos / 1_000_000);
+            System.out.printf("  %-36s %,6d ms%n", "bounded heap gatherer", heapNanos / 1_000_000);
+            System.out.printf("  %-36s %,6d ms%n", "quickselect + sort of the top 50", selectNanos / 1_000_000);
+            System.out.println("  → Once warm, the heap rejects almost every student with a single comparison,");
+            System.out.println("    and reads the list in order; quickselect still moves elements around, but");
+            System.out.println("    about 2-3 comparisons per element instead of log2(N) ≈ 21 for the sort.");
+            System.out.println();
+
+            assertThat(heap).extracting(Student::grade).containsExactlyElementsOf(
+                    sorted.stream().map(Student::grade).toList());
+            assertThat(selected).extracting(Student::grade).containsExactlyElementsOf(
+                    sorted.stream().map(Student::grade).toList());
+        }
+    }
+}